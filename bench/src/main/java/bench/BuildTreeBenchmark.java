@@ -0,0 +1,59 @@
+package bench;
+
+import java.awt.image.BufferedImage;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * QuadTree.buildTree (tanpa GIF) pada gambar di test/ untuk setiap metrik dan tiga tingkat threshold.
+ * Setiap operasi membuat QuadTree baru, jadi biaya ImageRaster.from dan struktur bantunya ikut terukur,
+ * sama seperti satu kali kompresi dari Main.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "--add-modules=jdk.incubator.vector")
+public class BuildTreeBenchmark {
+    @Param({"Lenna.png", "baboon24.bmp", "peppers512warna.bmp", "kincir.jpg"})
+    public String image;
+
+    @Param({"VARIANCE", "MAD", "PIXEL_DIFF", "ENTROPY", "SSIM"})
+    public Metric metric;
+
+    @Param({"LOW", "MID", "HIGH"})
+    public Metric.Level level;
+
+    @Param("2")
+    public int minBlockSize;
+
+    @Param("1")
+    public int parallelism;
+
+    private BufferedImage img;
+
+    @Setup
+    public void setup() throws Throwable {
+        img = Program.loadImage(image);
+    }
+
+    @Benchmark
+    public Object buildTree() throws Throwable {
+        Object tree = Program.newQuadTree(img, metric.threshold(level), minBlockSize,
+                Program.newErrorCalc(metric), false, 0, 1);
+        Program.setParallelism(tree, parallelism, 64 * 64);
+        Program.buildTree(tree);
+        return tree;
+    }
+}
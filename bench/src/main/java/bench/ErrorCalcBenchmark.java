@@ -0,0 +1,100 @@
+package bench;
+
+import java.awt.image.BufferedImage;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * computeError setiap metrik pada seluruh Lenna yang dibagi menjadi blok blockSize x blockSize.
+ * Jumlah piksel per operasi sama untuk semua blockSize, jadi hasilnya bisa dibandingkan langsung.
+ * Jalur "packed" memindai piksel; jalur "raster" memakai struktur bantu ImageRaster
+ * (integral image, piramida histogram/min-max) yang sudah dibangun di setup.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "--add-modules=jdk.incubator.vector")
+public class ErrorCalcBenchmark {
+    @Param({"VARIANCE", "MAD", "PIXEL_DIFF", "ENTROPY", "SSIM"})
+    public Metric metric;
+
+    @Param({"4", "16", "64", "256"})
+    public int blockSize;
+
+    @Param({"packed", "raster"})
+    public String path;
+
+    @Param("Lenna.png")
+    public String image;
+
+    private Object calc;
+    private Object raster;
+    private int[] pixels;
+    private int width;
+    private int[] blocks; // x, y, avgR, avgG, avgB per blok
+
+    @Setup
+    public void setup() throws Throwable {
+        BufferedImage img = Program.loadImage(image);
+        raster = Program.rasterFrom(img);
+        pixels = Program.rasterPixels(raster);
+        width = img.getWidth();
+        calc = Program.newErrorCalc(metric);
+
+        int cols = img.getWidth() / blockSize;
+        int rows = img.getHeight() / blockSize;
+        blocks = new int[cols * rows * 5];
+        int k = 0;
+        for (int by = 0; by < rows; by++) {
+            for (int bx = 0; bx < cols; bx++) {
+                int x = bx * blockSize;
+                int y = by * blockSize;
+                long r = 0, g = 0, b = 0;
+                for (int j = y; j < y + blockSize; j++) {
+                    for (int i = x; i < x + blockSize; i++) {
+                        int rgb = pixels[j * width + i];
+                        r += (rgb >> 16) & 0xFF;
+                        g += (rgb >> 8) & 0xFF;
+                        b += rgb & 0xFF;
+                    }
+                }
+                long n = (long) blockSize * blockSize;
+                blocks[k++] = x;
+                blocks[k++] = y;
+                blocks[k++] = (int) (r / n);
+                blocks[k++] = (int) (g / n);
+                blocks[k++] = (int) (b / n);
+            }
+        }
+        // Bangun struktur bantu raster (lazy) di luar pengukuran
+        sweep();
+    }
+
+    @Benchmark
+    public double sweep() throws Throwable {
+        double total = 0;
+        boolean packed = "packed".equals(path);
+        for (int k = 0; k < blocks.length; k += 5) {
+            if (packed) {
+                total += Program.computeError(calc, pixels, width, blocks[k], blocks[k + 1], blockSize, blockSize,
+                        blocks[k + 2], blocks[k + 3], blocks[k + 4]);
+            } else {
+                total += Program.computeError(calc, raster, blocks[k], blocks[k + 1], blockSize, blockSize,
+                        blocks[k + 2], blocks[k + 3], blocks[k + 4]);
+            }
+        }
+        return total;
+    }
+}
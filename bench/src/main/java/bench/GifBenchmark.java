@@ -0,0 +1,65 @@
+package bench;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import javax.imageio.stream.ImageOutputStream;
+import javax.imageio.stream.MemoryCacheImageOutputStream;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Encoding GIF lewat GIFSeqWriter ke memori. Frame diambil dari pembangunan mode target
+ * (buildTreeWithLeafBudget) agar jumlahnya tepat sesuai parameter frames.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "--add-modules=jdk.incubator.vector")
+public class GifBenchmark {
+    @Param({"Lenna.png"})
+    public String image;
+
+    @Param({"10", "50"})
+    public int frames;
+
+    private List<BufferedImage> gifFrames;
+    private int imageType;
+
+    @Setup
+    public void setup() throws Throwable {
+        BufferedImage img = Program.loadImage(image);
+        Object tree = Program.newQuadTree(img, 0, 1, Program.newErrorCalc(Metric.VARIANCE), true, frames, 1);
+        Program.buildTreeWithLeafBudget(tree, img.getWidth() * img.getHeight() / 16);
+        gifFrames = Program.gifFrames(tree);
+        if (gifFrames.isEmpty()) {
+            throw new IllegalStateException("Tidak ada frame GIF yang terekam");
+        }
+        imageType = gifFrames.get(0).getType();
+    }
+
+    @Benchmark
+    public int encode() throws Throwable {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ImageOutputStream out = new MemoryCacheImageOutputStream(bytes)) {
+            Object writer = Program.newGifWriter(out, imageType, 100, true);
+            for (BufferedImage frame : gifFrames) {
+                Program.gifWrite(writer, frame);
+            }
+            Program.gifClose(writer);
+        }
+        return bytes.size();
+    }
+}
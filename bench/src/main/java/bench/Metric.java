@@ -0,0 +1,27 @@
+package bench;
+
+/**
+ * Metode error beserta threshold rendah/sedang/tinggi yang sebanding untuk
+ * benchmark pembangunan pohon (skala error tiap metrik berbeda).
+ */
+public enum Metric {
+    VARIANCE("VarErrorCalc", 20, 100, 500),
+    MAD("MADErrorCalc", 5, 15, 40),
+    PIXEL_DIFF("PixelDiffErrorCalc", 20, 60, 150),
+    ENTROPY("EntropyErrorCalc", 1, 3, 5),
+    SSIM("SSIMErrorCalc", 0.05, 0.2, 0.5);
+
+    final String className;
+    private final double[] thresholds;
+
+    Metric(String className, double low, double mid, double high) {
+        this.className = className;
+        this.thresholds = new double[] { low, mid, high };
+    }
+
+    double threshold(Level level) {
+        return thresholds[level.ordinal()];
+    }
+
+    public enum Level { LOW, MID, HIGH }
+}
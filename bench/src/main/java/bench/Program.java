@@ -0,0 +1,172 @@
+package bench;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.RenderedImage;
+import java.io.File;
+import java.io.IOException;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.List;
+import javax.imageio.ImageIO;
+import javax.imageio.stream.ImageOutputStream;
+
+/**
+ * Akses ke kelas program. Kelas program ada di default package yang tidak bisa
+ * di-import dari package bernama, jadi semuanya dipanggil lewat MethodHandle
+ * static final (di-inline oleh JIT, sehingga overhead-nya tidak ikut terukur berarti).
+ */
+final class Program {
+    private static final MethodHandle COMPUTE_ERROR_PACKED;
+    private static final MethodHandle COMPUTE_ERROR_RASTER;
+    private static final MethodHandle RASTER_FROM;
+    private static final MethodHandle RASTER_PIXELS;
+    private static final MethodHandle NEW_QUADTREE;
+    private static final MethodHandle BUILD_TREE;
+    private static final MethodHandle BUILD_TREE_WITH_LEAF_BUDGET;
+    private static final MethodHandle SET_PARALLELISM;
+    private static final MethodHandle GENERATE_COMPRESSED_IMAGE;
+    private static final MethodHandle COUNT_LEAVES;
+    private static final MethodHandle GET_GIF_FRAMES;
+    private static final MethodHandle NEW_GIF_WRITER;
+    private static final MethodHandle GIF_WRITE;
+    private static final MethodHandle GIF_CLOSE;
+
+    static {
+        try {
+            MethodHandles.Lookup lookup = MethodHandles.lookup();
+            Class<?> errorCalc = Class.forName("ErrorCalc");
+            Class<?> raster = Class.forName("ImageRaster");
+            Class<?> quadTree = Class.forName("QuadTree");
+            Class<?> gifWriter = Class.forName("GIFSeqWriter");
+
+            COMPUTE_ERROR_PACKED = lookup.findVirtual(errorCalc, "computeError",
+                    MethodType.methodType(double.class, int[].class, int.class, int.class, int.class, int.class,
+                            int.class, int.class, int.class, int.class))
+                    .asType(MethodType.methodType(double.class, Object.class, int[].class, int.class, int.class,
+                            int.class, int.class, int.class, int.class, int.class, int.class));
+            COMPUTE_ERROR_RASTER = lookup.findVirtual(errorCalc, "computeError",
+                    MethodType.methodType(double.class, raster, int.class, int.class, int.class, int.class,
+                            int.class, int.class, int.class))
+                    .asType(MethodType.methodType(double.class, Object.class, Object.class, int.class, int.class,
+                            int.class, int.class, int.class, int.class, int.class));
+            RASTER_FROM = lookup.findStatic(raster, "from", MethodType.methodType(raster, BufferedImage.class))
+                    .asType(MethodType.methodType(Object.class, BufferedImage.class));
+            RASTER_PIXELS = lookup.findVirtual(raster, "getPixels", MethodType.methodType(int[].class))
+                    .asType(MethodType.methodType(int[].class, Object.class));
+            NEW_QUADTREE = lookup.findConstructor(quadTree, MethodType.methodType(void.class, BufferedImage.class,
+                            double.class, int.class, errorCalc, boolean.class, int.class, int.class))
+                    .asType(MethodType.methodType(Object.class, BufferedImage.class, double.class, int.class,
+                            Object.class, boolean.class, int.class, int.class));
+            BUILD_TREE = lookup.findVirtual(quadTree, "buildTree", MethodType.methodType(void.class))
+                    .asType(MethodType.methodType(void.class, Object.class));
+            BUILD_TREE_WITH_LEAF_BUDGET = lookup.findVirtual(quadTree, "buildTreeWithLeafBudget",
+                            MethodType.methodType(void.class, int.class))
+                    .asType(MethodType.methodType(void.class, Object.class, int.class));
+            SET_PARALLELISM = lookup.findVirtual(quadTree, "setParallelism",
+                            MethodType.methodType(void.class, int.class, int.class))
+                    .asType(MethodType.methodType(void.class, Object.class, int.class, int.class));
+            GENERATE_COMPRESSED_IMAGE = lookup.findVirtual(quadTree, "generateCompressedImage",
+                            MethodType.methodType(BufferedImage.class))
+                    .asType(MethodType.methodType(BufferedImage.class, Object.class));
+            COUNT_LEAVES = lookup.findVirtual(quadTree, "countLeaves", MethodType.methodType(int.class))
+                    .asType(MethodType.methodType(int.class, Object.class));
+            GET_GIF_FRAMES = lookup.findVirtual(quadTree, "getGifFrames", MethodType.methodType(List.class))
+                    .asType(MethodType.methodType(List.class, Object.class));
+            NEW_GIF_WRITER = lookup.findConstructor(gifWriter, MethodType.methodType(void.class,
+                            ImageOutputStream.class, int.class, int.class, boolean.class))
+                    .asType(MethodType.methodType(Object.class, ImageOutputStream.class, int.class, int.class,
+                            boolean.class));
+            GIF_WRITE = lookup.findVirtual(gifWriter, "writeToSequence",
+                            MethodType.methodType(void.class, RenderedImage.class))
+                    .asType(MethodType.methodType(void.class, Object.class, RenderedImage.class));
+            GIF_CLOSE = lookup.findVirtual(gifWriter, "close", MethodType.methodType(void.class))
+                    .asType(MethodType.methodType(void.class, Object.class));
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    private Program() {
+    }
+
+    /**
+     * Gambar dari folder test/ (atau -Dbench.images=...), relatif terhadap direktori kerja.
+     */
+    static BufferedImage loadImage(String name) throws IOException {
+        File file = new File(System.getProperty("bench.images", "test"), name);
+        BufferedImage image = ImageIO.read(file);
+        if (image == null) {
+            throw new IOException("Gambar tidak dapat dibaca: " + file.getAbsolutePath());
+        }
+        return image;
+    }
+
+    static Object newErrorCalc(Metric metric) {
+        try {
+            return Class.forName(metric.className).getConstructor().newInstance();
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    static double computeError(Object calc, int[] pixels, int stride, int x, int y, int w, int h,
+                               int avgR, int avgG, int avgB) throws Throwable {
+        return (double) COMPUTE_ERROR_PACKED.invokeExact(calc, pixels, stride, x, y, w, h, avgR, avgG, avgB);
+    }
+
+    static double computeError(Object calc, Object raster, int x, int y, int w, int h,
+                               int avgR, int avgG, int avgB) throws Throwable {
+        return (double) COMPUTE_ERROR_RASTER.invokeExact(calc, raster, x, y, w, h, avgR, avgG, avgB);
+    }
+
+    static Object rasterFrom(BufferedImage image) throws Throwable {
+        return (Object) RASTER_FROM.invokeExact(image);
+    }
+
+    static int[] rasterPixels(Object raster) throws Throwable {
+        return (int[]) RASTER_PIXELS.invokeExact(raster);
+    }
+
+    static Object newQuadTree(BufferedImage image, double threshold, int minBlockSize, Object calc,
+                              boolean recordGif, int maxFrames, int frameSkip) throws Throwable {
+        return (Object) NEW_QUADTREE.invokeExact(image, threshold, minBlockSize, calc, recordGif, maxFrames, frameSkip);
+    }
+
+    static void buildTree(Object tree) throws Throwable {
+        BUILD_TREE.invokeExact(tree);
+    }
+
+    static void buildTreeWithLeafBudget(Object tree, int maxLeaves) throws Throwable {
+        BUILD_TREE_WITH_LEAF_BUDGET.invokeExact(tree, maxLeaves);
+    }
+
+    static void setParallelism(Object tree, int parallelism, int cutoff) throws Throwable {
+        SET_PARALLELISM.invokeExact(tree, parallelism, cutoff);
+    }
+
+    static BufferedImage generateCompressedImage(Object tree) throws Throwable {
+        return (BufferedImage) GENERATE_COMPRESSED_IMAGE.invokeExact(tree);
+    }
+
+    static int countLeaves(Object tree) throws Throwable {
+        return (int) COUNT_LEAVES.invokeExact(tree);
+    }
+
+    @SuppressWarnings("unchecked")
+    static List<BufferedImage> gifFrames(Object tree) throws Throwable {
+        return (List<BufferedImage>) GET_GIF_FRAMES.invokeExact(tree);
+    }
+
+    static Object newGifWriter(ImageOutputStream out, int imageType, int delay, boolean loop) throws Throwable {
+        return (Object) NEW_GIF_WRITER.invokeExact(out, imageType, delay, loop);
+    }
+
+    static void gifWrite(Object writer, RenderedImage frame) throws Throwable {
+        GIF_WRITE.invokeExact(writer, frame);
+    }
+
+    static void gifClose(Object writer) throws Throwable {
+        GIF_CLOSE.invokeExact(writer);
+    }
+}
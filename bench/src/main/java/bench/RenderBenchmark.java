@@ -0,0 +1,51 @@
+package bench;
+
+import java.awt.image.BufferedImage;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * generateCompressedImage pada pohon yang sudah dibangun (Variance), dari pohon dangkal
+ * sampai pohon yang hampir satu daun per piksel.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "--add-modules=jdk.incubator.vector")
+public class RenderBenchmark {
+    @Param({"Lenna.png", "baboon24.bmp", "gunung.jpg"})
+    public String image;
+
+    @Param({"1", "100", "1000"})
+    public double threshold;
+
+    @Param({"1", "4"})
+    public int parallelism;
+
+    private Object tree;
+
+    @Setup
+    public void setup() throws Throwable {
+        BufferedImage img = Program.loadImage(image);
+        tree = Program.newQuadTree(img, threshold, 1, Program.newErrorCalc(Metric.VARIANCE), false, 0, 1);
+        Program.buildTree(tree);
+        Program.setParallelism(tree, parallelism, 64 * 64);
+    }
+
+    @Benchmark
+    public BufferedImage generateCompressedImage() throws Throwable {
+        return Program.generateCompressedImage(tree);
+    }
+}
@@ -0,0 +1,548 @@
+import java.awt.Dimension;
+import java.awt.image.BufferedImage;
+import java.awt.image.ColorModel;
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.imageio.ImageIO;
+import javax.imageio.stream.FileImageOutputStream;
+
+/**
+ * Mode non-interaktif: satu gambar, satu folder, atau daftar di file manifest diproses
+ * tanpa prompt. Setiap gambar melewati tiga tahap (decode, kompresi, encode) di pool
+ * thread masing-masing, sehingga decode gambar berikutnya dan encode gambar sebelumnya
+ * berjalan bersamaan dengan kompresi. Jumlah gambar yang sedang diproses dibatasi
+ * (2 x workers) agar memori tidak bertambah seiring jumlah gambar.
+ * Ringkasan per gambar ditulis sebagai JSON Lines (satu objek JSON per baris).
+ */
+public class BatchCompressor {
+    private static final String USAGE = String.join("\n",
+        "Penggunaan:",
+        "  java Main --input <gambar|folder> --output <gambar|folder> [opsi]",
+        "  java Main --manifest <file> [opsi]",
+        "",
+        "Opsi batch:",
+        "  --workers <n>        jumlah thread kompresi (default: jumlah prosesor)",
+        "  --format <ekstensi>  format output jika --output berupa folder (default: ekstensi input)",
+        "  --gif-dir <folder>   simpan GIF proses untuk setiap gambar di folder ini",
+        "  --summary <file>     file ringkasan JSON Lines (default: stdout)",
+        "",
+        "Parameter kompresi (juga berlaku sebagai kunci=nilai di manifest):",
+        "  --method <1-5>  --threshold <t>  --min-block <n>  --target <0-1>",
+        "  --parallelism <n>  --parallel-cutoff <piksel>  --tile-size <n>",
+        "  --gif-delay <ms>  --gif-frames <n>  --gif-skip <n>",
+        "  --ladder <t1,t2,...>  satu pembangunan, satu output per threshold (nama_t<threshold>.ext)",
+        "  --offheap true   piksel, integral image, dan node di luar heap, dibebaskan per gambar",
+        "                   (JDK 21: jalankan dengan java --enable-preview)",
+        "",
+        "Manifest: satu gambar per baris, 'input output [kunci=nilai ...]', termasuk gif=<path>.",
+        "Baris kosong dan baris diawali # diabaikan.");
+
+    private final int workers;
+    private final PrintStream summary;
+    private final AtomicInteger done = new AtomicInteger();
+    private final AtomicInteger failed = new AtomicInteger();
+    private int total;
+
+    /**
+     * Satu gambar beserta hasil tiap tahap; referensi gambar dilepas setelah encode.
+     */
+    private static final class Job {
+        final int index;
+        final File input;
+        final File output;
+        final CompressConfig config;
+
+        BufferedImage image;       // null pada mode tile
+        QuadTree quadtree;
+        BufferedImage outputImage; // null untuk format pohon
+        OffHeapStorage storage;        // Backend off-heap, dibebaskan di finish
+        QuadTree[] ladder;             // Mode ladder: satu pohon per threshold
+        BufferedImage[] ladderImages;  // null untuk format pohon
+        long[] ladderRenderNanos, ladderEncodeNanos;
+        int width, height;
+        int gifFrames;
+        long decodeNanos, compressNanos, encodeNanos;
+
+        Job(int index, File input, File output, CompressConfig config) {
+            this.index = index;
+            this.input = input;
+            this.output = output;
+            this.config = config;
+        }
+    }
+
+    private BatchCompressor(int workers, PrintStream summary) {
+        this.workers = workers;
+        this.summary = summary;
+    }
+
+    /**
+     * Menjalankan mode batch dari argumen command line.
+     * Mengembalikan exit code: 0 jika semua berhasil, 1 jika ada yang gagal, 2 jika argumen salah.
+     */
+    public static int run(String[] args) {
+        CompressConfig defaults = new CompressConfig();
+        defaults.createGif = false;
+        defaults.parallelism = 1; // Paralelisme datang dari beberapa gambar sekaligus
+        String input = null, output = null, manifest = null, format = null, gifDir = null, summaryPath = null;
+        int workers = Runtime.getRuntime().availableProcessors();
+
+        List<Job> jobs;
+        try {
+            for (int i = 0; i < args.length; i++) {
+                String arg = args[i];
+                if (arg.equals("--help") || arg.equals("-h")) {
+                    System.out.println(USAGE);
+                    return 0;
+                }
+                if (!arg.startsWith("--") || i + 1 >= args.length) {
+                    throw new IllegalArgumentException("Argumen tidak valid: " + arg);
+                }
+                String value = args[++i];
+                switch (arg.substring(2)) {
+                    case "input" -> input = value;
+                    case "output" -> output = value;
+                    case "manifest" -> manifest = value;
+                    case "format" -> format = value;
+                    case "gif-dir" -> gifDir = value;
+                    case "summary" -> summaryPath = value;
+                    case "workers" -> workers = Integer.parseInt(value);
+                    default -> defaults.set(arg.substring(2), value);
+                }
+            }
+            if (workers < 1) {
+                throw new IllegalArgumentException("Jumlah workers harus >= 1");
+            }
+            if (manifest != null) {
+                jobs = readManifest(new File(manifest), defaults, gifDir);
+            } else if (input != null && output != null) {
+                jobs = listJobs(new File(input), new File(output), format, defaults, gifDir);
+            } else {
+                throw new IllegalArgumentException("Butuh --input dan --output, atau --manifest");
+            }
+        } catch (IllegalArgumentException | IOException e) {
+            System.err.println(e.getMessage());
+            System.err.println(USAGE);
+            return 2;
+        }
+
+        if (summaryPath == null) {
+            return new BatchCompressor(workers, System.out).process(jobs);
+        }
+        try (PrintStream summary = new PrintStream(new FileOutputStream(summaryPath), true, "UTF-8")) {
+            return new BatchCompressor(workers, summary).process(jobs);
+        } catch (IOException e) {
+            System.err.println("Gagal menulis ringkasan: " + e.getMessage());
+            return 1;
+        }
+    }
+
+    private static List<Job> readManifest(File file, CompressConfig defaults, String gifDir) throws IOException {
+        List<Job> jobs = new ArrayList<>();
+        try (BufferedReader reader = new BufferedReader(new FileReader(file))) {
+            String line;
+            int lineNumber = 0;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                line = line.strip();
+                if (line.isEmpty() || line.startsWith("#")) continue;
+                String[] tokens = line.split("\\s+");
+                if (tokens.length < 2) {
+                    throw new IllegalArgumentException("Manifest baris " + lineNumber + ": butuh input dan output");
+                }
+                CompressConfig config = defaults.copy();
+                config.inputImagePath = tokens[0];
+                config.outputImagePath = tokens[1];
+                if (gifDir != null) {
+                    setGifPath(config, new File(gifDir, baseName(new File(tokens[0])) + ".gif").getPath());
+                }
+                for (int t = 2; t < tokens.length; t++) {
+                    int eq = tokens[t].indexOf('=');
+                    if (eq <= 0) {
+                        throw new IllegalArgumentException("Manifest baris " + lineNumber + ": bukan kunci=nilai: " + tokens[t]);
+                    }
+                    String key = tokens[t].substring(0, eq);
+                    String value = tokens[t].substring(eq + 1);
+                    try {
+                        if (key.equals("gif")) {
+                            setGifPath(config, value);
+                        } else {
+                            config.set(key, value);
+                        }
+                    } catch (IllegalArgumentException e) {
+                        throw new IllegalArgumentException("Manifest baris " + lineNumber + ": " + e.getMessage());
+                    }
+                }
+                jobs.add(new Job(jobs.size(), new File(config.inputImagePath), new File(config.outputImagePath), config));
+            }
+        }
+        return jobs;
+    }
+
+    private static List<Job> listJobs(File input, File output, String format, CompressConfig defaults,
+                                      String gifDir) throws IOException {
+        File[] inputs;
+        if (input.isDirectory()) {
+            Set<String> suffixes = new HashSet<>(Arrays.asList(ImageIO.getReaderFileSuffixes()));
+            inputs = input.listFiles(f -> f.isFile() && suffixes.contains(extensionOf(f)));
+            if (inputs == null) {
+                throw new IOException("Folder tidak dapat dibaca: " + input);
+            }
+            Arrays.sort(inputs);
+            if (output.exists() && !output.isDirectory()) {
+                throw new IllegalArgumentException("--output harus folder jika --input berupa folder");
+            }
+        } else if (input.isFile()) {
+            inputs = new File[] { input };
+        } else {
+            throw new IOException("File tidak ditemukan: " + input);
+        }
+
+        // Output berupa folder jika input folder, sudah ada sebagai folder, atau tidak berekstensi
+        boolean outputIsDir = input.isDirectory() || output.isDirectory() || extensionOf(output).isEmpty();
+        List<Job> jobs = new ArrayList<>();
+        for (File in : inputs) {
+            CompressConfig config = defaults.copy();
+            config.inputImagePath = in.getPath();
+            String outFormat = (format != null) ? format : extensionOf(in);
+            File out = outputIsDir ? new File(output, baseName(in) + "." + outFormat) : output;
+            config.outputImagePath = out.getPath();
+            if (gifDir != null) {
+                setGifPath(config, new File(gifDir, baseName(in) + ".gif").getPath());
+            }
+            jobs.add(new Job(jobs.size(), in, out, config));
+        }
+        return jobs;
+    }
+
+    private static void setGifPath(CompressConfig config, String path) {
+        config.gifOutputPath = path;
+        config.createGif = true;
+    }
+
+    private static String extensionOf(File file) {
+        String name = file.getName();
+        int dot = name.lastIndexOf('.');
+        return (dot < 0) ? "" : name.substring(dot + 1).toLowerCase(Locale.ROOT);
+    }
+
+    private static String baseName(File file) {
+        String name = file.getName();
+        int dot = name.lastIndexOf('.');
+        return (dot <= 0) ? name : name.substring(0, dot);
+    }
+
+    private int process(List<Job> jobs) {
+        total = jobs.size();
+        if (total == 0) {
+            System.err.println("Tidak ada gambar untuk diproses.");
+            return 0;
+        }
+        int ioThreads = Math.max(1, workers / 2);
+        ExecutorService decodePool = Executors.newFixedThreadPool(ioThreads, daemon("batch-decode"));
+        ExecutorService compressPool = Executors.newFixedThreadPool(workers, daemon("batch-compress"));
+        ExecutorService encodePool = Executors.newFixedThreadPool(ioThreads, daemon("batch-encode"));
+        Semaphore inFlight = new Semaphore(2 * workers);
+        long startTime = System.nanoTime();
+
+        List<CompletableFuture<Void>> pending = new ArrayList<>(total);
+        try {
+            for (Job job : jobs) {
+                inFlight.acquire();
+                pending.add(CompletableFuture.supplyAsync(() -> decode(job), decodePool)
+                        .thenApplyAsync(this::compress, compressPool)
+                        .thenApplyAsync(this::encode, encodePool)
+                        .handle((result, error) -> {
+                            try {
+                                finish(job, error);
+                            } catch (RuntimeException e) {
+                                // Ringkasan gagal ditulis; job tetap dihitung gagal agar batch selesai
+                                if (error == null) failed.incrementAndGet();
+                                System.err.println("[" + job.input.getPath() + "] GAGAL menulis ringkasan: " + e);
+                            } finally {
+                                inFlight.release(); // Selalu, agar job berikutnya tidak menunggu selamanya
+                            }
+                            return null;
+                        }));
+            }
+            CompletableFuture.allOf(pending.toArray(new CompletableFuture<?>[0])).join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            System.err.println("Batch terputus.");
+            return 1;
+        } finally {
+            decodePool.shutdownNow();
+            compressPool.shutdownNow();
+            encodePool.shutdownNow();
+        }
+
+        double elapsedSec = (System.nanoTime() - startTime) / 1e9;
+        System.err.printf("Selesai: %d berhasil, %d gagal, %.3f detik (%d workers)%n",
+                total - failed.get(), failed.get(), elapsedSec, workers);
+        Instrumentation.writeReport();
+        return (failed.get() == 0) ? 0 : 1;
+    }
+
+    private static ThreadFactory daemon(String name) {
+        AtomicInteger count = new AtomicInteger();
+        return r -> {
+            Thread t = new Thread(r, name + "-" + count.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        };
+    }
+
+    private Job decode(Job job) {
+        long start = System.nanoTime();
+        try {
+            if (!job.input.isFile()) {
+                throw new IOException("File tidak ditemukan: " + job.input);
+            }
+            Dimension size = TiledQuadTreeBuilder.readDimensions(job.input);
+            job.width = size.width;
+            job.height = size.height;
+            if (job.config.tileSize <= 0 && !job.config.offHeap
+                    && (long) size.width * size.height > Compressor.TILED_MODE_MIN_PIXELS) {
+                // Output raster butuh seluruh piksel hasil di memori, jadi hanya format pohon yang di-tile
+                String format = Compressor.formatOf(job.output.getPath());
+                if (!Compressor.isTreeFormat(format)) {
+                    throw new IOException("Gambar " + size.width + "x" + size.height
+                            + " terlalu besar untuk output " + format + ", gunakan output .qtc atau .qtp");
+                }
+                job.config.tileSize = Compressor.DEFAULT_TILE_SIZE;
+            }
+            if (job.config.tileSize > 0) {
+                // Tile dibaca sendiri oleh TiledQuadTreeBuilder di tahap kompresi
+                job.config.createGif = false;
+                job.config.targetCompression = 0;
+            } else {
+                job.image = Compressor.read(job.input);
+                if (job.image == null) {
+                    throw new IOException("Format gambar tidak didukung!");
+                }
+            }
+        } catch (IOException e) {
+            throw new CompletionException(e);
+        }
+        job.decodeNanos = System.nanoTime() - start;
+        return job;
+    }
+
+    private Job compress(Job job) {
+        long start = System.nanoTime();
+        CompressConfig config = job.config;
+        ErrorCalc errorCalc = Compressor.createErrorCalc(config.errorMethod);
+        if (config.ladderThresholds != null && (config.tileSize > 0 || config.targetCompression > 0)) {
+            throw new IllegalArgumentException("Mode ladder tidak bisa digabung dengan target kompresi atau mode tile");
+        }
+        if (config.offHeap && (config.tileSize > 0 || config.createGif || config.ladderThresholds != null)) {
+            throw new IllegalArgumentException("Mode off-heap tidak bisa digabung dengan mode tile, GIF, atau ladder");
+        }
+        try {
+            if (config.tileSize > 0) {
+                job.quadtree = TiledQuadTreeBuilder.build(job.input, config.tileSize, config.threshold,
+                        config.minBlockSize, errorCalc);
+            } else if (config.createGif) {
+                File gifFile = new File(config.gifOutputPath);
+                File gifParentDir = gifFile.getParentFile();
+                if (gifParentDir != null && !gifParentDir.exists()) gifParentDir.mkdirs();
+                try (FileImageOutputStream gifStream = new FileImageOutputStream(gifFile)) {
+                    GifStreamFrameSink gifSink = new GifStreamFrameSink(gifStream, config.gifDelay, 4);
+                    try {
+                        job.quadtree = buildTree(job, errorCalc, gifSink);
+                    } catch (Throwable t) {
+                        gifSink.abort(); // Encoder harus berhenti sebelum gifStream ditutup
+                        throw t;
+                    }
+                    gifSink.close();
+                    job.gifFrames = gifSink.getFramesWritten();
+                }
+                if (job.gifFrames == 0) gifFile.delete();
+            } else if (config.offHeap) {
+                job.quadtree = buildOffHeap(job, errorCalc);
+            } else {
+                job.quadtree = buildTree(job, errorCalc, null);
+            }
+            job.image = null; // Gambar asli tidak dibutuhkan lagi
+            boolean rasterOutput = !Compressor.isTreeFormat(Compressor.formatOf(job.output.getPath()));
+            if (job.ladder != null) {
+                job.ladderImages = new BufferedImage[job.ladder.length];
+                job.ladderRenderNanos = new long[job.ladder.length];
+                for (int i = 0; i < job.ladder.length && rasterOutput; i++) {
+                    long renderStart = System.nanoTime();
+                    job.ladderImages[i] = job.ladder[i].generateCompressedImage();
+                    job.ladderRenderNanos[i] = System.nanoTime() - renderStart;
+                }
+            } else if (rasterOutput) {
+                job.outputImage = job.quadtree.generateCompressedImage();
+            }
+        } catch (IOException e) {
+            throw new CompletionException(e);
+        }
+        job.compressNanos = System.nanoTime() - start;
+        return job;
+    }
+
+    /**
+     * Pohon sesuai config; pada mode ladder semua tingkat disimpan di job.ladder
+     * dan yang dikembalikan adalah tingkat pertama (threshold terkecil).
+     */
+    private static QuadTree buildTree(Job job, ErrorCalc errorCalc, FrameSink frameSink) {
+        if (job.config.ladderThresholds == null) {
+            return Compressor.buildTree(job.image, job.config, errorCalc, frameSink);
+        }
+        job.ladder = Compressor.buildLadder(job.image, job.config, errorCalc, frameSink);
+        return job.ladder[0];
+    }
+
+    /**
+     * Backend off-heap: piksel disalin ke storage milik job dan gambar asli langsung dilepas.
+     * Arena shared karena pohon masih dibaca tahap encode di thread lain; storage
+     * dibebaskan di finish setelah ringkasan selesai dibuat.
+     */
+    private static QuadTree buildOffHeap(Job job, ErrorCalc errorCalc) {
+        job.storage = new OffHeapStorage(true);
+        ImageRaster raster = job.storage.raster(job.image);
+        int type = job.image.getType();
+        ColorModel colorModel = job.image.getColorModel();
+        job.image = null;
+        QuadTree quadtree = Compressor.buildTree(raster, job.config, errorCalc, job.storage::nodeStore);
+        quadtree.setSourceType(type, colorModel);
+        return quadtree;
+    }
+
+    private Job encode(Job job) {
+        long start = System.nanoTime();
+        String format = Compressor.formatOf(job.output.getPath());
+        try {
+            if (job.ladder != null) {
+                job.ladderEncodeNanos = new long[job.ladder.length];
+                for (int i = 0; i < job.ladder.length; i++) {
+                    long encodeStart = System.nanoTime();
+                    File out = new File(Compressor.ladderPath(job.output.getPath(), job.config.ladderThresholds[i]));
+                    Compressor.write(job.ladder[i], job.ladderImages[i], format, out);
+                    job.ladderImages[i] = null;
+                    job.ladderEncodeNanos[i] = System.nanoTime() - encodeStart;
+                }
+            } else {
+                Compressor.write(job.quadtree, job.outputImage, format, job.output);
+            }
+        } catch (IOException e) {
+            throw new CompletionException(e);
+        }
+        job.outputImage = null;
+        job.encodeNanos = System.nanoTime() - start;
+        return job;
+    }
+
+    private void finish(Job job, Throwable error) {
+        while (error instanceof CompletionException && error.getCause() != null) {
+            error = error.getCause();
+        }
+        try {
+            summarize(job, error);
+        } finally {
+            if (job.storage != null) {
+                job.storage.close(); // Piksel, integral image, dan node dibebaskan sekaligus
+                job.storage = null;
+            }
+            job.quadtree = null;
+            job.image = null;
+            job.outputImage = null;
+            job.ladder = null;
+            job.ladderImages = null;
+        }
+    }
+
+    private void summarize(Job job, Throwable error) {
+        StringBuilder sb = new StringBuilder("{");
+        sb.append("\"index\":").append(job.index);
+        sb.append(",\"input\":").append(Json.quote(job.input.getPath()));
+        sb.append(",\"output\":").append(Json.quote(job.output.getPath()));
+        if (error != null) {
+            failed.incrementAndGet();
+            String message = (error.getMessage() != null) ? error.getMessage() : error.toString();
+            sb.append(",\"status\":\"error\",\"error\":").append(Json.quote(message));
+        } else {
+            CompressConfig config = job.config;
+            long inputBytes = job.input.length();
+            long outputBytes = job.output.length();
+            sb.append(",\"status\":\"ok\"");
+            sb.append(",\"width\":").append(job.width);
+            sb.append(",\"height\":").append(job.height);
+            sb.append(",\"method\":").append(config.errorMethod);
+            if (job.ladder == null) {
+                sb.append(",\"threshold\":").append(Json.number(config.threshold));
+            }
+            sb.append(",\"minBlock\":").append(config.minBlockSize);
+            sb.append(",\"target\":").append(Json.number(config.targetCompression));
+            sb.append(",\"tiled\":").append(config.tileSize > 0);
+            sb.append(",\"decodeMs\":").append(Json.number(job.decodeNanos / 1e6));
+            sb.append(",\"compressMs\":").append(Json.number(job.compressNanos / 1e6));
+            sb.append(",\"encodeMs\":").append(Json.number(job.encodeNanos / 1e6));
+            sb.append(",\"inputBytes\":").append(inputBytes);
+            if (job.ladder != null) {
+                appendLadder(sb, job, inputBytes);
+            } else {
+                sb.append(",\"leaves\":").append(job.quadtree.countLeaves());
+                sb.append(",\"depth\":").append(job.quadtree.getTreeDepth());
+                sb.append(",\"outputBytes\":").append(outputBytes);
+                sb.append(",\"compressionPercent\":").append(Json.number((1.0 - (double) outputBytes / inputBytes) * 100.0));
+            }
+            if (config.createGif) {
+                sb.append(",\"gif\":").append(Json.quote(config.gifOutputPath));
+                sb.append(",\"gifFrames\":").append(job.gifFrames);
+            }
+            if (job.storage != null) {
+                sb.append(",\"offHeapBytes\":").append(job.storage.getAllocatedBytes());
+            }
+        }
+        sb.append('}');
+        int n = done.incrementAndGet();
+        synchronized (summary) {
+            summary.println(sb);
+        }
+        System.err.println("[" + n + "/" + total + "] " + job.input.getPath()
+                + (error == null ? " -> " + job.output.getPath() : " GAGAL: " + error.getMessage()));
+    }
+
+    /**
+     * Satu objek per tingkat ladder: file output, jumlah daun, kedalaman, waktu render/encode, dan ukuran.
+     */
+    private static void appendLadder(StringBuilder sb, Job job, long inputBytes) {
+        sb.append(",\"ladder\":[");
+        for (int i = 0; i < job.ladder.length; i++) {
+            double threshold = job.config.ladderThresholds[i];
+            File out = new File(Compressor.ladderPath(job.output.getPath(), threshold));
+            long outputBytes = out.length();
+            if (i > 0) sb.append(',');
+            sb.append("{\"threshold\":").append(Json.number(threshold));
+            sb.append(",\"output\":").append(Json.quote(out.getPath()));
+            sb.append(",\"leaves\":").append(job.ladder[i].countLeaves());
+            sb.append(",\"depth\":").append(job.ladder[i].getTreeDepth());
+            sb.append(",\"renderMs\":").append(Json.number(job.ladderRenderNanos[i] / 1e6));
+            sb.append(",\"encodeMs\":").append(Json.number(job.ladderEncodeNanos[i] / 1e6));
+            sb.append(",\"outputBytes\":").append(outputBytes);
+            sb.append(",\"compressionPercent\":").append(Json.number((1.0 - (double) outputBytes / inputBytes) * 100.0));
+            sb.append('}');
+        }
+        sb.append(']');
+    }
+}
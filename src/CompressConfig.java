@@ -1,3 +1,5 @@
+import java.util.Arrays;
+
 public class CompressConfig {
     // Input/output paths
     public String inputImagePath = "";
@@ -9,10 +11,121 @@ public class CompressConfig {
     public double threshold = 10.0;
     public int minBlockSize = 4;
     public double targetCompression = 0.0;
+
+    // Mode ladder: satu pembangunan, satu output per threshold (null = nonaktif)
+    public double[] ladderThresholds = null;
+
+    // Pembangunan paralel (hanya dipakai jika GIF tidak dibuat)
+    public int parallelism = Runtime.getRuntime().availableProcessors();
+    public int parallelCutoff = 64 * 64; // luas blok (piksel) minimum untuk task fork-join
+
+    // Mode tile untuk gambar yang lebih besar dari heap (0 = nonaktif / otomatis)
+    public int tileSize = 0;
+
+    // Piksel, integral image, dan node disimpan off-heap (OffHeapStorage), hanya di mode batch
+    public boolean offHeap = false;
     
     // GIF creation parameters
     public boolean createGif = true;
     public int gifDelay = 500;  // delay in ms
     public int maxGifFrames = 100;
     public int gifFrameSkip = 1;
+
+    public CompressConfig copy() {
+        CompressConfig copy = new CompressConfig();
+        copy.inputImagePath = inputImagePath;
+        copy.outputImagePath = outputImagePath;
+        copy.gifOutputPath = gifOutputPath;
+        copy.errorMethod = errorMethod;
+        copy.threshold = threshold;
+        copy.minBlockSize = minBlockSize;
+        copy.targetCompression = targetCompression;
+        copy.ladderThresholds = (ladderThresholds == null) ? null : ladderThresholds.clone();
+        copy.parallelism = parallelism;
+        copy.parallelCutoff = parallelCutoff;
+        copy.tileSize = tileSize;
+        copy.offHeap = offHeap;
+        copy.createGif = createGif;
+        copy.gifDelay = gifDelay;
+        copy.maxGifFrames = maxGifFrames;
+        copy.gifFrameSkip = gifFrameSkip;
+        return copy;
+    }
+
+    /**
+     * Mengisi satu parameter kompresi dari pasangan kunci=nilai (argumen command line,
+     * manifest batch, atau parameter HTTP). Melempar IllegalArgumentException jika
+     * kunci tidak dikenal atau nilainya tidak valid.
+     */
+    public void set(String key, String value) {
+        try {
+            switch (key) {
+                case "method" -> errorMethod = Integer.parseInt(value);
+                case "threshold" -> threshold = Double.parseDouble(value);
+                case "min-block" -> minBlockSize = Integer.parseInt(value);
+                case "target" -> targetCompression = Double.parseDouble(value);
+                case "ladder" -> ladderThresholds = parseThresholds(value);
+                case "parallelism" -> parallelism = Integer.parseInt(value);
+                case "parallel-cutoff" -> parallelCutoff = Integer.parseInt(value);
+                case "tile-size" -> tileSize = Integer.parseInt(value);
+                case "offheap" -> offHeap = parseBoolean(value);
+                case "gif-delay" -> gifDelay = Integer.parseInt(value);
+                case "gif-frames" -> maxGifFrames = Integer.parseInt(value);
+                case "gif-skip" -> gifFrameSkip = Integer.parseInt(value);
+                default -> throw new IllegalArgumentException("Parameter tidak dikenal: " + key);
+            }
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Nilai tidak valid untuk " + key + ": " + value);
+        }
+        if (errorMethod < 1 || errorMethod > 5) {
+            throw new IllegalArgumentException("Metode error harus 1-5: " + errorMethod);
+        }
+        if (minBlockSize < 1) {
+            throw new IllegalArgumentException("Ukuran blok minimum harus >= 1: " + minBlockSize);
+        }
+        if (targetCompression < 0 || targetCompression >= 1) {
+            throw new IllegalArgumentException("Target kompresi harus dalam [0, 1): " + targetCompression);
+        }
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("Parallelism harus >= 1: " + parallelism);
+        }
+        if (parallelCutoff < 1) {
+            throw new IllegalArgumentException("parallel-cutoff harus >= 1: " + parallelCutoff);
+        }
+        if (tileSize < 0) {
+            throw new IllegalArgumentException("tile-size harus >= 0 (0 = otomatis): " + tileSize);
+        }
+        if (gifDelay < 0) {
+            throw new IllegalArgumentException("gif-delay harus >= 0: " + gifDelay);
+        }
+        if (maxGifFrames < 1) {
+            throw new IllegalArgumentException("gif-frames harus >= 1: " + maxGifFrames);
+        }
+        if (gifFrameSkip < 1) {
+            throw new IllegalArgumentException("gif-skip harus >= 1: " + gifFrameSkip);
+        }
+    }
+
+    private static boolean parseBoolean(String value) {
+        return switch (value) {
+            case "true" -> true;
+            case "false" -> false;
+            default -> throw new NumberFormatException(value);
+        };
+    }
+
+    /**
+     * Daftar threshold dipisah koma, mis. "10,25,50", diurutkan naik tanpa duplikat.
+     */
+    private static double[] parseThresholds(String value) {
+        String[] parts = value.split(",");
+        double[] thresholds = new double[parts.length];
+        for (int i = 0; i < parts.length; i++) {
+            thresholds[i] = Double.parseDouble(parts[i].strip());
+            if (!(thresholds[i] >= 0) || Double.isInfinite(thresholds[i])) {
+                throw new IllegalArgumentException("Threshold ladder harus >= 0: " + parts[i]);
+            }
+        }
+        return Arrays.stream(thresholds).sorted().distinct().toArray();
+    }
 }
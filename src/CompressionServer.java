@@ -0,0 +1,382 @@
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.MemoryCacheImageOutputStream;
+
+/**
+ * Layanan HTTP kompresi yang berjalan terus, sehingga JIT tetap panas antar gambar.
+ * Setiap request ditangani virtual thread; jumlah kompresi yang berjalan bersamaan dibatasi
+ * semaphore (request lain menunggu paling lama queueTimeoutMs lalu ditolak dengan 503).
+ * Body baru dibaca setelah izin didapat, dibatasi maxBodyBytes, dan ukuran gambar diperiksa
+ * dari header sebelum didekode, sehingga memori puncak kira-kira maxConcurrent x
+ * (maxBodyBytes + piksel maxPixels).
+ *
+ * <pre>
+ *   POST /compress?method=1&amp;threshold=50&amp;min-block=2&amp;format=png[&amp;return=image|gif|stats]
+ *        body: file gambar; parameter lain sama dengan kunci CompressConfig.set, kecuali
+ *        parallelism, parallel-cutoff, dan tile-size yang ditetapkan server (400 jika dikirim)
+ *   GET  /health
+ * </pre>
+ */
+public class CompressionServer {
+    private static final int GIF_QUEUE_CAPACITY = 4;
+    private static final int MAX_GIF_FRAMES = 200;
+
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final Semaphore permits;
+    private final int maxConcurrent;
+    private final long maxBodyBytes;
+    private final long maxPixels;
+    private final long queueTimeoutMs;
+
+    private final AtomicLong served = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+
+    /**
+     * Status HTTP beserta pesan untuk request yang tidak bisa diproses.
+     */
+    private static final class HttpError extends Exception {
+        private static final long serialVersionUID = 1L;
+
+        final int status;
+
+        HttpError(int status, String message) {
+            super(message);
+            this.status = status;
+        }
+    }
+
+    public CompressionServer(InetSocketAddress address, int maxConcurrent, long maxBodyBytes, long maxPixels,
+                             long queueTimeoutMs) throws IOException {
+        this.maxConcurrent = maxConcurrent;
+        this.maxBodyBytes = maxBodyBytes;
+        this.maxPixels = maxPixels;
+        this.queueTimeoutMs = queueTimeoutMs;
+        this.permits = new Semaphore(maxConcurrent, true);
+        this.executor = Executors.newVirtualThreadPerTaskExecutor();
+        this.server = HttpServer.create(address, 0);
+        this.server.setExecutor(executor);
+        this.server.createContext("/compress", this::handleCompress);
+        this.server.createContext("/health", this::handleHealth);
+        this.server.createContext("/metrics", this::handleMetrics);
+    }
+
+    public void start() {
+        server.start();
+    }
+
+    public void stop() {
+        server.stop(1);
+        executor.shutdown();
+    }
+
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    public static void main(String[] args) throws IOException {
+        String host = "127.0.0.1";
+        int port = 8080;
+        int maxConcurrent = Runtime.getRuntime().availableProcessors();
+        long maxBodyMb = 32;
+        long maxPixels = 16_000_000L;
+        long queueTimeoutMs = 30_000;
+        try {
+            for (int i = 0; i + 1 < args.length; i += 2) {
+                String value = args[i + 1];
+                switch (args[i]) {
+                    case "--host" -> host = value;
+                    case "--port" -> port = Integer.parseInt(value);
+                    case "--max-concurrent" -> maxConcurrent = Integer.parseInt(value);
+                    case "--max-body-mb" -> maxBodyMb = Long.parseLong(value);
+                    case "--max-pixels" -> maxPixels = Long.parseLong(value);
+                    case "--queue-timeout-ms" -> queueTimeoutMs = Long.parseLong(value);
+                    default -> throw new IllegalArgumentException("Argumen tidak dikenal: " + args[i]);
+                }
+            }
+            if (args.length % 2 != 0) {
+                throw new IllegalArgumentException("Argumen tanpa nilai: " + args[args.length - 1]);
+            }
+            if (maxConcurrent < 1) {
+                throw new IllegalArgumentException("--max-concurrent harus >= 1");
+            }
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.err.println("Penggunaan: java CompressionServer [--host h] [--port p] [--max-concurrent n]"
+                    + " [--max-body-mb m] [--max-pixels n] [--queue-timeout-ms t]");
+            System.exit(2);
+            return;
+        }
+
+        CompressionServer server = new CompressionServer(new InetSocketAddress(host, port), maxConcurrent,
+                maxBodyMb * 1024 * 1024, maxPixels, queueTimeoutMs);
+        Runtime.getRuntime().addShutdownHook(new Thread(server::stop));
+        server.start();
+        System.out.println("Layanan kompresi berjalan di http://" + host + ":" + server.getPort()
+                + "/compress (maks " + maxConcurrent + " kompresi bersamaan)");
+    }
+
+    private void handleHealth(HttpExchange exchange) throws IOException {
+        String body = "{\"status\":\"ok\",\"active\":" + (maxConcurrent - permits.availablePermits())
+                + ",\"maxConcurrent\":" + maxConcurrent
+                + ",\"served\":" + served.get()
+                + ",\"rejected\":" + rejected.get()
+                + ",\"failed\":" + failed.get() + "}";
+        send(exchange, 200, "application/json", body.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Laporan instrumentasi kumulatif (kosong kecuali server dijalankan dengan -Dquadtree.instrument=true).
+     */
+    private void handleMetrics(HttpExchange exchange) throws IOException {
+        send(exchange, 200, "application/json", Instrumentation.toJson().getBytes(StandardCharsets.UTF_8));
+    }
+
+    private void handleCompress(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            if (!exchange.getRequestMethod().equals("POST")) {
+                exchange.getResponseHeaders().set("Allow", "POST");
+                sendError(exchange, new HttpError(405, "Gunakan POST dengan body berisi gambar"));
+                return;
+            }
+            long contentLength = parseContentLength(exchange);
+            if (contentLength > maxBodyBytes) {
+                rejected.incrementAndGet();
+                sendError(exchange, new HttpError(413, "Body melebihi " + maxBodyBytes + " bytes"));
+                return;
+            }
+
+            boolean acquired;
+            try {
+                acquired = permits.tryAcquire(queueTimeoutMs, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            if (!acquired) {
+                rejected.incrementAndGet();
+                discard(exchange.getRequestBody()); // Agar koneksi keep-alive tetap bisa dipakai klien
+                exchange.getResponseHeaders().set("Retry-After", "1");
+                sendError(exchange, new HttpError(503, "Server sibuk, coba lagi"));
+                return;
+            }
+            try {
+                compress(exchange);
+                served.incrementAndGet();
+            } catch (HttpError e) {
+                if (e.status == 413) rejected.incrementAndGet(); else failed.incrementAndGet();
+                sendError(exchange, e);
+            } catch (OutOfMemoryError e) {
+                failed.incrementAndGet();
+                sendError(exchange, new HttpError(503, "Out of memory saat memproses gambar"));
+            } catch (RuntimeException e) {
+                failed.incrementAndGet();
+                sendError(exchange, new HttpError(500, "Gagal memproses gambar: " + e));
+            } finally {
+                permits.release();
+            }
+        }
+    }
+
+    private void compress(HttpExchange exchange) throws IOException, HttpError {
+        long startTime = System.nanoTime();
+        CompressConfig config = new CompressConfig();
+        config.parallelism = 1; // Paralelisme datang dari request yang berjalan bersamaan
+        config.createGif = false;
+        String format = "png";
+        String returnType = "image";
+        String query = exchange.getRequestURI().getRawQuery();
+        try {
+            if (query != null && !query.isEmpty()) {
+                for (String pair : query.split("&")) {
+                    int eq = pair.indexOf('=');
+                    String key = URLDecoder.decode(eq < 0 ? pair : pair.substring(0, eq), StandardCharsets.UTF_8);
+                    String value = URLDecoder.decode(eq < 0 ? "" : pair.substring(eq + 1), StandardCharsets.UTF_8);
+                    switch (key) {
+                        case "format" -> format = value.toLowerCase();
+                        case "return" -> returnType = value;
+                        // Ditetapkan server: paralelisme sudah dibatasi semaphore, bukan oleh klien
+                        case "parallelism", "parallel-cutoff", "tile-size" ->
+                                throw new HttpError(400, key + " diatur oleh server, tidak bisa diubah per request");
+                        default -> config.set(key, value);
+                    }
+                }
+            }
+        } catch (IllegalArgumentException e) {
+            throw new HttpError(400, e.getMessage());
+        }
+        if (config.ladderThresholds != null) {
+            throw new HttpError(400, "ladder hanya tersedia di mode batch");
+        }
+        if (config.offHeap) {
+            throw new HttpError(400, "offheap hanya tersedia di mode batch");
+        }
+        if (!returnType.equals("image") && !returnType.equals("gif") && !returnType.equals("stats")) {
+            throw new HttpError(400, "return harus image, gif, atau stats");
+        }
+        if (!Compressor.isTreeFormat(format) && !ImageIO.getImageWritersByFormatName(format).hasNext()) {
+            throw new HttpError(400, "Format output tidak didukung: " + format);
+        }
+        config.createGif = returnType.equals("gif");
+        config.maxGifFrames = Math.min(config.maxGifFrames, MAX_GIF_FRAMES);
+
+        byte[] body = readBody(exchange.getRequestBody());
+        BufferedImage image = decode(body);
+        body = null;
+        ErrorCalc errorCalc = Compressor.createErrorCalc(config.errorMethod);
+
+        ByteArrayOutputStream gifBytes = null;
+        QuadTree quadtree;
+        if (config.createGif) {
+            gifBytes = new ByteArrayOutputStream();
+            try (MemoryCacheImageOutputStream gifStream = new MemoryCacheImageOutputStream(gifBytes)) {
+                GifStreamFrameSink gifSink = new GifStreamFrameSink(gifStream, config.gifDelay, GIF_QUEUE_CAPACITY);
+                try {
+                    quadtree = Compressor.buildTree(image, config, errorCalc, gifSink);
+                } catch (Throwable t) {
+                    gifSink.abort(); // Encoder harus berhenti sebelum gifStream ditutup
+                    throw t;
+                }
+                gifSink.close();
+            }
+        } else {
+            quadtree = Compressor.buildTree(image, config, errorCalc, null);
+        }
+        image = null;
+
+        byte[] output = null;
+        if (!returnType.equals("gif")) {
+            BufferedImage outputImage = Compressor.isTreeFormat(format) ? null : quadtree.generateCompressedImage();
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            Compressor.write(quadtree, outputImage, format, out);
+            output = out.toByteArray();
+        }
+        double elapsedMs = (System.nanoTime() - startTime) / 1e6;
+
+        var headers = exchange.getResponseHeaders();
+        headers.set("X-Quadtree-Leaves", Integer.toString(quadtree.countLeaves()));
+        headers.set("X-Quadtree-Depth", Integer.toString(quadtree.getTreeDepth()));
+        headers.set("X-Quadtree-Time-Ms", String.format("%.3f", elapsedMs));
+        switch (returnType) {
+            case "gif" -> send(exchange, 200, "image/gif", gifBytes.toByteArray());
+            case "stats" -> {
+                String json = "{\"width\":" + quadtree.getWidth()
+                        + ",\"height\":" + quadtree.getHeight()
+                        + ",\"leaves\":" + quadtree.countLeaves()
+                        + ",\"depth\":" + quadtree.getTreeDepth()
+                        + ",\"outputBytes\":" + output.length
+                        + ",\"timeMs\":" + Json.number(elapsedMs) + "}";
+                send(exchange, 200, "application/json", json.getBytes(StandardCharsets.UTF_8));
+            }
+            default -> send(exchange, 200, contentType(format), output);
+        }
+    }
+
+    private static long parseContentLength(HttpExchange exchange) throws IOException {
+        String header = exchange.getRequestHeaders().getFirst("Content-Length");
+        if (header == null) return -1; // Chunked: dibatasi saat dibaca
+        try {
+            return Long.parseLong(header.trim());
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private byte[] readBody(InputStream in) throws IOException, HttpError {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[64 * 1024];
+        long total = 0;
+        int n;
+        while ((n = in.read(buffer)) > 0) {
+            total += n;
+            if (total > maxBodyBytes) {
+                throw new HttpError(413, "Body melebihi " + maxBodyBytes + " bytes");
+            }
+            out.write(buffer, 0, n);
+        }
+        if (total == 0) {
+            throw new HttpError(400, "Body kosong, kirim file gambar");
+        }
+        return out.toByteArray();
+    }
+
+    private void discard(InputStream in) throws IOException {
+        byte[] buffer = new byte[64 * 1024];
+        long total = 0;
+        int n;
+        while (total <= maxBodyBytes && (n = in.read(buffer)) > 0) {
+            total += n;
+        }
+    }
+
+    /**
+     * Mendekode gambar setelah memeriksa ukurannya dari header, agar gambar kecil
+     * yang berukuran piksel sangat besar tidak menghabiskan heap.
+     */
+    @SuppressWarnings("try")
+    private BufferedImage decode(byte[] body) throws IOException, HttpError {
+        try (ImageInputStream iis = ImageIO.createImageInputStream(new ByteArrayInputStream(body))) {
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(iis);
+            if (!readers.hasNext()) {
+                throw new HttpError(415, "Format gambar tidak didukung!");
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(iis, true, true);
+                long pixels = (long) reader.getWidth(0) * reader.getHeight(0);
+                if (pixels > maxPixels) {
+                    throw new HttpError(413, "Gambar " + pixels + " piksel melebihi batas " + maxPixels);
+                }
+                try (Instrumentation.Span span = Instrumentation.begin(Instrumentation.Phase.DECODE)) {
+                    return reader.read(0);
+                }
+            } catch (IOException e) {
+                throw new HttpError(415, "Gambar tidak dapat dibaca: " + e.getMessage());
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    private static String contentType(String format) {
+        return switch (format) {
+            case "png" -> "image/png";
+            case "jpg", "jpeg" -> "image/jpeg";
+            case "bmp" -> "image/bmp";
+            case "gif" -> "image/gif";
+            default -> "application/octet-stream";
+        };
+    }
+
+    private static void sendError(HttpExchange exchange, HttpError error) throws IOException {
+        String json = "{\"error\":" + Json.quote(error.getMessage()) + "}";
+        send(exchange, error.status, "application/json", json.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static void send(HttpExchange exchange, int status, String contentType, byte[] body) throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", contentType);
+        exchange.sendResponseHeaders(status, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+}
@@ -0,0 +1,181 @@
+import java.awt.image.BufferedImage;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.function.IntFunction;
+import javax.imageio.ImageIO;
+
+/**
+ * Langkah-langkah kompresi yang dipakai bersama oleh mode interaktif (Main),
+ * mode batch, dan layanan HTTP: memilih ErrorCalc, membangun pohon sesuai
+ * CompressConfig, dan menulis hasil sesuai format output.
+ */
+public class Compressor {
+    // Gambar di atas ukuran ini otomatis diproses per tile
+    public static final long TILED_MODE_MIN_PIXELS = 64_000_000L;
+    public static final int DEFAULT_TILE_SIZE = 2048;
+
+    private Compressor() {
+    }
+
+    /**
+     * ErrorCalc untuk nomor metode 1-5 (urutan menu Main), atau null jika tidak dikenal.
+     */
+    public static ErrorCalc createErrorCalc(int method) {
+        return switch (method) {
+            case 1 -> new VarErrorCalc();
+            case 2 -> new MADErrorCalc();
+            case 3 -> new PixelDiffErrorCalc();
+            case 4 -> new EntropyErrorCalc();
+            case 5 -> new SSIMErrorCalc();
+            default -> null;
+        };
+    }
+
+    /**
+     * Membaca file gambar (diukur sebagai fase decode); null jika formatnya tidak didukung.
+     */
+    @SuppressWarnings("try")
+    public static BufferedImage read(File file) throws IOException {
+        try (Instrumentation.Span span = Instrumentation.begin(Instrumentation.Phase.DECODE)) {
+            return ImageIO.read(file);
+        }
+    }
+
+    /**
+     * Batas jumlah daun untuk target kompresi (rasio = 1 - daun/piksel).
+     */
+    public static int leafBudget(long totalPixels, double targetCompression) {
+        return (int) Math.max(1, Math.round((1.0 - targetCompression) * totalPixels));
+    }
+
+    /**
+     * Membangun pohon in-memory sesuai config: best-first dengan batas daun jika target
+     * kompresi aktif, selain itu dengan threshold. Frame GIF dikirim ke frameSink jika tidak null.
+     */
+    public static QuadTree buildTree(BufferedImage image, CompressConfig config, ErrorCalc errorCalc,
+                                     FrameSink frameSink) {
+        QuadTree quadtree = new QuadTree(image, config.threshold, config.minBlockSize, errorCalc,
+                frameSink != null, config.maxGifFrames, config.gifFrameSkip);
+        quadtree.setParallelism(config.parallelism, config.parallelCutoff);
+        if (frameSink != null) {
+            quadtree.setFrameSink(frameSink);
+        }
+        if (config.targetCompression > 0) {
+            long totalPixels = (long) image.getWidth() * image.getHeight();
+            quadtree.buildTreeWithLeafBudget(leafBudget(totalPixels, config.targetCompression));
+        } else {
+            quadtree.buildTree();
+        }
+        return quadtree;
+    }
+
+    /**
+     * Seperti buildTree, tetapi dari raster yang sudah ada (tanpa GIF) dan node pohon hasil
+     * disimpan di store dari nodeStoreFactory, mis. raster dan store milik OffHeapStorage.
+     */
+    public static QuadTree buildTree(ImageRaster raster, CompressConfig config, ErrorCalc errorCalc,
+                                     IntFunction<QuadTreeNodeStore> nodeStoreFactory) {
+        QuadTree quadtree = new QuadTree(raster, config.threshold, config.minBlockSize, errorCalc);
+        quadtree.setParallelism(config.parallelism, config.parallelCutoff);
+        quadtree.setNodeStoreFactory(nodeStoreFactory);
+        if (config.targetCompression > 0) {
+            long totalPixels = (long) raster.getWidth() * raster.getHeight();
+            quadtree.buildTreeWithLeafBudget(leafBudget(totalPixels, config.targetCompression));
+        } else {
+            quadtree.buildTree();
+        }
+        return quadtree;
+    }
+
+    /**
+     * Mode ladder: pohon dibangun sekali pada threshold terkecil tanpa early exit (error node
+     * internal eksak), lalu dipotong untuk setiap threshold di config.ladderThresholds.
+     * Elemen ke-i hasilnya = pohon untuk ladderThresholds[i], sama dengan membangun ulang pada threshold itu.
+     */
+    public static QuadTree[] buildLadder(BufferedImage image, CompressConfig config, ErrorCalc errorCalc,
+                                         FrameSink frameSink) {
+        double[] thresholds = config.ladderThresholds;
+        if (config.targetCompression > 0 || config.tileSize > 0) {
+            throw new IllegalArgumentException("Mode ladder tidak bisa digabung dengan target kompresi atau mode tile");
+        }
+        QuadTree quadtree = new QuadTree(image, thresholds[0], config.minBlockSize, errorCalc,
+                frameSink != null, config.maxGifFrames, config.gifFrameSkip);
+        quadtree.setParallelism(config.parallelism, config.parallelCutoff);
+        quadtree.setEarlyExit(false);
+        if (frameSink != null) {
+            quadtree.setFrameSink(frameSink);
+        }
+        quadtree.buildTree();
+        QuadTree[] ladder = new QuadTree[thresholds.length];
+        for (int i = 0; i < thresholds.length; i++) {
+            ladder[i] = quadtree.cut(thresholds[i]);
+        }
+        return ladder;
+    }
+
+    /**
+     * Path output satu tingkat ladder: threshold disisipkan sebelum ekstensi,
+     * mis. hasil/lenna.png dengan threshold 25 menjadi hasil/lenna_t25.png.
+     */
+    public static String ladderPath(String outputPath, double threshold) {
+        File file = new File(outputPath);
+        String name = file.getName();
+        int dot = name.lastIndexOf('.');
+        String suffix = "_t" + Json.number(threshold);
+        String ladderName = (dot <= 0) ? name + suffix : name.substring(0, dot) + suffix + name.substring(dot);
+        return new File(file.getParentFile(), ladderName).getPath();
+    }
+
+    /**
+     * Format output dari ekstensi path (tanpa titik), "jpg" jika tidak ada ekstensi.
+     */
+    public static String formatOf(String path) {
+        String name = new File(path).getName();
+        int dot = name.lastIndexOf('.');
+        String extension = (dot < 0) ? "" : name.substring(dot + 1);
+        return extension.isEmpty() ? "jpg" : extension.toLowerCase();
+    }
+
+    /**
+     * Format .qtc/.qtp menyimpan struktur pohon, sehingga tidak memerlukan raster hasil.
+     */
+    public static boolean isTreeFormat(String format) {
+        return format.equalsIgnoreCase("qtc") || format.equalsIgnoreCase("qtp");
+    }
+
+    public static void write(QuadTree quadtree, BufferedImage outputImage, String format, File file) throws IOException {
+        if (!isTreeFormat(format) && !ImageIO.getImageWritersByFormatName(format).hasNext()) {
+            throw new IOException("Format output tidak didukung: " + format); // Sebelum file dibuat
+        }
+        File parentDir = file.getParentFile();
+        if (parentDir != null && !parentDir.exists()) {
+            parentDir.mkdirs();
+        }
+        try (OutputStream out = new BufferedOutputStream(new FileOutputStream(file))) {
+            write(quadtree, outputImage, format, out);
+        }
+    }
+
+    /**
+     * Menulis hasil kompresi ke out: struktur pohon untuk qtc/qtp, selain itu
+     * outputImage di-encode lewat ImageIO. Stream tidak ditutup.
+     */
+    @SuppressWarnings("try")
+    public static void write(QuadTree quadtree, BufferedImage outputImage, String format, OutputStream out) throws IOException {
+        try (Instrumentation.Span span = Instrumentation.begin(Instrumentation.Phase.ENCODE)) {
+            if (format.equalsIgnoreCase("qtc")) {
+                // Format native: simpan struktur pohon, bukan raster
+                QtcWriter.write(quadtree, out);
+            } else if (format.equalsIgnoreCase("qtp")) {
+                // Format progresif: breadth-first, prefix mana pun bisa dirender
+                ProgressiveQtcWriter.write(quadtree, out);
+            } else if (!ImageIO.write(outputImage, format, out)) {
+                throw new IOException("Format output tidak didukung: " + format);
+            }
+            out.flush();
+        }
+    }
+}
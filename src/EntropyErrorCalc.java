@@ -1,40 +1,131 @@
-import java.awt.Color;
-import java.awt.image.BufferedImage;
+import java.util.concurrent.atomic.LongAdder;
 
 public class EntropyErrorCalc implements ErrorCalc {
+    private static final LongAdder PIXELS_TOUCHED = Instrumentation.pixelCounter("EntropyErrorCalc");
+    // c * log2(c) untuk c kecil, agar entropi tidak memanggil Math.log per bin
+    private static final int TABLE_SIZE = 1 << 16;
+    private static final double[] C_LOG2_C = new double[TABLE_SIZE];
+    private static final double LN2 = Math.log(2);
+    // Histogram sementara untuk blok kecil; selalu dikembalikan ke nol setelah dipakai
+    private static final ThreadLocal<int[]> SCRATCH = ThreadLocal.withInitial(() -> new int[HistogramPyramid.BINS]);
+
+    static {
+        for (int c = 1; c < TABLE_SIZE; c++) {
+            C_LOG2_C[c] = c * (Math.log(c) / LN2);
+        }
+    }
+
     @Override
-    public double computeError(BufferedImage image, int x, int y, int width, int height, Color avgColor) {
-        int[] uniquePxCountR = new int[256];
-        int[] uniquePxCountG = new int[256];
-        int[] uniquePxCountB = new int[256];
+    public double computeError(int[] pixels, int stride, int x, int y, int width, int height, int avgR, int avgG, int avgB) {
         int count = width*height;
+        if (count <= 0) return 0.0;
+        if (count <= HistogramPyramid.CUTOFF) {
+            return smallBlockEntropy(pixels, stride, x, y, width, height);
+        }
 
-        for (int i=x; i<x+width; i++) {
-            for (int j=y; j<y+height; j++) {
-                Color c = new Color(image.getRGB(i, j));
-                uniquePxCountR[c.getRed()]++;
-                uniquePxCountG[c.getGreen()]++;
-                uniquePxCountB[c.getBlue()]++;
+        if (Instrumentation.ENABLED) PIXELS_TOUCHED.add(count);
+        int[] hist = new int[HistogramPyramid.BINS];
+        for (int j=y; j<y+height; j++) {
+            int row = j * stride;
+            for (int i=x; i<x+width; i++) {
+                int rgb = pixels[row + i];
+                hist[(rgb >> 16) & 0xFF]++;
+                hist[256 + ((rgb >> 8) & 0xFF)]++;
+                hist[512 + (rgb & 0xFF)]++;
             }
         }
 
-        double hR=0, hG=0, hB=0;
+        return entropy(hist, 0, count);
+    }
 
-        for (int i=0; i<256; i++) {
-            if (uniquePxCountR[i]>0) {
-                double pR = uniquePxCountR[i]/count;
-                hR -= pR * (Math.log(pR)/Math.log(2));
+    @Override
+    public double computeError(ImageRaster raster, int x, int y, int width, int height, int avgR, int avgG, int avgB) {
+        int count = width * height;
+        if (count <= 0) return 0.0;
+
+        if (count <= HistogramPyramid.CUTOFF) {
+            int[] pixels = raster.getPixels();
+            if (pixels == null) {
+                // Piksel di luar heap: blok kecil disalin ke scratch
+                int[] block = ImageRaster.scratch(count);
+                raster.copyBlock(x, y, width, height, block);
+                return smallBlockEntropy(block, width, 0, 0, width, height);
             }
-            if (uniquePxCountG[i]>0) {
-                double pG = uniquePxCountG[i]/count;
-                hG -= pG * (Math.log(pG)/Math.log(2));
+            return smallBlockEntropy(pixels, raster.getWidth(), x, y, width, height);
+        }
+
+        // Blok besar: histogram sudah ada di piramida, tidak perlu memindai piksel
+        HistogramPyramid pyramid = raster.histograms();
+        int offset = pyramid.find(x, y, width, height);
+        if (offset >= 0) {
+            return entropy(pyramid.getCounts(), offset, count);
+        }
+        if (Instrumentation.ENABLED) PIXELS_TOUCHED.add(count);
+        int[] hist = new int[HistogramPyramid.BINS];
+        pyramid.scan(hist, 0, x, y, width, height);
+        return entropy(hist, 0, count);
+    }
+
+    /**
+     * Entropi blok kecil: hanya bin yang terisi yang dikunjungi (lewat pikselnya, bukan
+     * lewat 768 bin), dan histogram scratch per thread dikosongkan kembali sambil jalan.
+     */
+    private static double smallBlockEntropy(int[] pixels, int stride, int x, int y, int width, int height) {
+        if (Instrumentation.ENABLED) PIXELS_TOUCHED.add((long) width * height);
+        int[] hist = SCRATCH.get();
+        for (int j=y; j<y+height; j++) {
+            int row = j * stride;
+            for (int i=x; i<x+width; i++) {
+                int rgb = pixels[row + i];
+                hist[(rgb >> 16) & 0xFF]++;
+                hist[256 + ((rgb >> 8) & 0xFF)]++;
+                hist[512 + (rgb & 0xFF)]++;
             }
-            if (uniquePxCountB[i]>0) {
-                double pB = uniquePxCountB[i]/count;
-                hB -= pB * (Math.log(pB)/Math.log(2));
+        }
+
+        double sumR = 0, sumG = 0, sumB = 0;
+        for (int j=y; j<y+height; j++) {
+            int row = j * stride;
+            for (int i=x; i<x+width; i++) {
+                int rgb = pixels[row + i];
+                int r = (rgb >> 16) & 0xFF;
+                int g = 256 + ((rgb >> 8) & 0xFF);
+                int b = 512 + (rgb & 0xFF);
+                if (hist[r] != 0) { sumR += cLog2c(hist[r]); hist[r] = 0; }
+                if (hist[g] != 0) { sumG += cLog2c(hist[g]); hist[g] = 0; }
+                if (hist[b] != 0) { sumB += cLog2c(hist[b]); hist[b] = 0; }
             }
         }
+        int count = width * height;
+        return (fromSum(sumR, count) + fromSum(sumG, count) + fromSum(sumB, count)) / 3;
+    }
 
+    /**
+     * Rata-rata entropi (bit) ketiga kanal dari histogram R, G, B berurutan mulai offset.
+     */
+    static double entropy(int[] hist, int offset, int count) {
+        if (count <= 0) return 0.0;
+        double hR = channelEntropy(hist, offset, count);
+        double hG = channelEntropy(hist, offset + 256, count);
+        double hB = channelEntropy(hist, offset + 512, count);
         return (hR+hG+hB) / 3;
     }
+
+    // -sum(p log2 p) dengan p = c/n sama dengan log2(n) - sum(c log2 c) / n
+    private static double channelEntropy(int[] hist, int offset, int count) {
+        double sum = 0;
+        for (int i=0; i<256; i++) {
+            sum += cLog2c(hist[offset + i]);
+        }
+        return fromSum(sum, count);
+    }
+
+    private static double fromSum(double sumCLog2c, int count) {
+        double h = cLog2c(count) / count - sumCLog2c / count;
+        return (h > 0) ? h : 0.0; // Buang sisa pembulatan pada blok satu warna
+    }
+
+    private static double cLog2c(int c) {
+        return (c < TABLE_SIZE) ? C_LOG2_C[c] : c * (Math.log(c) / LN2);
+    }
 }
@@ -3,7 +3,61 @@ import java.awt.image.BufferedImage;
 
 public interface ErrorCalc {
     /**
-     * Menghitung error untuk blok gambar [x,y,width,height] berdasarkan nilai rata-rata.
+     * Menghitung error untuk blok [x,y,width,height] pada raster packed RGB (0xRRGGBB)
+     * dengan indeks piksel (i, j) = j * stride + i, berdasarkan warna rata-rata (avgR, avgG, avgB).
+     * Blok dianggap sudah berada di dalam raster.
      */
-    double computeError(BufferedImage image, int x, int y, int width, int height, Color avgColor);
+    double computeError(int[] pixels, int stride, int x, int y, int width, int height, int avgR, int avgG, int avgB);
+
+    /**
+     * Sama seperti di atas, tetapi boleh memakai struktur bantu milik raster
+     * (mis. integral image) agar tidak perlu memindai setiap piksel blok.
+     * Jika piksel raster tidak di heap, versi default menyalin blok ke buffer scratch per
+     * thread (ImageRaster.scratch), yang dipakai ulang tetapi tumbuh sampai blok terbesar;
+     * metrik yang bisa memindai per pita (mis. MAD) sebaiknya meng-override ini.
+     */
+    default double computeError(ImageRaster raster, int x, int y, int width, int height, int avgR, int avgG, int avgB) {
+        int[] pixels = raster.getPixels();
+        if (pixels == null) {
+            // Piksel di luar heap: salin bloknya lebih dulu
+            int[] block = ImageRaster.scratch(width * height);
+            raster.copyBlock(x, y, width, height, block);
+            return computeError(block, width, 0, 0, width, height, avgR, avgG, avgB);
+        }
+        return computeError(pixels, raster.getWidth(), x, y, width, height, avgR, avgG, avgB);
+    }
+
+    /**
+     * Seperti computeError(raster, ...), tetapi boleh berhenti lebih awal begitu terbukti
+     * error blok > bound. Jika error <= bound, hasilnya sama persis dengan computeError;
+     * jika tidak, hasilnya cukup berupa nilai apa pun yang > bound (batas bawah error).
+     * Default-nya selalu menghitung error eksak; metrik yang error-nya naik monoton
+     * selama pemindaian (MAD, Max Pixel Difference) meng-override ini.
+     */
+    default double computeErrorBounded(ImageRaster raster, int x, int y, int width, int height,
+                                       int avgR, int avgG, int avgB, double bound) {
+        return computeError(raster, x, y, width, height, avgR, avgG, avgB);
+    }
+
+    /**
+     * Jumlah piksel yang tidak perlu dipindai berkat computeErrorBounded (untuk laporan).
+     */
+    default long getSkippedPixels() {
+        return 0;
+    }
+
+    /**
+     * Adapter untuk BufferedImage: blok dipotong ke batas gambar, pikselnya
+     * diekstrak sekali lalu dihitung lewat versi packed.
+     */
+    default double computeError(BufferedImage image, int x, int y, int width, int height, Color avgColor) {
+        int endX = Math.min(x + width, image.getWidth());
+        int endY = Math.min(y + height, image.getHeight());
+        x = Math.max(0, x);
+        y = Math.max(0, y);
+        int w = Math.max(0, endX - x);
+        int h = Math.max(0, endY - y);
+        int[] block = (w > 0 && h > 0) ? image.getRGB(x, y, w, h, null, 0, w) : new int[0];
+        return computeError(block, w, 0, 0, w, h, avgColor.getRed(), avgColor.getGreen(), avgColor.getBlue());
+    }
 }
@@ -0,0 +1,19 @@
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+
+/**
+ * Penerima frame visualisasi yang direkam QuadTree selama pembangunan.
+ * Frame yang sudah diserahkan tidak diubah lagi oleh QuadTree.
+ */
+public interface FrameSink {
+    /**
+     * Menerima satu frame; boleh memblokir sampai frame bisa diterima.
+     */
+    void accept(BufferedImage frame);
+
+    /**
+     * Dipanggil setelah frame terakhir; menunggu semua frame selesai diproses.
+     */
+    default void close() throws IOException {
+    }
+}
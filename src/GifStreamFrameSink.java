@@ -0,0 +1,130 @@
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import javax.imageio.stream.ImageOutputStream;
+
+/**
+ * FrameSink yang langsung meng-encode frame ke GIF di thread terpisah.
+ * Frame dititipkan ke antrian berkapasitas tetap sehingga memori tidak bertambah
+ * seiring jumlah frame, dan encoding berjalan bersamaan dengan pembangunan pohon.
+ *
+ * Jika encoding gagal (termasuk RuntimeException/Error dari ImageIO), kegagalan itu
+ * dilempar ulang oleh accept() dan close(). Jika pembangunan pohon yang gagal, panggil
+ * abort() sebelum stream output ditutup agar thread encoder berhenti.
+ */
+public class GifStreamFrameSink implements FrameSink {
+    // Penanda akhir antrian
+    private static final BufferedImage END = new BufferedImage(1, 1, BufferedImage.TYPE_INT_RGB);
+    // Selang pemeriksaan kegagalan encoder selama accept() menunggu antrian
+    private static final long POLL_MILLIS = 50;
+
+    private final GIFSeqWriter gifWriter;
+    private final BlockingQueue<BufferedImage> queue;
+    private final Thread encoder;
+    private volatile Throwable failure;
+    private int framesWritten = 0;
+    private boolean closed = false;
+
+    public GifStreamFrameSink(ImageOutputStream outputStream, int delay, int queueCapacity) throws IOException {
+        this.gifWriter = new GIFSeqWriter(outputStream, BufferedImage.TYPE_INT_RGB, delay, true);
+        this.queue = new ArrayBlockingQueue<>(Math.max(1, queueCapacity));
+        this.encoder = new Thread(this::encodeLoop, "gif-encoder");
+        this.encoder.setDaemon(true);
+        this.encoder.start();
+    }
+
+    @SuppressWarnings("try")
+    private void encodeLoop() {
+        try {
+            while (true) {
+                BufferedImage frame = queue.take();
+                if (frame == END) break;
+                if (failure != null) continue; // Tetap kuras antrian agar produsen tidak macet
+                try (Instrumentation.Span span = Instrumentation.begin(Instrumentation.Phase.GIF_ENCODE)) {
+                    gifWriter.writeToSequence(frame);
+                    framesWritten++;
+                } catch (Throwable t) {
+                    failure = t; // Dilempar ulang ke produsen lewat accept()/close()
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public void accept(BufferedImage frame) {
+        if (closed) {
+            throw new IllegalStateException("FrameSink sudah ditutup");
+        }
+        try {
+            do {
+                throwIfFailed();
+            } while (!queue.offer(frame, POLL_MILLIS, TimeUnit.MILLISECONDS));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void throwIfFailed() {
+        Throwable t = failure;
+        if (t == null) return;
+        if (t instanceof RuntimeException e) throw e;
+        if (t instanceof Error e) throw e;
+        if (t instanceof IOException e) throw new UncheckedIOException("Encoding GIF gagal", e);
+        throw new IllegalStateException("Encoding GIF gagal", t);
+    }
+
+    /**
+     * Menunggu semua frame di antrian ter-encode lalu menutup sequence GIF.
+     * Stream output tidak ditutup.
+     */
+    @Override
+    public void close() throws IOException {
+        if (closed) return;
+        closed = true;
+        stopEncoder();
+        Throwable t = failure;
+        if (t instanceof IOException e) throw e;
+        throwIfFailed();
+        if (framesWritten > 0) {
+            gifWriter.close();
+        }
+    }
+
+    /**
+     * Membatalkan GIF: frame yang belum ter-encode dibuang dan thread encoder ditunggu
+     * sampai berhenti, tanpa menutup sequence. Aman dipanggil berkali-kali atau setelah
+     * close(); kegagalan encoder tidak dilempar lagi.
+     */
+    public void abort() {
+        if (closed) return;
+        closed = true;
+        queue.clear();
+        try {
+            stopEncoder();
+        } catch (IOException e) {
+            // Thread ini diinterupsi; encoder tetap berhenti setelah frame yang sedang ditulis
+        }
+    }
+
+    private void stopEncoder() throws IOException {
+        try {
+            queue.put(END);
+            encoder.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Encoding GIF terputus", e);
+        }
+    }
+
+    /**
+     * Jumlah frame yang sudah ditulis ke GIF (final setelah close()).
+     */
+    public int getFramesWritten() {
+        return framesWritten;
+    }
+}
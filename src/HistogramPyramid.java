@@ -0,0 +1,194 @@
+import java.util.Arrays;
+
+/**
+ * Piramida histogram R, G, B yang mengikuti pembagian blok Quadtree
+ * (anak kiri/atas = separuh dibulatkan ke bawah, sama seperti QuadTree).
+ * Dibangun bottom-up sekali per gambar: blok dengan luas <= CUTOFF dipindai langsung,
+ * histogram blok yang lebih besar adalah jumlah histogram keempat anaknya.
+ * Histogram blok yang tersimpan cukup dibaca (O(256) per kanal), tanpa memindai piksel.
+ */
+public class HistogramPyramid {
+    public static final int BINS = 3 * 256;  // R di [0,256), G di [256,512), B di [512,768)
+    public static final int CUTOFF = 32 * 32; // Luas blok terbesar yang tidak disimpan
+
+    private final ImageRaster raster;
+    private final int[] pixels; // null jika piksel raster tidak berada di heap
+    private final int width;
+    private final int height;
+
+    private int[] counts = new int[0]; // BINS slot per node tersimpan
+    private int[] firstChild = new int[0]; // Anak tersimpan pertama, -1 jika anaknya tidak disimpan
+    private int size;
+
+    public HistogramPyramid(ImageRaster raster) {
+        this.raster = raster;
+        this.pixels = raster.getPixels();
+        this.width = raster.getWidth();
+        this.height = raster.getHeight();
+        if (isStored(width, height)) {
+            int root = allocate(1);
+            build(root, 0, 0, width, height);
+        }
+    }
+
+    private static boolean isStored(int w, int h) {
+        return w > 0 && h > 0 && (long) w * h > CUTOFF;
+    }
+
+    private int allocate(int count) {
+        int first = size;
+        size += count;
+        if (size > firstChild.length) {
+            int cap = Math.max(size, firstChild.length * 2);
+            firstChild = Arrays.copyOf(firstChild, cap);
+            counts = Arrays.copyOf(counts, cap * BINS);
+        }
+        for (int i = first; i < size; i++) {
+            firstChild[i] = -1;
+        }
+        return first;
+    }
+
+    private void build(int node, int x, int y, int w, int h) {
+        int halfWidth = w / 2;
+        int halfHeight = h / 2;
+        int[] cx = { x, x + halfWidth, x, x + halfWidth };
+        int[] cy = { y, y, y + halfHeight, y + halfHeight };
+        int[] cw = { halfWidth, w - halfWidth, halfWidth, w - halfWidth };
+        int[] ch = { halfHeight, halfHeight, h - halfHeight, h - halfHeight };
+
+        // Anak yang cukup besar disimpan sebagai node (selalu keempatnya, demi indeks yang sederhana)
+        boolean storeChildren = isStored(cw[3], ch[3]);
+        int child = -1;
+        if (storeChildren) {
+            child = allocate(4);
+            firstChild[node] = child;
+        }
+        int base = node * BINS;
+        for (int k = 0; k < 4; k++) {
+            if (cw[k] <= 0 || ch[k] <= 0) continue;
+            if (storeChildren) {
+                build(child + k, cx[k], cy[k], cw[k], ch[k]);
+                int childBase = (child + k) * BINS;
+                for (int b = 0; b < BINS; b++) {
+                    counts[base + b] += counts[childBase + b];
+                }
+            } else {
+                scan(counts, base, cx[k], cy[k], cw[k], ch[k]);
+            }
+        }
+    }
+
+    /**
+     * Memperbarui histogram node yang bloknya beririsan dengan [x,y,w,h] setelah piksel di area
+     * itu berubah: node tanpa anak tersimpan dipindai ulang, node lain dijumlah ulang dari
+     * anak-anaknya. Biayanya sebanding luas area ditambah jumlah node yang beririsan.
+     */
+    public void update(int x, int y, int w, int h) {
+        if (size > 0) {
+            update(0, 0, 0, width, height, x, y, w, h);
+        }
+    }
+
+    private void update(int node, int nx, int ny, int nw, int nh, int x, int y, int w, int h) {
+        if (nw <= 0 || nh <= 0 || nx >= x + w || x >= nx + nw || ny >= y + h || y >= ny + nh) return;
+        int base = node * BINS;
+        Arrays.fill(counts, base, base + BINS, 0);
+        int child = firstChild[node];
+        if (child < 0) {
+            scan(counts, base, nx, ny, nw, nh);
+            return;
+        }
+        int halfWidth = nw / 2;
+        int halfHeight = nh / 2;
+        update(child,     nx,             ny,              halfWidth,      halfHeight,      x, y, w, h);
+        update(child + 1, nx + halfWidth, ny,              nw - halfWidth, halfHeight,      x, y, w, h);
+        update(child + 2, nx,             ny + halfHeight, halfWidth,      nh - halfHeight, x, y, w, h);
+        update(child + 3, nx + halfWidth, ny + halfHeight, nw - halfWidth, nh - halfHeight, x, y, w, h);
+        for (int k = 0; k < 4; k++) {
+            if ((halfWidth == 0 && (k & 1) == 0) || (halfHeight == 0 && k < 2)) continue; // Slot kosong
+            int childBase = (child + k) * BINS;
+            for (int b = 0; b < BINS; b++) {
+                counts[base + b] += counts[childBase + b];
+            }
+        }
+    }
+
+    /**
+     * Menambahkan histogram blok [x,y,w,h] ke hist mulai dari offset.
+     */
+    public void scan(int[] hist, int offset, int x, int y, int w, int h) {
+        if (pixels != null) {
+            scan(pixels, width, hist, offset, x, y, w, h);
+            return;
+        }
+        // Piksel di luar heap: disalin per pita baris ke scratch lalu dipindai
+        int bandRows = ImageRaster.bandRows(w);
+        int[] band = ImageRaster.scratch(bandRows * w);
+        for (int j = y; j < y + h; j += bandRows) {
+            int rows = Math.min(bandRows, y + h - j);
+            raster.copyBlock(x, j, w, rows, band);
+            scan(band, w, hist, offset, 0, 0, w, rows);
+        }
+    }
+
+    private static void scan(int[] pixels, int stride, int[] hist, int offset, int x, int y, int w, int h) {
+        for (int j = y; j < y + h; j++) {
+            int row = j * stride;
+            for (int i = x; i < x + w; i++) {
+                int rgb = pixels[row + i];
+                hist[offset + ((rgb >> 16) & 0xFF)]++;
+                hist[offset + 256 + ((rgb >> 8) & 0xFF)]++;
+                hist[offset + 512 + (rgb & 0xFF)]++;
+            }
+        }
+    }
+
+    /**
+     * Mencari blok [x,y,w,h] di piramida dengan menelusuri dari root.
+     * Mengembalikan offset histogramnya pada getCounts(), atau -1 jika blok
+     * tidak tersimpan (terlalu kecil atau tidak sejajar dengan pembagian Quadtree).
+     */
+    public int find(int x, int y, int w, int h) {
+        if (size == 0) return -1;
+        int node = 0;
+        int nx = 0, ny = 0, nw = width, nh = height;
+        while (true) {
+            if (nx == x && ny == y && nw == w && nh == h) {
+                return node * BINS;
+            }
+            int child = firstChild[node];
+            if (child < 0) return -1;
+            int halfWidth = nw / 2;
+            int halfHeight = nh / 2;
+            int k = 0;
+            if (x >= nx + halfWidth) {
+                k += 1;
+                nx += halfWidth;
+                nw -= halfWidth;
+            } else {
+                nw = halfWidth;
+            }
+            if (y >= ny + halfHeight) {
+                k += 2;
+                ny += halfHeight;
+                nh -= halfHeight;
+            } else {
+                nh = halfHeight;
+            }
+            if (nw <= 0 || nh <= 0 || w > nw || h > nh) return -1;
+            node = child + k;
+        }
+    }
+
+    public int[] getCounts() {
+        return counts;
+    }
+
+    /**
+     * Jumlah node tersimpan (untuk perkiraan memori: BINS int per node).
+     */
+    public int size() {
+        return size;
+    }
+}
@@ -0,0 +1,235 @@
+import java.awt.image.BufferedImage;
+import java.awt.image.ComponentSampleModel;
+import java.awt.image.DataBufferByte;
+import java.awt.image.DataBufferInt;
+import java.awt.image.SinglePixelPackedSampleModel;
+import java.awt.image.WritableRaster;
+
+/**
+ * Salinan piksel gambar dalam bentuk packed RGB (0xRRGGBB) pada satu int[]
+ * row-major dengan stride = width. Diekstrak sekali per gambar sehingga
+ * ErrorCalc tidak perlu memanggil getRGB/new Color untuk setiap piksel.
+ *
+ * Subclass boleh menyimpan piksel di luar heap (lihat OffHeapImageRaster): getPixels()
+ * mengembalikan null dan pemindaian piksel memakai copyBlock per pita baris.
+ */
+public class ImageRaster {
+    // Luas satu pita baris (piksel) yang disalin saat memindai raster tanpa int[]
+    private static final int BAND_PIXELS = 1 << 14;
+    private static final ThreadLocal<int[]> SCRATCH = ThreadLocal.withInitial(() -> new int[BAND_PIXELS]);
+
+    private final int[] pixels;
+    private final int width;
+    private final int height;
+
+    private volatile IntegralImage integral; // Dibangun saat pertama kali dibutuhkan
+    private volatile HistogramPyramid histograms; // Idem, hanya untuk Entropy
+    private volatile MinMaxPyramid minMax;        // Idem, hanya untuk Max Pixel Difference
+
+    public ImageRaster(int[] pixels, int width, int height) {
+        this.pixels = pixels;
+        this.width = width;
+        this.height = height;
+    }
+
+    /**
+     * Untuk subclass yang menyimpan piksel di tempat lain; getPixels() akan mengembalikan null.
+     */
+    protected ImageRaster(int width, int height) {
+        this(null, width, height);
+    }
+
+    public static ImageRaster from(BufferedImage image) {
+        int w = image.getWidth();
+        int h = image.getHeight();
+        int[] pixels = new int[w * h];
+        readRows(image, 0, h, pixels);
+        return new ImageRaster(pixels, w, h);
+    }
+
+    /**
+     * Membaca baris [y, y + rows) gambar ke dst sebagai packed RGB (stride = lebar gambar),
+     * mis. untuk mengisi raster off-heap per pita tanpa salinan int[] seukuran gambar.
+     */
+    protected static void readRows(BufferedImage image, int y, int rows, int[] dst) {
+        if (readDirect(image, y, rows, dst)) return;
+        int w = image.getWidth();
+        image.getRGB(0, y, w, rows, dst, 0, w);
+        for (int i = 0; i < w * rows; i++) {
+            dst[i] &= 0xFFFFFF; // Buang alpha, hanya RGB yang dipakai
+        }
+    }
+
+    /**
+     * Menyalin piksel langsung dari DataBuffer untuk tipe yang umum (INT_RGB/ARGB, 3BYTE_BGR,
+     * 4BYTE_ABGR, sRGB tanpa premultiplied alpha), tanpa konversi ColorModel per piksel seperti
+     * getRGB. Hasilnya sama dengan getRGB; false jika tipe atau tata letak raster tidak didukung.
+     */
+    private static boolean readDirect(BufferedImage image, int y, int rows, int[] pixels) {
+        WritableRaster raster = image.getRaster();
+        if (raster.getParent() != null || raster.getSampleModelTranslateX() != 0
+                || raster.getSampleModelTranslateY() != 0 || !image.getColorModel().getColorSpace().isCS_sRGB()) {
+            return false;
+        }
+        int w = image.getWidth();
+        switch (image.getType()) {
+            case BufferedImage.TYPE_INT_RGB, BufferedImage.TYPE_INT_ARGB -> {
+                if (!(raster.getSampleModel() instanceof SinglePixelPackedSampleModel sm)) return false;
+                int[] data = ((DataBufferInt) raster.getDataBuffer()).getData();
+                int offset = raster.getDataBuffer().getOffset();
+                for (int j = 0; j < rows; j++) {
+                    int src = offset + (y + j) * sm.getScanlineStride();
+                    int dst = j * w;
+                    for (int i = 0; i < w; i++) {
+                        pixels[dst + i] = data[src + i] & 0xFFFFFF;
+                    }
+                }
+            }
+            case BufferedImage.TYPE_3BYTE_BGR, BufferedImage.TYPE_4BYTE_ABGR -> {
+                if (!(raster.getSampleModel() instanceof ComponentSampleModel sm)) return false;
+                byte[] data = ((DataBufferByte) raster.getDataBuffer()).getData();
+                int pixelStride = sm.getPixelStride();
+                int[] bands = sm.getBandOffsets(); // R, G, B (dan A)
+                int offset = raster.getDataBuffer().getOffset();
+                for (int j = 0; j < rows; j++) {
+                    int src = offset + (y + j) * sm.getScanlineStride();
+                    int dst = j * w;
+                    for (int i = 0; i < w; i++, src += pixelStride) {
+                        pixels[dst + i] = ((data[src + bands[0]] & 0xFF) << 16)
+                                | ((data[src + bands[1]] & 0xFF) << 8) | (data[src + bands[2]] & 0xFF);
+                    }
+                }
+            }
+            default -> {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Menyalin blok [x,y,w,h] dari source (mis. gambar yang baru diubah editor) ke raster ini.
+     * Struktur bantu yang sudah dibangun ikut diperbarui sebanding luas blok: perubahan dicatat
+     * sebagai patch integral image dan node piramida yang beririsan dihitung ulang. Jika patch
+     * sudah terlalu banyak, integral image dibuang dan dibangun ulang saat dibutuhkan.
+     * Jangan dipanggil bersamaan dengan pembangunan pohon pada raster ini.
+     */
+    public void update(BufferedImage source, int x, int y, int w, int h) {
+        if (w <= 0 || h <= 0) return;
+        int[] rgb = source.getRGB(x, y, w, h, null, 0, w);
+        for (int i = 0; i < rgb.length; i++) {
+            rgb[i] &= 0xFFFFFF;
+        }
+        IntegralImage sat = integral;
+        if (sat != null) {
+            if (sat.canPatch((long) w * h)) {
+                int[] old = new int[w * h];
+                for (int j = 0; j < h; j++) {
+                    System.arraycopy(pixels, (y + j) * width + x, old, j * w, w);
+                }
+                sat.addPatch(x, y, w, h, old, rgb); // Sebelum piksel ditimpa
+            } else {
+                integral = null;
+            }
+        }
+        for (int j = 0; j < h; j++) {
+            System.arraycopy(rgb, j * w, pixels, (y + j) * width + x, w);
+        }
+        if (histograms != null) histograms.update(x, y, w, h);
+        if (minMax != null) minMax.update(x, y, w, h);
+    }
+
+    /**
+     * Piksel packed RGB row-major (stride = width), atau null jika piksel tidak disimpan
+     * di heap; pemanggil lalu memakai copyBlock.
+     */
+    public int[] getPixels() {
+        return pixels;
+    }
+
+    /**
+     * Menyalin piksel blok [x,y,w,h] ke dst (row-major, stride w).
+     */
+    public void copyBlock(int x, int y, int w, int h, int[] dst) {
+        for (int j = 0; j < h; j++) {
+            System.arraycopy(pixels, (y + j) * width + x, dst, j * w, w);
+        }
+    }
+
+    /**
+     * Jumlah baris per pita saat memindai blok selebar w lewat copyBlock (minimal 1).
+     */
+    public static int bandRows(int w) {
+        return Math.max(1, BAND_PIXELS / Math.max(1, w));
+    }
+
+    /**
+     * Buffer scratch per thread berisi minimal size int, untuk copyBlock.
+     * Isinya tidak dipertahankan antarpemanggilan.
+     */
+    public static int[] scratch(int size) {
+        int[] buffer = SCRATCH.get();
+        if (buffer.length < size) {
+            buffer = new int[size];
+            SCRATCH.set(buffer);
+        }
+        return buffer;
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    public IntegralImage integral() {
+        IntegralImage result = integral;
+        if (result == null) {
+            synchronized (this) {
+                result = integral;
+                if (result == null) {
+                    result = createIntegral();
+                    integral = result;
+                }
+            }
+        }
+        return result;
+    }
+
+    public HistogramPyramid histograms() {
+        HistogramPyramid result = histograms;
+        if (result == null) {
+            synchronized (this) {
+                result = histograms;
+                if (result == null) {
+                    result = new HistogramPyramid(this);
+                    histograms = result;
+                }
+            }
+        }
+        return result;
+    }
+
+    public MinMaxPyramid minMax() {
+        MinMaxPyramid result = minMax;
+        if (result == null) {
+            synchronized (this) {
+                result = minMax;
+                if (result == null) {
+                    result = new MinMaxPyramid(this);
+                    minMax = result;
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Membangun integral image untuk raster ini; subclass off-heap meng-override-nya.
+     */
+    protected IntegralImage createIntegral() {
+        return new IntegralImage(pixels, width, height);
+    }
+}
@@ -0,0 +1,208 @@
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Instrumentasi kompresi: waktu per fase (juga sebagai event JFR "quadtree.Phase"),
+ * counter jalur panas, dan rincian waktu evaluasi node per kedalaman.
+ *
+ * Counter dan rincian hanya dicatat jika -Dquadtree.instrument=true. ENABLED adalah
+ * static final, sehingga saat nonaktif JIT membuang seluruh cabang pencatatan di jalur panas.
+ * Event JFR mengikuti JFR sendiri: hanya di-commit jika sedang ada rekaman yang mengaktifkannya
+ * (mis. -XX:StartFlightRecording), jadi hampir tanpa biaya jika tidak.
+ * Laporan JSON ditulis ke -Dquadtree.instrument.report=&lt;file&gt; atau ke stdout.
+ */
+public class Instrumentation {
+    public static final boolean ENABLED = Boolean.getBoolean("quadtree.instrument");
+    private static final int MAX_DEPTH = 64;
+
+    // Slot node yang dialokasikan di QuadTreeNodeStore (termasuk slot anak kosong, store
+    // sementara task paralel, dan salinan subtree saat dipakai ulang atau dipotong)
+    public static final LongAdder NODES_CREATED = new LongAdder();
+    // Panggilan ErrorCalc oleh QuadTree, termasuk yang berhenti lebih awal karena bound
+    public static final LongAdder ERROR_EVALUATIONS = new LongAdder();
+    public static final LongAdder FRAMES_RENDERED = new LongAdder();
+    public static final LongAdder FRAMES_SKIPPED = new LongAdder();
+
+    private static final LongAdder[] DEPTH_NODES = new LongAdder[MAX_DEPTH];
+    private static final LongAdder[] DEPTH_NANOS = new LongAdder[MAX_DEPTH];
+    private static final Map<String, LongAdder> PIXELS_TOUCHED = new ConcurrentSkipListMap<>();
+
+    static {
+        for (int d = 0; d < MAX_DEPTH; d++) {
+            DEPTH_NODES[d] = new LongAdder();
+            DEPTH_NANOS[d] = new LongAdder();
+        }
+    }
+
+    /**
+     * Fase kompresi yang diukur; waktu dijumlahkan dari semua thread.
+     */
+    public enum Phase {
+        DECODE("decode"),           // Membaca file gambar
+        BUILD("build"),             // buildTree / buildTreeWithLeafBudget (termasuk render frame GIF)
+        FRAME_RENDER("frameRender"), // Membuat satu frame GIF dari kanvas
+        GIF_ENCODE("gifEncode"),    // Meng-encode satu frame GIF (thread encoder)
+        RENDER("render"),           // generateCompressedImage
+        ENCODE("encode"),           // Menulis gambar/pohon hasil
+        QUALITY("quality");         // SSIM terhadap gambar asli
+
+        final String key;
+        final LongAdder count = new LongAdder();
+        final LongAdder nanos = new LongAdder();
+        final LongAccumulator maxNanos = new LongAccumulator(Long::max, 0);
+
+        Phase(String key) {
+            this.key = key;
+        }
+    }
+
+    @Name("quadtree.Phase")
+    @Label("Quadtree Phase")
+    @Category("Quadtree")
+    @Description("Satu fase kompresi (decode, build, render frame, encode GIF, render, encode, kualitas)")
+    @StackTrace(false)
+    static class PhaseEvent extends Event {
+        @Label("Phase")
+        String phase;
+    }
+
+    /**
+     * Rentang waktu satu fase; dipakai dengan try-with-resources. Variabel span tidak pernah
+     * dirujuk di dalam blok, jadi method pemakainya diberi @SuppressWarnings("try").
+     */
+    public static final class Span implements AutoCloseable {
+        private final Phase phase;
+        private final PhaseEvent event;
+        private final long start;
+
+        private Span(Phase phase) {
+            this.phase = phase;
+            this.event = new PhaseEvent();
+            this.event.begin();
+            this.start = ENABLED ? System.nanoTime() : 0;
+        }
+
+        @Override
+        public void close() {
+            if (ENABLED) {
+                long nanos = System.nanoTime() - start;
+                phase.count.increment();
+                phase.nanos.add(nanos);
+                phase.maxNanos.accumulate(nanos);
+            }
+            if (event.shouldCommit()) {
+                event.phase = phase.key;
+                event.commit();
+            }
+        }
+    }
+
+    private Instrumentation() {
+    }
+
+    public static Span begin(Phase phase) {
+        return new Span(phase);
+    }
+
+    /**
+     * Counter piksel yang benar-benar dibaca oleh satu ErrorCalc (blok yang dijawab
+     * dari integral image atau piramida tidak menambah counter ini).
+     */
+    public static LongAdder pixelCounter(String errorCalc) {
+        return PIXELS_TOUCHED.computeIfAbsent(errorCalc, k -> new LongAdder());
+    }
+
+    /**
+     * Satu node dievaluasi (warna rata-rata + error) pada kedalaman depth. Panggil hanya jika ENABLED.
+     */
+    public static void nodeEvaluated(int depth, long nanos) {
+        int d = Math.min(depth, MAX_DEPTH - 1);
+        DEPTH_NODES[d].increment();
+        DEPTH_NANOS[d].add(nanos);
+    }
+
+    public static void reset() {
+        for (Phase phase : Phase.values()) {
+            phase.count.reset();
+            phase.nanos.reset();
+            phase.maxNanos.reset();
+        }
+        NODES_CREATED.reset();
+        ERROR_EVALUATIONS.reset();
+        FRAMES_RENDERED.reset();
+        FRAMES_SKIPPED.reset();
+        for (int d = 0; d < MAX_DEPTH; d++) {
+            DEPTH_NODES[d].reset();
+            DEPTH_NANOS[d].reset();
+        }
+        PIXELS_TOUCHED.values().forEach(LongAdder::reset);
+    }
+
+    /**
+     * Laporan JSON berisi fase, counter, piksel per ErrorCalc, dan rincian per kedalaman.
+     */
+    public static String toJson() {
+        StringBuilder sb = new StringBuilder("{\"enabled\":").append(ENABLED);
+        sb.append(",\"phases\":{");
+        boolean first = true;
+        for (Phase phase : Phase.values()) {
+            if (!first) sb.append(',');
+            first = false;
+            sb.append(Json.quote(phase.key)).append(":{\"count\":").append(phase.count.sum())
+              .append(",\"totalMs\":").append(Json.number(phase.nanos.sum() / 1e6))
+              .append(",\"maxMs\":").append(Json.number(phase.maxNanos.get() / 1e6)).append('}');
+        }
+        sb.append("},\"counters\":{\"nodesCreated\":").append(NODES_CREATED.sum())
+          .append(",\"errorEvaluations\":").append(ERROR_EVALUATIONS.sum())
+          .append(",\"framesRendered\":").append(FRAMES_RENDERED.sum())
+          .append(",\"framesSkipped\":").append(FRAMES_SKIPPED.sum()).append('}');
+        sb.append(",\"pixelsTouched\":{");
+        first = true;
+        for (Map.Entry<String, LongAdder> e : PIXELS_TOUCHED.entrySet()) {
+            if (!first) sb.append(',');
+            first = false;
+            sb.append(Json.quote(e.getKey())).append(':').append(e.getValue().sum());
+        }
+        sb.append("},\"depths\":[");
+        first = true;
+        for (int d = 0; d < MAX_DEPTH; d++) {
+            long count = DEPTH_NODES[d].sum();
+            if (count == 0) continue;
+            if (!first) sb.append(',');
+            first = false;
+            sb.append("{\"depth\":").append(d).append(",\"nodes\":").append(count)
+              .append(",\"timeMs\":").append(Json.number(DEPTH_NANOS[d].sum() / 1e6)).append('}');
+        }
+        return sb.append("]}").toString();
+    }
+
+    /**
+     * Menulis laporan jika instrumentasi aktif: ke file quadtree.instrument.report, atau stdout.
+     */
+    public static void writeReport() {
+        if (!ENABLED) return;
+        String path = System.getProperty("quadtree.instrument.report");
+        if (path == null || path.isEmpty()) {
+            System.out.println(toJson());
+            return;
+        }
+        try (Writer out = new FileWriter(new File(path))) {
+            out.write(toJson());
+            out.write('\n');
+        } catch (IOException e) {
+            System.err.println("Gagal menulis laporan instrumentasi: " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,266 @@
+import java.util.Arrays;
+
+/**
+ * Summed-area table (integral image) per kanal R, G, B.
+ * Dibangun sekali per gambar sehingga jumlah nilai (dan jumlah kuadrat) pada
+ * blok [x,y,width,height] mana pun cukup dihitung dengan 4 lookup.
+ *
+ * Perubahan piksel setelah tabel dibangun dicatat sebagai patch (lihat addPatch): summed-area
+ * table kecil berisi selisih (baru - lama) untuk blok yang berubah saja, yang ditambahkan ke
+ * hasil setiap query. Biaya perubahannya sebanding luas blok, bukan ukuran gambar.
+ *
+ * Subclass boleh menyimpan tabel di tempat lain (lihat OffHeapIntegralImage) dengan
+ * meng-override keenam method sum*; averageRGB dan sumSquaredDeviation dibangun di atasnya.
+ */
+public class IntegralImage {
+    private static final int MAX_PATCHES = 32; // Setelah ini (atau luas patch > 1/4 gambar) tabel dibangun ulang
+
+    private final int width;
+    private final int height;
+    private final int stride; // width + 1, baris & kolom ke-0 selalu nol
+
+    private final long[] sumR, sumG, sumB;
+    // Tabel jumlah kuadrat baru dibangun saat pertama kali dibutuhkan (mis. Variance)
+    private long[] sqG, sqB;
+    private volatile long[] sqR;
+    private final int[] pixels;
+
+    private Patch[] patches = new Patch[0];
+    private long patchArea;
+
+    /**
+     * Selisih satu blok yang berubah: summed-area table lokal untuk jumlah R, G, B dan
+     * jumlah kuadratnya. Tabel kuadrat hanya ada jika tabel kuadrat utama sudah dibangun
+     * saat patch dibuat (jika dibangun sesudahnya, tabel utama sudah memakai piksel baru).
+     */
+    private static final class Patch {
+        final int x, y, w, h, stride;
+        final long[][] tables = new long[6][]; // sumR, sumG, sumB, sqR, sqG, sqB
+
+        Patch(int x, int y, int w, int h, int[] oldRGB, int[] newRGB, boolean squares) {
+            this.x = x;
+            this.y = y;
+            this.w = w;
+            this.h = h;
+            this.stride = w + 1;
+            int size = stride * (h + 1);
+            int channels = squares ? 6 : 3;
+            for (int c = 0; c < channels; c++) {
+                tables[c] = new long[size];
+            }
+            long[] row = new long[channels];
+            for (int j = 0; j < h; j++) {
+                Arrays.fill(row, 0);
+                int above = j * stride;
+                int cur = above + stride;
+                for (int i = 0; i < w; i++) {
+                    int before = oldRGB[j * w + i];
+                    int after = newRGB[j * w + i];
+                    for (int c = 0; c < 3; c++) {
+                        int shift = 16 - 8 * c;
+                        int a = (before >> shift) & 0xFF;
+                        int b = (after >> shift) & 0xFF;
+                        row[c] += b - a;
+                        if (squares) row[c + 3] += b * b - a * a;
+                    }
+                    for (int c = 0; c < channels; c++) {
+                        tables[c][cur + i + 1] = tables[c][above + i + 1] + row[c];
+                    }
+                }
+            }
+        }
+
+        /**
+         * Selisih jumlah tabel ke-table pada irisan blok [bx,by,bw,bh] dengan patch ini.
+         */
+        long sum(int table, int bx, int by, int bw, int bh) {
+            long[] t = tables[table];
+            int x0 = Math.max(bx, x) - x;
+            int y0 = Math.max(by, y) - y;
+            int x1 = Math.min(bx + bw, x + w) - x;
+            int y1 = Math.min(by + bh, y + h) - y;
+            if (t == null || x0 >= x1 || y0 >= y1) return 0;
+            int top = y0 * stride;
+            int bottom = y1 * stride;
+            return t[bottom + x1] - t[bottom + x0] - t[top + x1] + t[top + x0];
+        }
+    }
+
+    /**
+     * @param pixels piksel packed RGB row-major dengan stride = width
+     */
+    public IntegralImage(int[] pixels, int width, int height) {
+        this.pixels = pixels;
+        this.width = width;
+        this.height = height;
+        this.stride = width + 1;
+
+        int size = stride * (height + 1);
+        sumR = new long[size];
+        sumG = new long[size];
+        sumB = new long[size];
+
+        for (int j = 0; j < height; j++) {
+            int rowStart = j * width;
+            long rowR = 0, rowG = 0, rowB = 0;
+            int above = j * stride;
+            int cur = above + stride;
+            for (int i = 0; i < width; i++) {
+                int rgb = pixels[rowStart + i];
+                rowR += (rgb >> 16) & 0xFF;
+                rowG += (rgb >> 8) & 0xFF;
+                rowB += rgb & 0xFF;
+                sumR[cur + i + 1] = sumR[above + i + 1] + rowR;
+                sumG[cur + i + 1] = sumG[above + i + 1] + rowG;
+                sumB[cur + i + 1] = sumB[above + i + 1] + rowB;
+            }
+        }
+    }
+
+    /**
+     * Untuk subclass yang menyimpan tabel sendiri; tabel on-heap tidak dibangun.
+     */
+    protected IntegralImage(int width, int height) {
+        this.pixels = null;
+        this.width = width;
+        this.height = height;
+        this.stride = width + 1;
+        sumR = null;
+        sumG = null;
+        sumB = null;
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    private void ensureSquares() {
+        if (sqR == null) {
+            buildSquares();
+        }
+    }
+
+    private synchronized void buildSquares() {
+        if (sqR != null) return;
+        int size = stride * (height + 1);
+        long[] qR = new long[size];
+        long[] qG = new long[size];
+        long[] qB = new long[size];
+
+        for (int j = 0; j < height; j++) {
+            int rowStart = j * width;
+            long rowR = 0, rowG = 0, rowB = 0;
+            int above = j * stride;
+            int cur = above + stride;
+            for (int i = 0; i < width; i++) {
+                int rgb = pixels[rowStart + i];
+                int r = (rgb >> 16) & 0xFF;
+                int g = (rgb >> 8) & 0xFF;
+                int b = rgb & 0xFF;
+                rowR += r * r;
+                rowG += g * g;
+                rowB += b * b;
+                qR[cur + i + 1] = qR[above + i + 1] + rowR;
+                qG[cur + i + 1] = qG[above + i + 1] + rowG;
+                qB[cur + i + 1] = qB[above + i + 1] + rowB;
+            }
+        }
+        sqG = qG;
+        sqB = qB;
+        sqR = qR; // diisi terakhir, dipakai sebagai penanda
+    }
+
+    /**
+     * Apakah perubahan seluas area piksel masih bisa dicatat sebagai patch. Jika tidak,
+     * tabel sebaiknya dibangun ulang dari piksel baru (query dengan banyak patch makin lambat).
+     */
+    public boolean canPatch(long area) {
+        return patches.length < MAX_PATCHES && (patchArea + area) * 4 <= (long) width * height;
+    }
+
+    /**
+     * Mencatat perubahan blok [x,y,w,h] dari oldRGB ke newRGB (keduanya row-major dengan
+     * stride w). Panggil sebelum piksel raster ditimpa dan tidak bersamaan dengan query.
+     */
+    public void addPatch(int x, int y, int w, int h, int[] oldRGB, int[] newRGB) {
+        Patch patch = new Patch(x, y, w, h, oldRGB, newRGB, sqR != null);
+        Patch[] grown = Arrays.copyOf(patches, patches.length + 1);
+        grown[patches.length] = patch;
+        patches = grown;
+        patchArea += (long) w * h;
+    }
+
+    /**
+     * Jumlah nilai tabel pada blok [x,y,width,height] (blok harus berada di dalam gambar),
+     * ditambah selisih dari patch; table = indeks tabel yang sama pada Patch.
+     */
+    private long blockSum(long[] values, int table, int x, int y, int w, int h) {
+        int top = y * stride;
+        int bottom = (y + h) * stride;
+        long sum = values[bottom + x + w] - values[bottom + x] - values[top + x + w] + values[top + x];
+        for (Patch patch : patches) {
+            sum += patch.sum(table, x, y, w, h);
+        }
+        return sum;
+    }
+
+    public long sumRed(int x, int y, int w, int h) {
+        return blockSum(sumR, 0, x, y, w, h);
+    }
+
+    public long sumGreen(int x, int y, int w, int h) {
+        return blockSum(sumG, 1, x, y, w, h);
+    }
+
+    public long sumBlue(int x, int y, int w, int h) {
+        return blockSum(sumB, 2, x, y, w, h);
+    }
+
+    public long sumSqRed(int x, int y, int w, int h) {
+        ensureSquares();
+        return blockSum(sqR, 3, x, y, w, h);
+    }
+
+    public long sumSqGreen(int x, int y, int w, int h) {
+        ensureSquares();
+        return blockSum(sqG, 4, x, y, w, h);
+    }
+
+    public long sumSqBlue(int x, int y, int w, int h) {
+        ensureSquares();
+        return blockSum(sqB, 5, x, y, w, h);
+    }
+
+    /**
+     * Rata-rata warna blok dalam bentuk packed RGB (0xRRGGBB),
+     * dibulatkan ke bawah seperti perhitungan per piksel.
+     */
+    public int averageRGB(int x, int y, int w, int h) {
+        long count = (long) w * h;
+        if (count <= 0) return 0;
+        int avgR = (int) (sumRed(x, y, w, h) / count);
+        int avgG = (int) (sumGreen(x, y, w, h) / count);
+        int avgB = (int) (sumBlue(x, y, w, h) / count);
+        return (avgR << 16) | (avgG << 8) | avgB;
+    }
+
+    /**
+     * Jumlah kuadrat selisih setiap piksel terhadap warna (avgR, avgG, avgB),
+     * dijumlahkan untuk ketiga kanal. Hasilnya eksak (aritmetika bilangan bulat).
+     */
+    public long sumSquaredDeviation(int x, int y, int w, int h, int avgR, int avgG, int avgB) {
+        long count = (long) w * h;
+        return squaredDeviation(sumSqRed(x, y, w, h), sumRed(x, y, w, h), avgR, count)
+             + squaredDeviation(sumSqGreen(x, y, w, h), sumGreen(x, y, w, h), avgG, count)
+             + squaredDeviation(sumSqBlue(x, y, w, h), sumBlue(x, y, w, h), avgB, count);
+    }
+
+    // sum((v - a)^2) = sum(v^2) - 2a*sum(v) + n*a^2
+    private static long squaredDeviation(long sumSq, long sum, long a, long count) {
+        return sumSq - 2 * a * sum + count * a * a;
+    }
+}
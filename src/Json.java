@@ -0,0 +1,43 @@
+/**
+ * Pembantu kecil untuk menulis JSON tanpa dependensi (ringkasan batch, respons HTTP).
+ */
+public class Json {
+    private Json() {
+    }
+
+    /**
+     * String JSON ber-kutip dengan escape untuk ", \ dan karakter kontrol.
+     */
+    public static String quote(String s) {
+        if (s == null) return "null";
+        StringBuilder sb = new StringBuilder(s.length() + 2);
+        sb.append('"');
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            switch (c) {
+                case '"' -> sb.append("\\\"");
+                case '\\' -> sb.append("\\\\");
+                case '\n' -> sb.append("\\n");
+                case '\r' -> sb.append("\\r");
+                case '\t' -> sb.append("\\t");
+                default -> {
+                    if (c < 0x20) {
+                        sb.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        sb.append(c);
+                    }
+                }
+            }
+        }
+        return sb.append('"').toString();
+    }
+
+    /**
+     * Angka JSON; NaN dan tak hingga (tidak valid di JSON) ditulis sebagai null.
+     */
+    public static String number(double value) {
+        if (Double.isNaN(value) || Double.isInfinite(value)) return "null";
+        if (value == Math.rint(value) && Math.abs(value) < 1e15) return Long.toString((long) value);
+        return Double.toString(value);
+    }
+}
@@ -0,0 +1,142 @@
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Klien uji beban untuk CompressionServer: sejumlah virtual thread mengirim gambar yang sama
+ * berulang kali, lalu melaporkan latensi p50/p90/p99/maks dan throughput.
+ * Request warm-up tidak ikut dihitung.
+ */
+public class LoadTestClient {
+    public static void main(String[] args) throws Exception {
+        String url = "http://127.0.0.1:8080/compress?method=1&threshold=50&min-block=2&format=png";
+        String imagePath = null;
+        int concurrency = 4;
+        int requests = 100;
+        int warmup = 10;
+        boolean json = false;
+        try {
+            for (int i = 0; i < args.length; i++) {
+                switch (args[i]) {
+                    case "--url" -> url = args[++i];
+                    case "--image" -> imagePath = args[++i];
+                    case "--concurrency" -> concurrency = Integer.parseInt(args[++i]);
+                    case "--requests" -> requests = Integer.parseInt(args[++i]);
+                    case "--warmup" -> warmup = Integer.parseInt(args[++i]);
+                    case "--json" -> json = true;
+                    default -> throw new IllegalArgumentException("Argumen tidak dikenal: " + args[i]);
+                }
+            }
+            if (imagePath == null) {
+                throw new IllegalArgumentException("Butuh --image");
+            }
+            if (concurrency < 1 || requests < 1 || warmup < 0) {
+                throw new IllegalArgumentException("--concurrency dan --requests harus >= 1");
+            }
+        } catch (IllegalArgumentException | ArrayIndexOutOfBoundsException e) {
+            System.err.println(e.getMessage());
+            System.err.println("Penggunaan: java LoadTestClient --image <file> [--url u] [--concurrency n]"
+                    + " [--requests n] [--warmup n] [--json]");
+            System.exit(2);
+            return;
+        }
+
+        byte[] image = Files.readAllBytes(Path.of(imagePath));
+        HttpClient client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(10))
+                .build();
+        HttpRequest request = HttpRequest.newBuilder(URI.create(url))
+                .POST(HttpRequest.BodyPublishers.ofByteArray(image))
+                .build();
+
+        run(client, request, warmup, concurrency, null, new TreeMap<>());
+
+        long[] latencies = new long[requests];
+        Map<Integer, Integer> statuses = new TreeMap<>();
+        long start = System.nanoTime();
+        run(client, request, requests, concurrency, latencies, statuses);
+        double elapsedSec = (System.nanoTime() - start) / 1e9;
+
+        Arrays.sort(latencies);
+        int ok = statuses.getOrDefault(200, 0);
+        double p50 = percentile(latencies, 0.50);
+        double p90 = percentile(latencies, 0.90);
+        double p99 = percentile(latencies, 0.99);
+        double max = latencies[latencies.length - 1] / 1e6;
+        double throughput = requests / elapsedSec;
+        if (json) {
+            StringBuilder codes = new StringBuilder("{");
+            for (Map.Entry<Integer, Integer> e : statuses.entrySet()) {
+                if (codes.length() > 1) codes.append(',');
+                codes.append('"').append(e.getKey()).append("\":").append(e.getValue());
+            }
+            codes.append('}');
+            System.out.println("{\"requests\":" + requests + ",\"concurrency\":" + concurrency
+                    + ",\"ok\":" + ok + ",\"statuses\":" + codes
+                    + ",\"p50Ms\":" + Json.number(p50) + ",\"p90Ms\":" + Json.number(p90)
+                    + ",\"p99Ms\":" + Json.number(p99) + ",\"maxMs\":" + Json.number(max)
+                    + ",\"throughputPerSec\":" + Json.number(throughput) + "}");
+        } else {
+            System.out.println("Request      : " + requests + " (konkurensi " + concurrency + ", warm-up " + warmup + ")");
+            System.out.println("Status       : " + statuses);
+            System.out.printf("Latensi p50  : %.1f ms%n", p50);
+            System.out.printf("Latensi p90  : %.1f ms%n", p90);
+            System.out.printf("Latensi p99  : %.1f ms%n", p99);
+            System.out.printf("Latensi maks : %.1f ms%n", max);
+            System.out.printf("Throughput   : %.2f request/detik%n", throughput);
+        }
+        System.exit(ok == requests ? 0 : 1);
+    }
+
+    /**
+     * Mengirim count request dengan concurrency virtual thread. Latensi request ke-i disimpan di
+     * latencies[i] (nanodetik) jika tidak null; status -1 berarti koneksi gagal.
+     */
+    private static void run(HttpClient client, HttpRequest request, int count, int concurrency,
+                            long[] latencies, Map<Integer, Integer> statuses) {
+        AtomicInteger next = new AtomicInteger();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int t = 0; t < concurrency; t++) {
+                executor.submit(() -> {
+                    int i;
+                    while ((i = next.getAndIncrement()) < count) {
+                        long start = System.nanoTime();
+                        int status;
+                        try {
+                            status = client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+                        } catch (IOException e) {
+                            status = -1;
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                            return;
+                        }
+                        if (latencies != null) {
+                            latencies[i] = System.nanoTime() - start;
+                        }
+                        synchronized (statuses) {
+                            statuses.merge(status, 1, Integer::sum);
+                        }
+                    }
+                });
+            }
+        }
+    }
+
+    // Nearest-rank, dalam milidetik
+    private static double percentile(long[] sorted, double p) {
+        int rank = (int) Math.ceil(p * sorted.length);
+        return sorted[Math.max(0, Math.min(sorted.length - 1, rank - 1))] / 1e6;
+    }
+}
@@ -1,23 +1,87 @@
-import java.awt.Color;
-import java.awt.image.BufferedImage;
+import java.util.concurrent.atomic.LongAdder;
 
 public class MADErrorCalc implements ErrorCalc {
+    private static final LongAdder PIXELS_TOUCHED = Instrumentation.pixelCounter("MADErrorCalc");
+    private final LongAdder skippedPixels = new LongAdder();
+
+    @Override
+    public double computeError(int[] pixels, int stride, int x, int y, int width, int height, int avgR, int avgG, int avgB) {
+        return computeErrorBounded(pixels, stride, null, x, y, width, height, avgR, avgG, avgB, Double.POSITIVE_INFINITY);
+    }
+
     @Override
-    public double computeError(BufferedImage image, int x, int y, int width, int height, Color avgColor) {
+    public double computeError(ImageRaster raster, int x, int y, int width, int height, int avgR, int avgG, int avgB) {
+        return computeErrorBounded(raster, x, y, width, height, avgR, avgG, avgB, Double.POSITIVE_INFINITY);
+    }
+
+    @Override
+    public double computeErrorBounded(ImageRaster raster, int x, int y, int width, int height,
+                                      int avgR, int avgG, int avgB, double bound) {
+        int[] pixels = raster.getPixels();
+        if (pixels == null) {
+            // Piksel di luar heap: baris disalin per pita ke scratch (stride = width)
+            int[] band = ImageRaster.scratch(ImageRaster.bandRows(width) * width);
+            return computeErrorBounded(band, width, raster, x, y, width, height, avgR, avgG, avgB, bound);
+        }
+        return computeErrorBounded(pixels, raster.getWidth(), null, x, y, width, height, avgR, avgG, avgB, bound);
+    }
+
+    /**
+     * Jumlah simpangan hanya bisa bertambah, jadi MAD sementara (dibagi jumlah piksel
+     * seluruh blok) adalah batas bawah MAD akhir. Setelah setiap baris, pemindaian
+     * berhenti begitu batas bawah itu sudah > bound.
+     * Jika source tidak null, pixels adalah buffer pita yang diisi ulang dari source
+     * dengan copyBlock setiap bandRows baris.
+     */
+    private double computeErrorBounded(int[] pixels, int stride, ImageRaster source, int x, int y, int width, int height,
+                                       int avgR, int avgG, int avgB, double bound) {
+        boolean simd = VectorSupport.ENABLED && width >= VectorSupport.LANES;
+        boolean bounded = bound < Double.POSITIVE_INFINITY;
+        long[] sums = simd ? new long[3] : null;
         double sumR=0, sumG=0, sumB=0;
-        int count = 0;
+        int count = Math.max(1, width * height);
+        int bandRows = (source != null) ? ImageRaster.bandRows(width) : height;
+        int bx = (source != null) ? 0 : x;
         for (int j = y; j < y + height; j++) {
-            for (int i = x; i < x + width; i++) {
-                Color c = new Color(image.getRGB(i, j));
-                sumR += Math.abs(c.getRed() - avgColor.getRed());
-                sumG += Math.abs(c.getGreen() - avgColor.getGreen());
-                sumB += Math.abs(c.getBlue() - avgColor.getBlue());
-                count++;
+            int line = j;
+            if (source != null) {
+                line = (j - y) % bandRows;
+                if (line == 0) {
+                    source.copyBlock(x, j, width, Math.min(bandRows, y + height - j), pixels);
+                }
+            }
+            int row = line * stride;
+            if (simd) {
+                // Versi SIMD, jumlahnya eksak sehingga hasilnya sama dengan loop skalar
+                VectorKernels.sumAbsDeviation(pixels, stride, bx, line, width, 1, avgR, avgG, avgB, sums);
+                sumR += sums[0];
+                sumG += sums[1];
+                sumB += sums[2];
+            } else {
+                for (int i = bx; i < bx + width; i++) {
+                    int rgb = pixels[row + i];
+                    sumR += Math.abs(((rgb >> 16) & 0xFF) - avgR);
+                    sumG += Math.abs(((rgb >> 8) & 0xFF) - avgG);
+                    sumB += Math.abs((rgb & 0xFF) - avgB);
+                }
+            }
+            if (bounded) {
+                double partial = (sumR/count + sumG/count + sumB/count) / 3.0;
+                if (partial > bound) {
+                    skippedPixels.add((long) (y + height - 1 - j) * width);
+                    if (Instrumentation.ENABLED) PIXELS_TOUCHED.add((long) (j - y + 1) * width);
+                    return partial;
+                }
             }
         }
-        if (count == 0) count = 1;
+        if (Instrumentation.ENABLED) PIXELS_TOUCHED.add((long) width * height);
         double madR = sumR/count; double madG = sumG/count; double madB = sumB/count;
         // Rata-rata MAD tiap kanal (dibagi 3)
         return (madR + madG + madB) / 3.0;
     }
+
+    @Override
+    public long getSkippedPixels() {
+        return skippedPixels.sum();
+    }
 }
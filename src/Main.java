@@ -1,14 +1,24 @@
+import java.awt.Dimension;
 import java.awt.image.BufferedImage;
 import java.io.File;
 import java.io.IOException;
-import java.util.List;
 import java.util.Scanner;
-import javax.imageio.ImageIO;
 import javax.imageio.stream.FileImageOutputStream;
 import javax.imageio.stream.ImageOutputStream;
 
 public class Main {
+    // Jumlah frame GIF yang boleh menunggu untuk di-encode
+    private static final int GIF_QUEUE_CAPACITY = 4;
+    // Jendela SSIM untuk laporan kualitas (8x8, digeser 4 piksel)
+    private static final int SSIM_WINDOW = 8;
+    private static final int SSIM_STEP = 4;
+
+    @SuppressWarnings("try")
     public static void main(String[] args) {
+        // Dengan argumen: mode non-interaktif/batch, tanpa prompt
+        if (args.length > 0) {
+            System.exit(BatchCompressor.run(args));
+        }
         try (Scanner sc = new Scanner(System.in)) {
             CompressConfig config = new CompressConfig();
             // Input path gambar
@@ -49,37 +59,56 @@ public class Main {
                 System.out.print("Masukkan delay antar frame (ms): ");
                 config.gifDelay = sc.nextInt();
                 // Max frames
-                System.out.print("Maksimum jumlah frame (batasi untuk menghindari OutOfMemory, rekomendasi 50-200): ");
+                System.out.print("Maksimum jumlah frame (rekomendasi 50-200): ");
                 config.maxGifFrames = sc.nextInt();
                 // Frame skip
-                System.out.print("Rekam setiap berapa frame (1=semua, 2=setiap 2 frame, dll): ");
+                System.out.print("Jarak antar frame (mode threshold: level kedalaman, mode target: jumlah daun; 1=setiap): ");
                 config.gifFrameSkip = sc.nextInt();
                 sc.nextLine(); // Buang newline
             }
 
             // Baca inputImage
-            BufferedImage inputImage;
+            BufferedImage inputImage = null;
             try {
                 File f = new File(config.inputImagePath);
                 if (!f.exists()) {
                     System.err.println("File tidak ditemukan: " + config.inputImagePath);
                     return;
                 }
-                inputImage = ImageIO.read(f);
-                if (inputImage == null) {
-                    System.err.println("Format gambar tidak didukung!");
-                    return;
+
+                // Gambar yang sangat besar diproses per tile tanpa memuat seluruh piksel
+                Dimension size = TiledQuadTreeBuilder.readDimensions(f);
+                long pixels = (long) size.width * size.height;
+                if (config.tileSize <= 0 && pixels > Compressor.TILED_MODE_MIN_PIXELS) {
+                    // Output raster butuh seluruh piksel hasil di memori, jadi hanya format pohon yang di-tile
+                    String outputFormat = Compressor.formatOf(config.outputImagePath);
+                    if (!Compressor.isTreeFormat(outputFormat)) {
+                        System.err.println("Gambar " + (pixels / 1000000) + " megapixel terlalu besar untuk output "
+                                + outputFormat + ". Gunakan output .qtc atau .qtp.");
+                        return;
+                    }
+                    config.tileSize = Compressor.DEFAULT_TILE_SIZE;
+                }
+                if (config.tileSize > 0) {
+                    System.out.println("Gambar " + (pixels / 1000000) + " megapixel diproses per tile "
+                            + config.tileSize + "x" + config.tileSize + " (GIF dan target kompresi dinonaktifkan).");
+                    config.createGif = false;
+                    config.targetCompression = 0;
+                } else {
+                    inputImage = Compressor.read(f);
+                    if (inputImage == null) {
+                        System.err.println("Format gambar tidak didukung!");
+                        return;
+                    }
                 }
                 
                 // Berikan peringatan untuk gambar besar
-                int megapixels = (inputImage.getWidth() * inputImage.getHeight()) / 1000000;
+                int megapixels = (int) (pixels / 1000000);
                 if (megapixels > 2) {
                     System.out.println("PERINGATAN: Gambar berukuran besar (" + megapixels + " megapixel).");
                     if (config.createGif) {
-                        System.out.println("Pembuatan GIF mungkin akan memakan banyak memori. Menyesuaikan parameter...");
-                        config.maxGifFrames = Math.min(config.maxGifFrames, 50);
-                        config.gifFrameSkip = Math.max(config.gifFrameSkip, 2);
-                        System.out.println("Disesuaikan: maxFrames=" + config.maxGifFrames + ", frameSkip=" + config.gifFrameSkip);
+                        // Frame GIF langsung di-encode (tidak ditampung), tetapi tiap frame tetap dirender
+                        System.out.println("Pembuatan GIF akan memperlambat proses kompresi.");
                     }
                 }
                 
@@ -88,100 +117,81 @@ public class Main {
                 return;
             }
             // Tentukan ErrorCalc
-            ErrorCalc errorCalc;
-            switch(config.errorMethod) {
-                case 1 -> errorCalc = new VarErrorCalc();
-                case 2 -> errorCalc = new MADErrorCalc();
-                case 3 -> errorCalc = new PixelDiffErrorCalc();
-                case 4 -> errorCalc = new EntropyErrorCalc();
-                case 5 -> errorCalc = new SSIMErrorCalc();
-                default -> {
-                    System.err.println("Metode error tidak diimplementasikan, default ke Variance!");
-                    errorCalc = new VarErrorCalc();
-                }
+            ErrorCalc errorCalc = Compressor.createErrorCalc(config.errorMethod);
+            if (errorCalc == null) {
+                System.err.println("Metode error tidak diimplementasikan, default ke Variance!");
+                errorCalc = new VarErrorCalc();
             }
             // Mulai timer
             long startTime = System.nanoTime();
-            // Jika targetCompression > 0, tuning threshold
-            if (config.targetCompression > 0) {
-                double desiredRatio = config.targetCompression; // 0..1
-                double low = 0.0;
-                double high = (config.errorMethod == 1) ? 65025 : 1.0;
-                // (Atur rentang high sesuai metode, misal SSIM=1.0, Var=65025, dsb.)
-                
-                double bestThreshold = config.threshold;
-                double tolerance = 0.01;
-                int maxIter = 20;
-                for (int i = 0; i < maxIter; i++) {
-                    double mid = (low + high) / 2.0;
-                    // Bangun Quadtree sementara - tanpa GIF recording untuk tuning
-                    QuadTree qt = new QuadTree(inputImage, mid, config.minBlockSize, errorCalc, false, 0, 1);
-                    qt.buildTree();
-                    int leaves = qt.countLeaves();
-                    int totalPixels = inputImage.getWidth() * inputImage.getHeight();
-                    double currentCompressionRatio = 1.0 - ( (double) leaves / totalPixels );
-                    
-                    if (Math.abs(currentCompressionRatio - desiredRatio) <= tolerance) {
-                        bestThreshold = mid;
-                        break;
+            QuadTree quadtree;
+            GifStreamFrameSink gifSink = null;
+            ImageOutputStream gifStream = null;
+            if (config.tileSize > 0) {
+                System.out.println("Membangun quadtree per tile...");
+                try {
+                    quadtree = TiledQuadTreeBuilder.build(new File(config.inputImagePath), config.tileSize,
+                            config.threshold, config.minBlockSize, errorCalc);
+                } catch (IOException e) {
+                    System.err.println("Gagal membaca gambar: " + e.getMessage());
+                    return;
+                }
+            } else {
+                // Frame GIF di-encode di thread lain selama pohon dibangun
+                if (config.createGif) {
+                    try {
+                        File gifFile = new File(config.gifOutputPath);
+                        File gifParentDir = gifFile.getParentFile();
+                        if (gifParentDir != null && !gifParentDir.exists()) gifParentDir.mkdirs();
+
+                        gifStream = new FileImageOutputStream(gifFile);
+                        gifSink = new GifStreamFrameSink(gifStream, config.gifDelay, GIF_QUEUE_CAPACITY);
+                    } catch (IOException e) {
+                        System.err.println("Gagal menulis GIF: " + e.getMessage());
+                        config.createGif = false;
                     }
-                    if (currentCompressionRatio < desiredRatio) {
-                        // kompresinya masih kurang (terlalu banyak leaf) => turunkan threshold
-                        high = mid;
-                    } else {
-                        // kompresinya kebanyakan => naikin threshold
-                        low = mid;
+                }
+            
+                System.out.println("Membangun quadtree...");
+                try {
+                    if (config.targetCompression > 0) {
+                        // Target kompresi diterjemahkan menjadi batas jumlah daun (rasio = 1 - daun/piksel),
+                        // lalu pohon dibangun sekali secara best-first tanpa mencari threshold
+                        long totalPixels = (long) inputImage.getWidth() * inputImage.getHeight();
+                        System.out.println("Target jumlah daun: " + Compressor.leafBudget(totalPixels, config.targetCompression));
                     }
-                    bestThreshold = mid;
+                    quadtree = Compressor.buildTree(inputImage, config, errorCalc, gifSink);
+                } catch (RuntimeException e) {
+                    abortGif(gifSink, gifStream);
+                    throw e;
+                } catch (OutOfMemoryError e) {
+                    abortGif(gifSink, gifStream);
+                    System.err.println("ERROR: Out of memory saat memproses gambar!");
+                    System.err.println("Coba lagi dengan parameter berikut:");
+                    System.err.println("- Nonaktifkan pembuatan GIF");
+                    System.err.println("- Kurangi ukuran gambar input");
+                    System.err.println("- Tingkatkan nilai threshold");
+                    System.err.println("- Tingkatkan ukuran blok minimum");
+                    return;
                 }
-                config.threshold = bestThreshold;
-                System.out.println("Optimal threshold ditemukan: " + config.threshold);
             }
             
-            // Bangun Quadtree final dengan pengaturan GIF yang sesuai
-            QuadTree quadtree = new QuadTree(
-                inputImage, 
-                config.threshold, 
-                config.minBlockSize, 
-                errorCalc,
-                config.createGif,
-                config.maxGifFrames,
-                config.gifFrameSkip
-            );
-            
-            System.out.println("Membangun quadtree...");
-            try {
-                quadtree.buildTree();
-            } catch (OutOfMemoryError e) {
-                System.err.println("ERROR: Out of memory saat memproses gambar!");
-                System.err.println("Coba lagi dengan parameter berikut:");
-                System.err.println("- Nonaktifkan pembuatan GIF");
-                System.err.println("- Kurangi ukuran gambar input");
-                System.err.println("- Tingkatkan nilai threshold");
-                System.err.println("- Tingkatkan ukuran blok minimum");
-                return;
+            // Pilih format output berdasarkan ekstensi file
+            String extension = Compressor.formatOf(config.outputImagePath);
+            boolean treeFormat = Compressor.isTreeFormat(extension);
+
+            // Hasil kompresi (format pohon tidak memerlukan raster penuh)
+            BufferedImage outputImage = null;
+            if (!treeFormat) {
+                System.out.println("Membuat gambar hasil kompresi...");
+                outputImage = quadtree.generateCompressedImage();
             }
-            
-            // Hasil kompresi
-            System.out.println("Membuat gambar hasil kompresi...");
-            BufferedImage outputImage = quadtree.generateCompressedImage();
             long endTime = System.nanoTime();
             double elapsedSec = (endTime - startTime) / 1e9;
             
             // Simpan
             try {
-                File outputFile = new File(config.outputImagePath);
-                // Buat direktori jika belum ada
-                File parentDir = outputFile.getParentFile();
-                if (parentDir != null && !parentDir.exists()) {
-                    parentDir.mkdirs();
-                }
-                
-                // Pilih format output berdasarkan ekstensi file
-                String extension = config.outputImagePath.substring(config.outputImagePath.lastIndexOf('.') + 1);
-                if (extension.isEmpty()) extension = "jpg";
-                
-                ImageIO.write(outputImage, extension, outputFile);
+                Compressor.write(quadtree, outputImage, extension, new File(config.outputImagePath));
                 System.out.println("Gambar hasil kompresi berhasil disimpan di: " + config.outputImagePath);
             } catch(IOException e) {
                 System.err.println("Gagal menulis gambar: " + e.getMessage());
@@ -203,33 +213,51 @@ public class Main {
             System.out.printf("Persentase kompresi  : %.2f%%%n", percent);
             System.out.println("Kedalaman pohon      : " + depth);
             System.out.println("Banyak simpul (leaf) : " + leaves);
+            if (errorCalc.getSkippedPixels() > 0) {
+                System.out.println("Piksel dilewati      : " + errorCalc.getSkippedPixels() + " (early exit)");
+            }
+            if (inputImage != null && outputImage != null) {
+                // Kualitas hasil dibanding gambar asli (bukan SSIM per blok yang dipakai untuk split)
+                double ssim;
+                try (Instrumentation.Span span = Instrumentation.begin(Instrumentation.Phase.QUALITY)) {
+                    ssim = SSIMErrorCalc.windowedSSIM(quadtree.getRaster(), ImageRaster.from(outputImage),
+                            SSIM_WINDOW, SSIM_STEP);
+                }
+                System.out.printf("SSIM terhadap asli   : %.4f%n", ssim);
+            }
             
-            // Buat GIF animasi jika diaktifkan
-            if (config.createGif) {
-                List<BufferedImage> frames = quadtree.getGifFrames();
-                System.out.println("Terekam " + frames.size() + " frame untuk animasi GIF.");
-                
-                if (!frames.isEmpty()) {
-                    try {
-                        File gifFile = new File(config.gifOutputPath);
-                        File gifParentDir = gifFile.getParentFile();
-                        if (gifParentDir != null && !gifParentDir.exists()) gifParentDir.mkdirs();
-                        
-                        try (ImageOutputStream ios = new FileImageOutputStream(gifFile)) {
-                            GIFSeqWriter gifWriter = new GIFSeqWriter(ios, BufferedImage.TYPE_INT_RGB, config.gifDelay, true);
-                            for (BufferedImage frame : frames) {
-                                gifWriter.writeToSequence(frame);
-                            }
-                            gifWriter.close();
-                        }
+            // Selesaikan GIF animasi jika diaktifkan
+            if (gifSink != null) {
+                try {
+                    gifSink.close();
+                    gifStream.close();
+                    System.out.println("Terekam " + gifSink.getFramesWritten() + " frame untuk animasi GIF.");
+                    if (gifSink.getFramesWritten() > 0) {
                         System.out.println("GIF proses kompresi berhasil disimpan di: " + config.gifOutputPath);
-                    } catch (IOException e) {
-                        System.err.println("Gagal menulis GIF: " + e.getMessage());
+                    } else {
+                        System.out.println("Tidak ada frame GIF yang direkam.");
+                        new File(config.gifOutputPath).delete();
                     }
-                } else {
-                    System.out.println("Tidak ada frame GIF yang direkam.");
+                } catch (IOException e) {
+                    System.err.println("Gagal menulis GIF: " + e.getMessage());
                 }
             }
+
+            // Rincian waktu per fase dan counter (hanya jika -Dquadtree.instrument=true)
+            Instrumentation.writeReport();
+        }
+    }
+
+    /**
+     * Menghentikan encoder GIF dan menutup stream-nya setelah pembangunan pohon gagal.
+     */
+    private static void abortGif(GifStreamFrameSink gifSink, ImageOutputStream gifStream) {
+        if (gifSink == null) return;
+        gifSink.abort();
+        try {
+            gifStream.close();
+        } catch (IOException e) {
+            // Diabaikan, GIF memang dibatalkan
         }
     }
 }
@@ -0,0 +1,233 @@
+import java.util.Arrays;
+
+/**
+ * Piramida nilai minimum dan maksimum per kanal yang mengikuti pembagian blok Quadtree
+ * (sama seperti HistogramPyramid). Min/max blok disimpan packed 0xRRGGBB per kanal,
+ * dibangun bottom-up sekali per gambar; min/max blok tersimpan didapat dengan menelusuri
+ * dari root (O(kedalaman)) tanpa memindai piksel.
+ */
+public class MinMaxPyramid {
+    public static final int CUTOFF = 4 * 4; // Luas blok terbesar yang tidak disimpan
+    private static final long EMPTY = 0xFFFFFFL << 32; // min = 0xFFFFFF, max = 0
+
+    private final ImageRaster raster;
+    private final int[] pixels; // null jika piksel raster tidak berada di heap
+    private final int width;
+    private final int height;
+
+    private int[] min = new int[0];        // Packed 0xRRGGBB, minimum per kanal
+    private int[] max = new int[0];        // Packed 0xRRGGBB, maksimum per kanal
+    private int[] firstChild = new int[0]; // -1 jika anaknya tidak disimpan
+    private int size;
+
+    public MinMaxPyramid(ImageRaster raster) {
+        this.raster = raster;
+        this.pixels = raster.getPixels();
+        this.width = raster.getWidth();
+        this.height = raster.getHeight();
+        if (isStored(width, height)) {
+            int root = allocate(1);
+            build(root, 0, 0, width, height);
+        }
+    }
+
+    private static boolean isStored(int w, int h) {
+        return w > 0 && h > 0 && (long) w * h > CUTOFF;
+    }
+
+    private int allocate(int count) {
+        int first = size;
+        size += count;
+        if (size > firstChild.length) {
+            int cap = Math.max(size, firstChild.length * 2);
+            firstChild = Arrays.copyOf(firstChild, cap);
+            min = Arrays.copyOf(min, cap);
+            max = Arrays.copyOf(max, cap);
+        }
+        for (int i = first; i < size; i++) {
+            firstChild[i] = -1;
+            min[i] = 0xFFFFFF;
+            max[i] = 0;
+        }
+        return first;
+    }
+
+    private void build(int node, int x, int y, int w, int h) {
+        int halfWidth = w / 2;
+        int halfHeight = h / 2;
+        if (!isStored(w - halfWidth, h - halfHeight)) {
+            // Anak terlalu kecil untuk disimpan: pindai blok ini langsung
+            long mm = scan(x, y, w, h);
+            min[node] = (int) (mm >>> 32);
+            max[node] = (int) mm;
+            return;
+        }
+
+        int child = allocate(4);
+        firstChild[node] = child;
+        build(child,     x,             y,              halfWidth,     halfHeight);
+        build(child + 1, x + halfWidth, y,              w - halfWidth, halfHeight);
+        build(child + 2, x,             y + halfHeight, halfWidth,     h - halfHeight);
+        build(child + 3, x + halfWidth, y + halfHeight, w - halfWidth, h - halfHeight);
+        combine(node, halfWidth, halfHeight);
+    }
+
+    /**
+     * Memperbarui node yang bloknya beririsan dengan [x,y,w,h] setelah piksel di area itu
+     * berubah: daun dipindai ulang, node lain digabung ulang dari anak-anaknya. Biayanya
+     * sebanding luas area ditambah jumlah node yang beririsan, bukan ukuran gambar.
+     */
+    public void update(int x, int y, int w, int h) {
+        if (size > 0) {
+            update(0, 0, 0, width, height, x, y, w, h);
+        }
+    }
+
+    private void update(int node, int nx, int ny, int nw, int nh, int x, int y, int w, int h) {
+        if (nw <= 0 || nh <= 0 || nx >= x + w || x >= nx + nw || ny >= y + h || y >= ny + nh) return;
+        int child = firstChild[node];
+        if (child < 0) {
+            long mm = scan(nx, ny, nw, nh);
+            min[node] = (int) (mm >>> 32);
+            max[node] = (int) mm;
+            return;
+        }
+        int halfWidth = nw / 2;
+        int halfHeight = nh / 2;
+        update(child,     nx,             ny,              halfWidth,      halfHeight,      x, y, w, h);
+        update(child + 1, nx + halfWidth, ny,              nw - halfWidth, halfHeight,      x, y, w, h);
+        update(child + 2, nx,             ny + halfHeight, halfWidth,      nh - halfHeight, x, y, w, h);
+        update(child + 3, nx + halfWidth, ny + halfHeight, nw - halfWidth, nh - halfHeight, x, y, w, h);
+        combine(node, halfWidth, halfHeight);
+    }
+
+    /**
+     * Min/max node = gabungan min/max keempat anaknya yang tidak kosong.
+     */
+    private void combine(int node, int halfWidth, int halfHeight) {
+        int child = firstChild[node];
+        int minR = 255, minG = 255, minB = 255;
+        int maxR = 0, maxG = 0, maxB = 0;
+        for (int k = 0; k < 4; k++) {
+            if ((halfWidth == 0 && (k & 1) == 0) || (halfHeight == 0 && k < 2)) continue; // Slot kosong
+            int lo = min[child + k];
+            int hi = max[child + k];
+            minR = Math.min(minR, (lo >> 16) & 0xFF);
+            minG = Math.min(minG, (lo >> 8) & 0xFF);
+            minB = Math.min(minB, lo & 0xFF);
+            maxR = Math.max(maxR, (hi >> 16) & 0xFF);
+            maxG = Math.max(maxG, (hi >> 8) & 0xFF);
+            maxB = Math.max(maxB, hi & 0xFF);
+        }
+        min[node] = (minR << 16) | (minG << 8) | minB;
+        max[node] = (maxR << 16) | (maxG << 8) | maxB;
+    }
+
+    /**
+     * Min/max per kanal blok [x,y,w,h] dengan memindai pikselnya:
+     * min packed di 32 bit atas, max packed di 32 bit bawah.
+     */
+    public long scan(int x, int y, int w, int h) {
+        if (pixels != null) {
+            return scan(pixels, width, x, y, w, h, EMPTY);
+        }
+        // Piksel di luar heap: disalin per pita baris ke scratch lalu dipindai
+        int bandRows = ImageRaster.bandRows(w);
+        int[] band = ImageRaster.scratch(bandRows * w);
+        long mm = EMPTY;
+        for (int j = y; j < y + h; j += bandRows) {
+            int rows = Math.min(bandRows, y + h - j);
+            raster.copyBlock(x, j, w, rows, band);
+            mm = scan(band, w, 0, 0, w, rows, mm);
+        }
+        return mm;
+    }
+
+    // Min/max blok dimulai dari hasil sebelumnya (EMPTY = belum ada piksel)
+    private static long scan(int[] pixels, int stride, int x, int y, int w, int h, long start) {
+        int lo0 = (int) (start >>> 32);
+        int hi0 = (int) start;
+        int maxR = (hi0 >> 16) & 0xFF, maxG = (hi0 >> 8) & 0xFF, maxB = hi0 & 0xFF;
+        int minR = (lo0 >> 16) & 0xFF, minG = (lo0 >> 8) & 0xFF, minB = lo0 & 0xFF;
+        for (int j = y; j < y + h; j++) {
+            int row = j * stride;
+            for (int i = x; i < x + w; i++) {
+                int rgb = pixels[row + i];
+                int r = (rgb >> 16) & 0xFF;
+                int g = (rgb >> 8) & 0xFF;
+                int b = rgb & 0xFF;
+                maxR = Math.max(maxR, r);
+                maxG = Math.max(maxG, g);
+                maxB = Math.max(maxB, b);
+                minR = Math.min(minR, r);
+                minG = Math.min(minG, g);
+                minB = Math.min(minB, b);
+            }
+        }
+        long lo = (minR << 16) | (minG << 8) | minB;
+        long hi = (maxR << 16) | (maxG << 8) | maxB;
+        return (lo << 32) | hi;
+    }
+
+    /**
+     * Min/max blok [x,y,w,h] dalam format yang sama dengan scan(). Blok yang sejajar
+     * dengan pembagian Quadtree dibaca dari piramida; blok lain dipindai langsung.
+     */
+    public long query(int x, int y, int w, int h) {
+        int node = find(x, y, w, h);
+        if (node < 0) {
+            return scan(x, y, w, h);
+        }
+        return get(node);
+    }
+
+    /**
+     * Min/max node hasil find() dalam format yang sama dengan scan().
+     */
+    public long get(int node) {
+        return ((long) min[node] << 32) | max[node];
+    }
+
+    /**
+     * Mencari blok [x,y,w,h] di piramida; mengembalikan indeks node untuk get(),
+     * atau -1 jika blok tidak tersimpan.
+     */
+    public int find(int x, int y, int w, int h) {
+        if (size == 0) return -1;
+        int node = 0;
+        int nx = 0, ny = 0, nw = width, nh = height;
+        while (true) {
+            if (nx == x && ny == y && nw == w && nh == h) {
+                return node;
+            }
+            int child = firstChild[node];
+            if (child < 0) return -1;
+            int halfWidth = nw / 2;
+            int halfHeight = nh / 2;
+            int k = 0;
+            if (x >= nx + halfWidth) {
+                k += 1;
+                nx += halfWidth;
+                nw -= halfWidth;
+            } else {
+                nw = halfWidth;
+            }
+            if (y >= ny + halfHeight) {
+                k += 2;
+                ny += halfHeight;
+                nh -= halfHeight;
+            } else {
+                nh = halfHeight;
+            }
+            if (nw <= 0 || nh <= 0 || w > nw || h > nh) return -1;
+            node = child + k;
+        }
+    }
+
+    /**
+     * Jumlah node tersimpan (untuk perkiraan memori: 3 int per node).
+     */
+    public int size() {
+        return size;
+    }
+}
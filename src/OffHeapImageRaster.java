@@ -0,0 +1,50 @@
+import java.awt.image.BufferedImage;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+
+/**
+ * ImageRaster dengan piksel packed RGB di MemorySegment (satu int per piksel, row-major,
+ * stride = width). getPixels() mengembalikan null; ErrorCalc dan piramida membaca piksel
+ * lewat copyBlock, dan integral image-nya juga off-heap (OffHeapIntegralImage).
+ */
+public class OffHeapImageRaster extends ImageRaster {
+    private final OffHeapStorage storage;
+    private final MemorySegment pixels;
+
+    private OffHeapImageRaster(OffHeapStorage storage, MemorySegment pixels, int width, int height) {
+        super(width, height);
+        this.storage = storage;
+        this.pixels = pixels;
+    }
+
+    /**
+     * Menyalin piksel image ke segmen baru per pita baris, tanpa int[] seukuran gambar.
+     */
+    static OffHeapImageRaster from(BufferedImage image, OffHeapStorage storage) {
+        int w = image.getWidth();
+        int h = image.getHeight();
+        MemorySegment pixels = storage.allocate((long) w * h * Integer.BYTES);
+        int bandRows = bandRows(w);
+        int[] band = new int[bandRows * w];
+        for (int y = 0; y < h; y += bandRows) {
+            int rows = Math.min(bandRows, h - y);
+            readRows(image, y, rows, band);
+            MemorySegment.copy(band, 0, pixels, ValueLayout.JAVA_INT, (long) y * w * Integer.BYTES, rows * w);
+        }
+        return new OffHeapImageRaster(storage, pixels, w, h);
+    }
+
+    @Override
+    public void copyBlock(int x, int y, int w, int h, int[] dst) {
+        long stride = (long) getWidth() * Integer.BYTES;
+        long offset = y * stride + (long) x * Integer.BYTES;
+        for (int j = 0; j < h; j++, offset += stride) {
+            MemorySegment.copy(pixels, ValueLayout.JAVA_INT, offset, dst, j * w, w);
+        }
+    }
+
+    @Override
+    protected IntegralImage createIntegral() {
+        return new OffHeapIntegralImage(this, storage);
+    }
+}
@@ -0,0 +1,126 @@
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+
+/**
+ * IntegralImage dengan tabel di MemorySegment. Tiap sel (width+1)*(height+1) menyimpan
+ * jumlah R, G, B berdampingan, sehingga satu query averageRGB hanya menyentuh 4 lokasi.
+ * Tabel jumlah kuadrat (tata letak sama) baru dibangun saat pertama kali dibutuhkan.
+ * Patch tidak didukung; raster off-heap memang tidak bisa diubah.
+ */
+public class OffHeapIntegralImage extends IntegralImage {
+    private static final long CELL_BYTES = 3L * Long.BYTES;
+
+    private final OffHeapImageRaster raster;
+    private final OffHeapStorage storage;
+    private final int stride; // width + 1, baris & kolom ke-0 selalu nol
+    private final MemorySegment sums;
+    private volatile MemorySegment squares;
+
+    OffHeapIntegralImage(OffHeapImageRaster raster, OffHeapStorage storage) {
+        super(raster.getWidth(), raster.getHeight());
+        this.raster = raster;
+        this.storage = storage;
+        this.stride = raster.getWidth() + 1;
+        this.sums = build(false);
+    }
+
+    /**
+     * Membangun tabel baris demi baris: piksel dibaca per baris dan baris tabel disusun
+     * di long[] sebelum disalin ke segmen, jadi memori heap yang dipakai hanya O(width).
+     */
+    private MemorySegment build(boolean squared) {
+        int width = getWidth();
+        int height = getHeight();
+        MemorySegment table = storage.allocate((long) stride * (height + 1) * CELL_BYTES);
+        int[] pixelRow = new int[width];
+        long[] above = new long[3 * stride];
+        long[] current = new long[3 * stride];
+        for (int j = 0; j < height; j++) {
+            raster.copyBlock(0, j, width, 1, pixelRow);
+            long rowR = 0, rowG = 0, rowB = 0;
+            for (int i = 0; i < width; i++) {
+                int rgb = pixelRow[i];
+                int r = (rgb >> 16) & 0xFF;
+                int g = (rgb >> 8) & 0xFF;
+                int b = rgb & 0xFF;
+                if (squared) {
+                    r *= r;
+                    g *= g;
+                    b *= b;
+                }
+                rowR += r;
+                rowG += g;
+                rowB += b;
+                int cell = 3 * (i + 1);
+                current[cell] = above[cell] + rowR;
+                current[cell + 1] = above[cell + 1] + rowG;
+                current[cell + 2] = above[cell + 2] + rowB;
+            }
+            MemorySegment.copy(current, 0, table, ValueLayout.JAVA_LONG, (j + 1) * stride * CELL_BYTES, 3 * stride);
+            long[] swap = above;
+            above = current;
+            current = swap;
+        }
+        return table;
+    }
+
+    private MemorySegment squares() {
+        MemorySegment result = squares;
+        if (result == null) {
+            synchronized (this) {
+                result = squares;
+                if (result == null) {
+                    result = build(true);
+                    squares = result;
+                }
+            }
+        }
+        return result;
+    }
+
+    private long blockSum(MemorySegment table, int channel, int x, int y, int w, int h) {
+        long top = (long) y * stride;
+        long bottom = (long) (y + h) * stride;
+        return at(table, bottom + x + w, channel) - at(table, bottom + x, channel)
+             - at(table, top + x + w, channel) + at(table, top + x, channel);
+    }
+
+    private static long at(MemorySegment table, long cell, int channel) {
+        return table.getAtIndex(ValueLayout.JAVA_LONG, 3 * cell + channel);
+    }
+
+    @Override
+    public long sumRed(int x, int y, int w, int h) {
+        return blockSum(sums, 0, x, y, w, h);
+    }
+
+    @Override
+    public long sumGreen(int x, int y, int w, int h) {
+        return blockSum(sums, 1, x, y, w, h);
+    }
+
+    @Override
+    public long sumBlue(int x, int y, int w, int h) {
+        return blockSum(sums, 2, x, y, w, h);
+    }
+
+    @Override
+    public long sumSqRed(int x, int y, int w, int h) {
+        return blockSum(squares(), 0, x, y, w, h);
+    }
+
+    @Override
+    public long sumSqGreen(int x, int y, int w, int h) {
+        return blockSum(squares(), 1, x, y, w, h);
+    }
+
+    @Override
+    public long sumSqBlue(int x, int y, int w, int h) {
+        return blockSum(squares(), 2, x, y, w, h);
+    }
+
+    @Override
+    public boolean canPatch(long area) {
+        return false;
+    }
+}
@@ -0,0 +1,155 @@
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.util.Arrays;
+
+/**
+ * QuadTreeNodeStore dengan record node di MemorySegment. Satu record 32 byte
+ * (x, y, width, height, rgb, firstChild sebagai int, lalu error sebagai double),
+ * dialokasikan per chunk CHUNK_SIZE record dari OffHeapStorage. Chunk tidak pernah
+ * dipindah saat store bertambah, jadi tidak ada salinan ulang seperti Arrays.copyOf.
+ */
+public class OffHeapNodeStore extends QuadTreeNodeStore {
+    private static final int CHUNK_BITS = 14;
+    private static final int CHUNK_SIZE = 1 << CHUNK_BITS;
+    private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+    private static final long RECORD_BYTES = 32;
+
+    private static final long X = 0, Y = 4, WIDTH = 8, HEIGHT = 12, RGB = 16, FIRST_CHILD = 20, ERROR = 24;
+
+    private final OffHeapStorage storage;
+    private MemorySegment[] chunks = new MemorySegment[0];
+    private int size;
+
+    OffHeapNodeStore(OffHeapStorage storage, int initialCapacity) {
+        super(initialCapacity, false);
+        this.storage = storage;
+        ensureCapacity(initialCapacity);
+    }
+
+    private void ensureCapacity(int needed) {
+        int count = (needed + CHUNK_MASK) >>> CHUNK_BITS;
+        if (count <= chunks.length) return;
+        int old = chunks.length;
+        chunks = Arrays.copyOf(chunks, count);
+        for (int c = old; c < count; c++) {
+            chunks[c] = storage.allocate(CHUNK_SIZE * RECORD_BYTES);
+        }
+    }
+
+    private MemorySegment chunk(int node) {
+        return chunks[node >>> CHUNK_BITS];
+    }
+
+    private static long offset(int node, long field) {
+        return (node & CHUNK_MASK) * RECORD_BYTES + field;
+    }
+
+    private int getInt(int node, long field) {
+        return chunk(node).get(ValueLayout.JAVA_INT, offset(node, field));
+    }
+
+    private void setInt(int node, long field, int value) {
+        chunk(node).set(ValueLayout.JAVA_INT, offset(node, field), value);
+    }
+
+    @Override
+    public int allocate(int count) {
+        ensureCapacity(size + count);
+        int first = size;
+        for (int i = first; i < first + count; i++) {
+            setInt(i, WIDTH, 0);
+            setInt(i, HEIGHT, 0);
+            setInt(i, FIRST_CHILD, NO_CHILD);
+        }
+        size += count;
+        if (Instrumentation.ENABLED) Instrumentation.NODES_CREATED.add(count);
+        return first;
+    }
+
+    @Override
+    public int allocateChildren(int node) {
+        int first = allocate(4);
+        setInt(node, FIRST_CHILD, first);
+        return first;
+    }
+
+    @Override
+    public void set(int node, int nx, int ny, int nWidth, int nHeight, int nRgb, double nError) {
+        MemorySegment chunk = chunk(node);
+        long base = offset(node, 0);
+        chunk.set(ValueLayout.JAVA_INT, base + X, nx);
+        chunk.set(ValueLayout.JAVA_INT, base + Y, ny);
+        chunk.set(ValueLayout.JAVA_INT, base + WIDTH, nWidth);
+        chunk.set(ValueLayout.JAVA_INT, base + HEIGHT, nHeight);
+        chunk.set(ValueLayout.JAVA_INT, base + RGB, nRgb);
+        chunk.set(ValueLayout.JAVA_INT, base + FIRST_CHILD, NO_CHILD);
+        chunk.set(ValueLayout.JAVA_DOUBLE, base + ERROR, nError);
+    }
+
+    @Override
+    public void setRGB(int node, int nRgb) {
+        setInt(node, RGB, nRgb);
+    }
+
+    @Override
+    public void setFirstChild(int node, int child) {
+        setInt(node, FIRST_CHILD, child);
+    }
+
+    /**
+     * Chunk tidak dipangkas; sisa chunk terakhir dibebaskan bersama storage.
+     */
+    @Override
+    public void trimToSize() {
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public int getX(int node) {
+        return getInt(node, X);
+    }
+
+    @Override
+    public int getY(int node) {
+        return getInt(node, Y);
+    }
+
+    @Override
+    public int getWidth(int node) {
+        return getInt(node, WIDTH);
+    }
+
+    @Override
+    public int getHeight(int node) {
+        return getInt(node, HEIGHT);
+    }
+
+    @Override
+    public int getRGB(int node) {
+        return getInt(node, RGB);
+    }
+
+    @Override
+    public double getError(int node) {
+        return chunk(node).get(ValueLayout.JAVA_DOUBLE, offset(node, ERROR));
+    }
+
+    @Override
+    public int getFirstChild(int node) {
+        return getInt(node, FIRST_CHILD);
+    }
+
+    @Override
+    public boolean isLeaf(int node) {
+        return getInt(node, FIRST_CHILD) == NO_CHILD;
+    }
+
+    @Override
+    public boolean isEmpty(int node) {
+        return getInt(node, WIDTH) <= 0 || getInt(node, HEIGHT) <= 0;
+    }
+}
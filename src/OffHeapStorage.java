@@ -0,0 +1,61 @@
+import java.awt.image.BufferedImage;
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Backend off-heap untuk satu gambar: piksel packed RGB, tabel integral image, dan record
+ * node Quadtree dialokasikan sebagai MemorySegment dari satu Arena, sehingga tidak ikut
+ * membesarkan heap dan tidak dipindai GC. close() membebaskan semuanya sekaligus; raster
+ * dan pohon yang dibuat lewat storage ini tidak boleh dipakai lagi setelahnya.
+ *
+ * Arena confined hanya boleh diakses thread pembuatnya. Pakai shared jika gambar berpindah
+ * thread (mis. decode/kompresi/encode di mode batch) atau dibangun paralel.
+ *
+ * Di JDK 21 API FFM masih preview: kelas off-heap dikompilasi dengan --enable-preview
+ * dan hanya dimuat jika backend ini dipakai. Kode lain tidak boleh menyimpan OffHeapStorage
+ * sebagai tipe induknya (mis. AutoCloseable), agar verifier tidak ikut memuatnya.
+ */
+public class OffHeapStorage implements AutoCloseable {
+    private final Arena arena;
+    private final AtomicLong allocatedBytes = new AtomicLong();
+
+    public OffHeapStorage(boolean shared) {
+        this.arena = shared ? Arena.ofShared() : Arena.ofConfined();
+    }
+
+    /**
+     * Raster off-heap berisi salinan piksel image; image boleh dilepas setelahnya.
+     */
+    public ImageRaster raster(BufferedImage image) {
+        return OffHeapImageRaster.from(image, this);
+    }
+
+    /**
+     * Store node off-heap, untuk QuadTree.setNodeStoreFactory.
+     */
+    public QuadTreeNodeStore nodeStore(int initialCapacity) {
+        return new OffHeapNodeStore(this, initialCapacity);
+    }
+
+    /**
+     * Segmen baru berisi nol, selaras 8 byte.
+     */
+    MemorySegment allocate(long bytes) {
+        MemorySegment segment = arena.allocate(bytes, 8);
+        allocatedBytes.addAndGet(bytes);
+        return segment;
+    }
+
+    /**
+     * Total byte yang sudah dialokasikan (termasuk segmen yang sudah tidak dipakai).
+     */
+    public long getAllocatedBytes() {
+        return allocatedBytes.get();
+    }
+
+    @Override
+    public void close() {
+        arena.close();
+    }
+}
@@ -1,18 +1,30 @@
-import java.awt.Color;
-import java.awt.image.BufferedImage;
+import java.util.concurrent.atomic.LongAdder;
 
 public class PixelDiffErrorCalc implements ErrorCalc {
+    private static final LongAdder PIXELS_TOUCHED = Instrumentation.pixelCounter("PixelDiffErrorCalc");
+    private final LongAdder skippedPixels = new LongAdder();
+
     @Override
-    public double computeError(BufferedImage image, int x, int y, int width, int height, Color avgColor) {
+    public double computeError(int[] pixels, int stride, int x, int y, int width, int height, int avgR, int avgG, int avgB) {
+        return computeErrorBounded(pixels, stride, x, y, width, height, Double.POSITIVE_INFINITY);
+    }
+
+    /**
+     * Selisih max-min hanya bisa membesar selama pemindaian, jadi pemindaian berhenti
+     * setelah baris pertama yang membuat selisih sementara > bound.
+     */
+    private double computeErrorBounded(int[] pixels, int stride, int x, int y, int width, int height, double bound) {
+        boolean bounded = bound < Double.POSITIVE_INFINITY;
         int maxR = 0, maxG = 0, maxB = 0;
         int minR = 255, minG = 255, minB = 255;
         
-        for (int i=x; i<x+width; i++) {
-            for (int j=y; j<y+height; j++) {
-                Color c = new Color(image.getRGB(i, j));
-                int r = c.getRed();
-                int g = c.getGreen();
-                int b = c.getBlue();
+        for (int j=y; j<y+height; j++) {
+            int row = j * stride;
+            for (int i=x; i<x+width; i++) {
+                int rgb = pixels[row + i];
+                int r = (rgb >> 16) & 0xFF;
+                int g = (rgb >> 8) & 0xFF;
+                int b = rgb & 0xFF;
                 maxR = Math.max(maxR, r);
                 maxG = Math.max(maxG, g);
                 maxB = Math.max(maxB, b);
@@ -20,11 +32,62 @@ public class PixelDiffErrorCalc implements ErrorCalc {
                 minG = Math.min(minG, g);
                 minB = Math.min(minB, b);
             }
+            if (bounded) {
+                double partial = ((double) (maxR - minR) + (maxG - minG) + (maxB - minB)) / 3;
+                if (partial > bound) {
+                    skippedPixels.add((long) (y + height - 1 - j) * width);
+                    if (Instrumentation.ENABLED) PIXELS_TOUCHED.add((long) (j - y + 1) * width);
+                    return partial;
+                }
+            }
         }
 
+        if (Instrumentation.ENABLED) PIXELS_TOUCHED.add((long) width * height);
         double dR = maxR - minR;
         double dG = maxG - minG;
         double dB = maxB - minB;
         return (dR+dG+dB) / 3;
     }
+
+    @Override
+    public double computeError(ImageRaster raster, int x, int y, int width, int height, int avgR, int avgG, int avgB) {
+        return computeErrorBounded(raster, x, y, width, height, avgR, avgG, avgB, Double.POSITIVE_INFINITY);
+    }
+
+    @Override
+    public double computeErrorBounded(ImageRaster raster, int x, int y, int width, int height,
+                                      int avgR, int avgG, int avgB, double bound) {
+        if ((long) width * height <= MinMaxPyramid.CUTOFF) {
+            int[] pixels = raster.getPixels();
+            if (pixels == null) {
+                // Piksel di luar heap: blok kecil disalin ke scratch
+                int[] block = ImageRaster.scratch(width * height);
+                raster.copyBlock(x, y, width, height, block);
+                return computeErrorBounded(block, width, 0, 0, width, height, bound);
+            }
+            return computeErrorBounded(pixels, raster.getWidth(), x, y, width, height, bound);
+        }
+
+        // Min/max blok besar dibaca dari piramida, tidak perlu memindai piksel
+        MinMaxPyramid pyramid = raster.minMax();
+        int node = pyramid.find(x, y, width, height);
+        long mm;
+        if (node >= 0) {
+            mm = pyramid.get(node);
+        } else {
+            mm = pyramid.scan(x, y, width, height);
+            if (Instrumentation.ENABLED) PIXELS_TOUCHED.add((long) width * height);
+        }
+        int lo = (int) (mm >>> 32);
+        int hi = (int) mm;
+        double dR = ((hi >> 16) & 0xFF) - ((lo >> 16) & 0xFF);
+        double dG = ((hi >> 8) & 0xFF) - ((lo >> 8) & 0xFF);
+        double dB = (hi & 0xFF) - (lo & 0xFF);
+        return (dR+dG+dB) / 3;
+    }
+
+    @Override
+    public long getSkippedPixels() {
+        return skippedPixels.sum();
+    }
 }
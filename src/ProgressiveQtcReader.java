@@ -0,0 +1,102 @@
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+
+/**
+ * Mendekode stream ProgressiveQtcWriter. Node dibaca level demi level dan
+ * bloknya langsung diwarnai, sehingga prefix mana pun (dibatasi jumlah byte
+ * atau kedalaman) menghasilkan gambar terbaik yang tersedia sejauh ini.
+ */
+public class ProgressiveQtcReader {
+    public static final long NO_LIMIT = Long.MAX_VALUE;
+
+    private static final int HEADER_BYTES = 12;
+
+    public static BufferedImage readImage(File file, long byteBudget, int maxDepth) throws IOException {
+        try (InputStream in = new BufferedInputStream(new FileInputStream(file))) {
+            return readImage(in, byteBudget, maxDepth);
+        }
+    }
+
+    /**
+     * @param byteBudget jumlah byte stream (termasuk header) yang boleh dibaca, NO_LIMIT = semua
+     * @param maxDepth   jumlah level yang didekode, Integer.MAX_VALUE = semua
+     * @return gambar TYPE_INT_RGB; stream yang terpotong tetap menghasilkan gambar
+     */
+    public static BufferedImage readImage(InputStream stream, long byteBudget, int maxDepth) throws IOException {
+        DataInputStream in = new DataInputStream(stream);
+        byte[] magic = new byte[4];
+        in.readFully(magic);
+        if (!Arrays.equals(magic, ProgressiveQtcWriter.MAGIC)) {
+            throw new IOException("Bukan file .qtp yang valid");
+        }
+        int width = in.readInt();
+        int height = in.readInt();
+        if (width <= 0 || height <= 0) {
+            throw new IOException("Header .qtp rusak");
+        }
+        if ((long) width * height > QtcReader.MAX_PIXELS) {
+            throw new IOException("Ukuran gambar .qtp terlalu besar: " + width + "x" + height);
+        }
+
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        int[] pixels = ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+        long remaining = byteBudget - HEADER_BYTES;
+
+        // Geometri node pada level saat ini: x, y, w, h berurutan
+        int[] level = { 0, 0, width, height };
+        int levelSize = 1;
+        try {
+            for (int depth = 0; depth < maxDepth && levelSize > 0; depth++) {
+                for (int i = 0; i < levelSize; i++) {
+                    if (remaining < 3) return image;
+                    int rgb = (in.readUnsignedByte() << 16) | (in.readUnsignedByte() << 8) | in.readUnsignedByte();
+                    remaining -= 3;
+                    int x = level[i * 4], y = level[i * 4 + 1], w = level[i * 4 + 2], h = level[i * 4 + 3];
+                    for (int j = y; j < y + h; j++) {
+                        Arrays.fill(pixels, j * width + x, j * width + x + w, rgb);
+                    }
+                }
+
+                int[] next = new int[levelSize * 16];
+                int nextSize = 0;
+                int bits = 0;
+                for (int i = 0; i < levelSize; i++) {
+                    if ((i & 7) == 0) {
+                        if (remaining < 1) return image;
+                        bits = in.readUnsignedByte();
+                        remaining--;
+                    }
+                    if ((bits & (0x80 >>> (i & 7))) == 0) continue;
+
+                    int x = level[i * 4], y = level[i * 4 + 1], w = level[i * 4 + 2], h = level[i * 4 + 3];
+                    int halfWidth = w / 2;
+                    int halfHeight = h / 2;
+                    int[][] quads = {
+                        { x,             y,              halfWidth,     halfHeight },
+                        { x + halfWidth, y,              w - halfWidth, halfHeight },
+                        { x,             y + halfHeight, halfWidth,     h - halfHeight },
+                        { x + halfWidth, y + halfHeight, w - halfWidth, h - halfHeight }
+                    };
+                    for (int[] q : quads) {
+                        if (q[2] <= 0 || q[3] <= 0) continue; // Slot kosong tidak ditulis
+                        System.arraycopy(q, 0, next, nextSize * 4, 4);
+                        nextSize++;
+                    }
+                }
+                level = next;
+                levelSize = nextSize;
+            }
+        } catch (EOFException e) {
+            // Stream belum lengkap: kembalikan gambar terbaik sejauh ini
+        }
+        return image;
+    }
+}
@@ -0,0 +1,74 @@
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Menulis QuadTree secara breadth-first (per level) untuk decoding progresif:
+ * <pre>
+ *   "QTP1" | int width | int height
+ *   | level 0: warna rata-rata 3 byte per node | bit split per node (MSB dulu, dibulatkan ke byte)
+ *   | level 1: ... dst.
+ * </pre>
+ * Setiap node (termasuk node internal) membawa warna rata-ratanya, sehingga
+ * prefix stream mana pun sudah bisa dirender menjadi gambar yang lebih kasar.
+ * Stream tidak dikompresi agar prefix-nya tetap bisa didekode.
+ */
+public class ProgressiveQtcWriter {
+    public static final byte[] MAGIC = { 'Q', 'T', 'P', '1' };
+
+    public static void write(QuadTree tree, File file) throws IOException {
+        try (OutputStream out = new BufferedOutputStream(new FileOutputStream(file))) {
+            write(tree, out);
+        }
+    }
+
+    public static void write(QuadTree tree, OutputStream stream) throws IOException {
+        DataOutputStream out = new DataOutputStream(stream);
+        out.write(MAGIC);
+        out.writeInt(tree.getWidth());
+        out.writeInt(tree.getHeight());
+
+        QuadTreeNodeStore nodes = tree.getNodes();
+        int[] level = new int[1];
+        int levelSize = 0;
+        if (nodes.size() > 0 && !nodes.isEmpty(QuadTree.ROOT)) {
+            level[levelSize++] = QuadTree.ROOT;
+        }
+
+        while (levelSize > 0) {
+            // Warna semua node pada level ini
+            for (int i = 0; i < levelSize; i++) {
+                int rgb = nodes.getRGB(level[i]);
+                out.writeByte(rgb >> 16);
+                out.writeByte(rgb >> 8);
+                out.writeByte(rgb);
+            }
+
+            // Bit split level ini, sekaligus kumpulkan node level berikutnya
+            int[] next = new int[levelSize * 4];
+            int nextSize = 0;
+            int bits = 0;
+            for (int i = 0; i < levelSize; i++) {
+                int node = level[i];
+                boolean split = !nodes.isLeaf(node);
+                if (split) {
+                    bits |= 0x80 >>> (i & 7);
+                    int child = nodes.getFirstChild(node);
+                    for (int k = 0; k < 4; k++) {
+                        if (!nodes.isEmpty(child + k)) next[nextSize++] = child + k;
+                    }
+                }
+                if ((i & 7) == 7 || i == levelSize - 1) {
+                    out.writeByte(bits);
+                    bits = 0;
+                }
+            }
+            level = next;
+            levelSize = nextSize;
+        }
+        out.flush();
+    }
+}
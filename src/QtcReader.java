@@ -0,0 +1,191 @@
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Membaca format .qtc yang ditulis QtcWriter, baik menjadi QuadTree
+ * maupun langsung menjadi gambar tanpa membangun pohon.
+ */
+public class QtcReader {
+    // Piksel terbanyak yang muat di satu raster int[] (batas ukuran array Java)
+    static final long MAX_PIXELS = Integer.MAX_VALUE - 8;
+    // Kapasitas awal store node; store tetap bertambah jika nodeCount lebih besar
+    private static final int MAX_INITIAL_NODES = 1 << 16;
+
+    private final int width;
+    private final int height;
+    private final int nodeCount;
+    private final int leafCount;
+
+    private final byte[] bits;
+    private int bitPos = 0;
+    private final byte[] colors;
+    private int colorPos = 0;
+
+    /**
+     * Membaca dan memeriksa header, lalu bitmap dan warna daun. Isi body dibaca bertahap
+     * (readNBytes), sehingga header yang rusak tidak bisa memaksa alokasi besar sebelum
+     * datanya benar-benar ada.
+     */
+    private QtcReader(InputStream stream) throws IOException {
+        DataInputStream in = new DataInputStream(stream);
+        byte[] magic = new byte[4];
+        in.readFully(magic);
+        if (!Arrays.equals(magic, QtcWriter.MAGIC)) {
+            throw new IOException("Bukan file .qtc yang valid");
+        }
+        width = in.readInt();
+        height = in.readInt();
+        nodeCount = in.readInt();
+        leafCount = in.readInt();
+        if (width < 0 || height < 0 || nodeCount < 0 || leafCount < 0) {
+            throw new IOException("Header .qtc rusak");
+        }
+        long pixels = (long) width * height;
+        if (pixels > MAX_PIXELS || 3L * leafCount > MAX_PIXELS) {
+            throw new IOException("Ukuran gambar .qtc terlalu besar: " + width + "x" + height);
+        }
+        // Setiap daun minimal 1 piksel, dan setiap node internal punya >= 2 anak (node <= 2 * daun - 1)
+        boolean consistent = (nodeCount == 0)
+                ? leafCount == 0
+                : pixels > 0 && leafCount >= 1 && leafCount <= pixels
+                        && nodeCount >= leafCount && nodeCount <= 2L * leafCount - 1;
+        if (!consistent) {
+            throw new IOException("Header .qtc rusak: " + nodeCount + " node, " + leafCount
+                    + " daun untuk " + width + "x" + height);
+        }
+
+        InputStream body = new BufferedInputStream(new InflaterInputStream(in), 65536);
+        bits = readExactly(body, (nodeCount + 7) / 8);
+        colors = readExactly(body, 3 * leafCount);
+    }
+
+    private static byte[] readExactly(InputStream in, int length) throws IOException {
+        byte[] data = in.readNBytes(length);
+        if (data.length < length) {
+            throw new EOFException("File .qtc terpotong");
+        }
+        return data;
+    }
+
+    /**
+     * Dipanggil setelah pohon selesai dibaca: jumlah node dan daun harus sama dengan header.
+     */
+    private void checkConsumed() throws IOException {
+        if (bitPos != nodeCount || colorPos != colors.length) {
+            throw new IOException("Isi .qtc tidak sesuai header");
+        }
+    }
+
+    public static QuadTree readTree(File file) throws IOException {
+        try (InputStream in = new BufferedInputStream(new FileInputStream(file))) {
+            return readTree(in);
+        }
+    }
+
+    /**
+     * Membangun ulang QuadTree. Hanya daun yang memiliki warna; node internal berwarna 0 dan error 0.
+     */
+    public static QuadTree readTree(InputStream stream) throws IOException {
+        QtcReader reader = new QtcReader(stream);
+        QuadTreeNodeStore nodes = new QuadTreeNodeStore(Math.max(4, Math.min(reader.nodeCount, MAX_INITIAL_NODES)));
+        int root = nodes.allocate(1);
+        if (reader.nodeCount > 0) {
+            reader.readNode(nodes, root, 0, 0, reader.width, reader.height);
+        }
+        reader.checkConsumed();
+        nodes.trimToSize();
+        return new QuadTree(reader.width, reader.height, nodes);
+    }
+
+    public static BufferedImage readImage(File file) throws IOException {
+        try (InputStream in = new BufferedInputStream(new FileInputStream(file))) {
+            return readImage(in);
+        }
+    }
+
+    /**
+     * Mendekode langsung ke raster TYPE_INT_RGB, setiap daun diisi per baris.
+     */
+    public static BufferedImage readImage(InputStream stream) throws IOException {
+        QtcReader reader = new QtcReader(stream);
+        BufferedImage image = new BufferedImage(Math.max(1, reader.width), Math.max(1, reader.height), BufferedImage.TYPE_INT_RGB);
+        int[] pixels = ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+        if (reader.nodeCount > 0) {
+            reader.fillNode(pixels, 0, 0, reader.width, reader.height);
+        }
+        reader.checkConsumed();
+        return image;
+    }
+
+    private boolean readBit() throws IOException {
+        if (bitPos >= nodeCount) {
+            throw new EOFException("Bitmap split .qtc terpotong");
+        }
+        boolean bit = (bits[bitPos >> 3] & (0x80 >>> (bitPos & 7))) != 0;
+        bitPos++;
+        return bit;
+    }
+
+    /**
+     * Bit split untuk blok w x h; blok 1x1 tidak bisa di-split (anaknya akan berupa blok yang sama).
+     */
+    private boolean readSplit(int w, int h) throws IOException {
+        boolean split = readBit();
+        if (split && w == 1 && h == 1) {
+            throw new IOException("Bitmap .qtc rusak: blok 1x1 di-split");
+        }
+        return split;
+    }
+
+    private int readColor() throws IOException {
+        if (colorPos + 3 > colors.length) {
+            throw new IOException("Isi .qtc tidak sesuai header: daun lebih banyak dari " + leafCount);
+        }
+        int r = colors[colorPos++] & 0xFF;
+        int g = colors[colorPos++] & 0xFF;
+        int b = colors[colorPos++] & 0xFF;
+        return (r << 16) | (g << 8) | b;
+    }
+
+    private void readNode(QuadTreeNodeStore nodes, int node, int x, int y, int w, int h) throws IOException {
+        if (w <= 0 || h <= 0) return; // Slot kosong, tidak ada di stream
+        if (!readSplit(w, h)) {
+            nodes.set(node, x, y, w, h, readColor(), 0.0);
+            return;
+        }
+        nodes.set(node, x, y, w, h, 0, 0.0);
+        int child = nodes.allocateChildren(node);
+        int halfWidth = w / 2;
+        int halfHeight = h / 2;
+        readNode(nodes, child,     x,             y,              halfWidth,     halfHeight);
+        readNode(nodes, child + 1, x + halfWidth, y,              w - halfWidth, halfHeight);
+        readNode(nodes, child + 2, x,             y + halfHeight, halfWidth,     h - halfHeight);
+        readNode(nodes, child + 3, x + halfWidth, y + halfHeight, w - halfWidth, h - halfHeight);
+    }
+
+    private void fillNode(int[] pixels, int x, int y, int w, int h) throws IOException {
+        if (w <= 0 || h <= 0) return;
+        if (!readSplit(w, h)) {
+            int rgb = readColor();
+            for (int j = y; j < y + h; j++) {
+                Arrays.fill(pixels, j * width + x, j * width + x + w, rgb);
+            }
+            return;
+        }
+        int halfWidth = w / 2;
+        int halfHeight = h / 2;
+        fillNode(pixels, x,             y,              halfWidth,     halfHeight);
+        fillNode(pixels, x + halfWidth, y,              w - halfWidth, halfHeight);
+        fillNode(pixels, x,             y + halfHeight, halfWidth,     h - halfHeight);
+        fillNode(pixels, x + halfWidth, y + halfHeight, w - halfWidth, h - halfHeight);
+    }
+}
@@ -0,0 +1,94 @@
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.zip.DeflaterOutputStream;
+
+/**
+ * Menulis QuadTree ke format biner .qtc:
+ * <pre>
+ *   "QTC1" | int width | int height | int nodeCount | int leafCount
+ *   | DEFLATE( split bitmap depth-first, 1 bit per node non-kosong (1 = di-split), MSB dulu
+ *            | warna daun packed RGB 3 byte per daun, urutan depth-first )
+ * </pre>
+ * Geometri blok tidak disimpan karena bisa dihitung ulang dari ukuran gambar
+ * dengan aturan split yang sama seperti QuadTree.
+ */
+public class QtcWriter {
+    public static final byte[] MAGIC = { 'Q', 'T', 'C', '1' };
+
+    private byte[] bits = new byte[256];
+    private int bitCount = 0;
+    private byte[] colors = new byte[768];
+    private int colorBytes = 0;
+    private int nodeCount = 0;
+
+    public static void write(QuadTree tree, File file) throws IOException {
+        try (OutputStream out = new BufferedOutputStream(new FileOutputStream(file))) {
+            write(tree, out);
+        }
+    }
+
+    /**
+     * Menelusuri pohon sekali (depth-first), lalu menulis header, bitmap, dan warna daun ke out.
+     */
+    public static void write(QuadTree tree, OutputStream out) throws IOException {
+        QtcWriter writer = new QtcWriter();
+        QuadTreeNodeStore nodes = tree.getNodes();
+        if (nodes.size() > 0) {
+            writer.visit(nodes, QuadTree.ROOT);
+        }
+
+        DataOutputStream header = new DataOutputStream(out);
+        header.write(MAGIC);
+        header.writeInt(tree.getWidth());
+        header.writeInt(tree.getHeight());
+        header.writeInt(writer.nodeCount);
+        header.writeInt(writer.colorBytes / 3);
+        header.flush();
+
+        DeflaterOutputStream body = new DeflaterOutputStream(out);
+        body.write(writer.bits, 0, (writer.bitCount + 7) / 8);
+        body.write(writer.colors, 0, writer.colorBytes);
+        body.finish();
+        out.flush();
+    }
+
+    private void visit(QuadTreeNodeStore nodes, int node) {
+        if (nodes.isEmpty(node)) return;
+        nodeCount++;
+        if (nodes.isLeaf(node)) {
+            writeBit(false);
+            writeColor(nodes.getRGB(node));
+            return;
+        }
+        writeBit(true);
+        int child = nodes.getFirstChild(node);
+        for (int k = 0; k < 4; k++) {
+            visit(nodes, child + k);
+        }
+    }
+
+    private void writeBit(boolean bit) {
+        int index = bitCount >> 3;
+        if (index >= bits.length) {
+            bits = Arrays.copyOf(bits, bits.length * 2);
+        }
+        if (bit) {
+            bits[index] |= (byte) (0x80 >>> (bitCount & 7));
+        }
+        bitCount++;
+    }
+
+    private void writeColor(int rgb) {
+        if (colorBytes + 3 > colors.length) {
+            colors = Arrays.copyOf(colors, colors.length * 2);
+        }
+        colors[colorBytes++] = (byte) (rgb >> 16);
+        colors[colorBytes++] = (byte) (rgb >> 8);
+        colors[colorBytes++] = (byte) rgb;
+    }
+}
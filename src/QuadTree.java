@@ -1,24 +1,60 @@
 import java.awt.Color;
 import java.awt.Graphics;
+import java.awt.Rectangle;
 import java.awt.image.BufferedImage;
+import java.awt.image.ColorModel;
+import java.awt.image.DataBufferInt;
+import java.awt.image.IndexColorModel;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.IntFunction;
 
 public class QuadTree {
 
     private BufferedImage image;
+    private int sourceType = BufferedImage.TYPE_INT_RGB; // Tipe gambar asli untuk hasil render
+    private ColorModel sourceColorModel;
+    private int width, height; // Ukuran gambar (juga untuk pohon hasil decode tanpa image)
     private int minBlockSize;
     private double threshold;
     private ErrorCalc errorCalculator;
+    private ImageRaster raster; // Piksel packed RGB, diekstrak sekali dari image
 
-    private QuadTreeNode root;
-    private List<BufferedImage> gifFrames; // Menyimpan frame GIF (bonus)
+    public static final int ROOT = 0; // Indeks root pada node store
+
+    private QuadTreeNodeStore nodes = new QuadTreeNodeStore(1);
+    private List<BufferedImage> gifFrames; // Menyimpan frame GIF (bonus) jika tidak ada FrameSink lain
+    private FrameSink frameSink;           // Tujuan setiap frame yang direkam
+    private int framesRecorded = 0;        // Jumlah frame yang sudah diserahkan ke frameSink
+
+    // Kanvas persisten: gambar asli + boundary daun yang sudah diputuskan. Setiap daun
+    // digambar sekali, frame cukup berupa salinan kanvas (tidak menggambar ulang pohon)
+    private BufferedImage canvas;
+    private Graphics canvasGraphics;
+    private double canvasScale = 1.0;
     
     private boolean recordGif = true;
     private int maxFrames = 100; // Jumlah maksimum frame yang akan direkam
-    private int frameSkip = 1;   // Rekam setiap frame ke-N (1 = rekam semua)
-    private int frameCount = 0;  // Penghitung untuk melacak frame yang dilewati
-    private int totalFramesPossible = 0; // Penghitung untuk semua frame yang mungkin
+    private int frameSkip = 1;   // Jarak antar frame: level (mode threshold) atau daun (mode target)
+    private int plannedFrames = 0; // Jumlah frame yang dijadwalkan sebelum pembangunan dimulai
+
+    private boolean earlyExit = true;        // Error boleh dihitung sebagian jika sudah pasti > threshold
+    private boolean exactErrors = false;     // Pohon hasil buildTree tanpa early exit, bisa dipotong (cut)
+    private boolean builtByThreshold = false; // Bentuk pohon ditentukan threshold (buildTree, cut, buildTreeReusing)
+    private boolean sharedRaster = false;    // Pohon hasil cut memakai raster milik pohon sumbernya
+    private double errorBound = Double.POSITIVE_INFINITY; // Bound untuk computeErrorBounded pada pembangunan aktif
+
+    private int orphanedNodes = 0;           // Slot yang tidak terjangkau lagi setelah updateRegions menggabung node
+
+    private IntFunction<QuadTreeNodeStore> nodeStoreFactory = QuadTreeNodeStore::new; // Store pohon hasil
+
+    private int parallelism = 1;             // Jumlah thread pembangunan (1 = serial)
+    private int parallelCutoff = 64 * 64;    // Luas blok minimum untuk dipecah jadi task paralel
     
     public QuadTree(BufferedImage image, double threshold, int minBlockSize, ErrorCalc errorCalculator) {
         this(image, threshold, minBlockSize, errorCalculator, true, 100, 1);
@@ -27,77 +63,605 @@ public class QuadTree {
     public QuadTree(BufferedImage image, double threshold, int minBlockSize, ErrorCalc errorCalculator,
                    boolean recordGif, int maxFrames, int frameSkip) {
         this.image = image;
+        this.sourceType = image.getType();
+        this.sourceColorModel = image.getColorModel();
+        this.width = image.getWidth();
+        this.height = image.getHeight();
         this.threshold = threshold;
         this.minBlockSize = minBlockSize;
         this.errorCalculator = errorCalculator;
+        this.raster = ImageRaster.from(image);
         this.gifFrames = new ArrayList<>();
         this.recordGif = recordGif;
         this.maxFrames = maxFrames;
         this.frameSkip = frameSkip;
-        
-        // Menonaktifkan perekaman GIF berukuran besar untuk menghindari masalah memori
-        if (recordGif && (image.getWidth() * image.getHeight() > 2000000)) { // > ~2 megapixels
-            System.out.println("Peringatan: Gambar besar terdeteksi. Perekaman GIF dibatasi hingga " + maxFrames + " frame.");
-            this.frameSkip = Math.max(2, frameSkip); // Skip frame untuk gambar berukuran besar
-        }
+        this.frameSink = gifFrames::add;
     }
 
-    public QuadTreeNode getRoot() {
-        return root;
+    /**
+     * Membuat QuadTree langsung dari raster packed RGB (tanpa BufferedImage dan tanpa GIF),
+     * mis. untuk satu tile gambar besar.
+     */
+    public QuadTree(ImageRaster raster, double threshold, int minBlockSize, ErrorCalc errorCalculator) {
+        this.raster = raster;
+        this.width = raster.getWidth();
+        this.height = raster.getHeight();
+        this.threshold = threshold;
+        this.minBlockSize = minBlockSize;
+        this.errorCalculator = errorCalculator;
+        this.gifFrames = new ArrayList<>();
+        this.recordGif = false;
     }
 
+    /**
+     * Pohon hasil cut: berbagi gambar, raster, dan pengaturan dengan source, memakai node yang sudah dipotong.
+     */
+    private QuadTree(QuadTree source, double threshold, QuadTreeNodeStore nodes) {
+        this.image = source.image;
+        this.sourceType = source.sourceType;
+        this.sourceColorModel = source.sourceColorModel;
+        this.raster = source.raster;
+        this.width = source.width;
+        this.height = source.height;
+        this.threshold = threshold;
+        this.minBlockSize = source.minBlockSize;
+        this.errorCalculator = source.errorCalculator;
+        this.parallelism = source.parallelism;
+        this.parallelCutoff = source.parallelCutoff;
+        this.nodeStoreFactory = source.nodeStoreFactory;
+        this.nodes = nodes;
+        this.exactErrors = true;
+        this.builtByThreshold = true;
+        this.sharedRaster = true;
+        this.gifFrames = new ArrayList<>();
+        this.recordGif = false;
+    }
+
+    public ImageRaster getRaster() {
+        return raster;
+    }
+
+    /**
+     * Membuat QuadTree dari node yang sudah jadi (mis. hasil QtcReader) tanpa gambar sumber.
+     * Pohon seperti ini hanya untuk ditelusuri dan dirender, bukan dibangun ulang.
+     */
+    public QuadTree(int width, int height, QuadTreeNodeStore nodes) {
+        this.width = width;
+        this.height = height;
+        this.nodes = nodes;
+        this.gifFrames = new ArrayList<>();
+        this.recordGif = false;
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    public QuadTreeNodeStore getNodes() {
+        return nodes;
+    }
+
+    /**
+     * Frame yang terkumpul jika tidak memakai FrameSink sendiri (lihat setFrameSink).
+     */
     public List<BufferedImage> getGifFrames() {
         return gifFrames;
     }
 
+    /**
+     * Mengarahkan frame GIF ke sink lain (mis. GifStreamFrameSink) alih-alih
+     * menyimpannya di getGifFrames(). Sink tidak ditutup oleh QuadTree.
+     */
+    public void setFrameSink(FrameSink frameSink) {
+        this.frameSink = frameSink;
+    }
+
+    public int getFramesRecorded() {
+        return framesRecorded;
+    }
+
+    /**
+     * Jumlah frame GIF pada pembangunan terakhir. Jadwalnya ditentukan sebelum pembangunan
+     * dimulai dan tidak bergantung pada isi gambar, sehingga GIF-nya selalu bisa direproduksi.
+     */
+    public int getPlannedFrames() {
+        return plannedFrames;
+    }
+
     /** 
      * Membangun Quadtree; panggil ini di Main.
      */
+    @SuppressWarnings("try")
     public void buildTree() {
-        root = buildTreeRecursive(0, 0, image.getWidth(), image.getHeight(), 0);
-        // Rekam frame final jika diperlukan
-        recordFrame();
+        try (Instrumentation.Span span = Instrumentation.begin(Instrumentation.Phase.BUILD)) {
+            buildTreeByThreshold();
+        }
+    }
+
+    private void buildTreeByThreshold() {
+        nodes = nodeStoreFactory.apply(1024);
+        int root = nodes.allocate(1);
+        framesRecorded = 0;
+        errorBound = earlyExit ? threshold : Double.POSITIVE_INFINITY;
+        exactErrors = !earlyExit;
+        builtByThreshold = true;
+        if (recordGif) {
+            // Dibangun per level agar setiap frame = satu level kedalaman yang selesai
+            buildTreeByLevel(root);
+        } else if (parallelism > 1) {
+            // Subtree saling independen jika GIF tidak direkam, bangun secara paralel
+            ForkJoinPool pool = new ForkJoinPool(parallelism);
+            try {
+                Subtree tree = pool.invoke(new BuildTask(0, 0, width, height, 0));
+                assemble(tree, root);
+            } finally {
+                pool.shutdown();
+            }
+        } else {
+            buildTreeRecursive(root, 0, 0, width, height, 0);
+        }
+        nodes.trimToSize();
     }
 
     /**
-     * Fungsi rekursif untuk membangun Quadtree.
-     * Jika error > threshold dan blok masih lebih besar dari minBlockSize, blok di-split.
+     * Pembangunan breadth-first (hasilnya sama dengan buildTreeRecursive). Semua node pada
+     * satu kedalaman dievaluasi sebelum kedalaman berikutnya, lalu satu frame direkam jika
+     * kedalaman itu ada di jadwal. Jadwal dihitung dari kedalaman maksimum yang mungkin
+     * secara geometris; level yang tidak tercapai tetap direkam (berisi pohon final),
+     * sehingga jumlah frame selalu sama dengan getPlannedFrames().
      */
-    private QuadTreeNode buildTreeRecursive(int x, int y, int width, int height, int depth) {
-        // Pastikan tidak keluar dari batas
-        if (x < 0) x = 0;
-        if (y < 0) y = 0;
-        if (x + width > image.getWidth()) {
-            width = image.getWidth() - x;
+    private void buildTreeByLevel(int root) {
+        boolean[] frameAtDepth = planLevelFrames(maxPossibleDepth());
+        openCanvas();
+
+        int[] level = new int[0];
+        if (evaluateNode(nodes, root, 0, 0, width, height, 0)) {
+            drawBlockOnCanvas(root);
+            level = new int[] { root };
         }
-        if (y + height > image.getHeight()) {
-            height = image.getHeight() - y;
+        for (int depth = 0; depth < frameAtDepth.length; depth++) {
+            if (frameAtDepth[depth]) recordFrame();
+
+            // Split semua node di level ini yang perlu di-split
+            int[] next = new int[level.length * 4];
+            int count = 0;
+            for (int node : level) {
+                if (!needsSplit(nodes, node)) continue;
+                int x = nodes.getX(node);
+                int y = nodes.getY(node);
+                int halfWidth = nodes.getWidth(node) / 2;
+                int halfHeight = nodes.getHeight(node) / 2;
+                int width2 = nodes.getWidth(node) - halfWidth;
+                int height2 = nodes.getHeight(node) - halfHeight;
+                int child = nodes.allocateChildren(node);
+                evaluateNode(nodes, child,     x,             y,              halfWidth, halfHeight, depth + 1);
+                evaluateNode(nodes, child + 1, x + halfWidth, y,              width2,    halfHeight, depth + 1);
+                evaluateNode(nodes, child + 2, x,             y + halfHeight, halfWidth, height2,    depth + 1);
+                evaluateNode(nodes, child + 3, x + halfWidth, y + halfHeight, width2,    height2,    depth + 1);
+                for (int k = 0; k < 4; k++) {
+                    if (nodes.isEmpty(child + k)) continue;
+                    drawBlockOnCanvas(child + k);
+                    next[count++] = child + k;
+                }
+            }
+            level = Arrays.copyOf(next, count);
         }
-        if (width <= 0 || height <= 0) {
-            return null;
+        closeCanvas();
+    }
+
+    /**
+     * Kedalaman terdalam yang bisa dicapai jika semua blok di-split: blok terbesar pada
+     * setiap kedalaman adalah separuh yang dibulatkan ke atas.
+     */
+    private int maxPossibleDepth() {
+        int depth = 0;
+        int w = width, h = height;
+        while (w > minBlockSize && h > minBlockSize && (w > 1 || h > 1)) {
+            w -= w / 2;
+            h -= h / 2;
+            depth++;
         }
+        return depth;
+    }
 
-        // Hitung rata-rata warna
-        Color avgColor = computeAverageColor(x, y, width, height);
-        // Hitung error
-        double error = errorCalculator.computeError(image, x, y, width, height, avgColor);
+    /**
+     * Memilih kedalaman yang direkam: setiap frameSkip level dihitung mundur dari level
+     * terdalam (frame terakhir selalu pohon final), lalu dijarangkan merata jika melebihi maxFrames.
+     */
+    private boolean[] planLevelFrames(int maxDepth) {
+        int skip = Math.max(1, frameSkip);
+        int candidates = maxDepth / skip + 1;
+        int frames = Math.min(candidates, Math.max(1, maxFrames));
+        boolean[] frameAtDepth = new boolean[maxDepth + 1];
+        for (int i = 0; i < frames; i++) {
+            // Kandidat ke-c (c = 0 paling dangkal) ada di kedalaman maxDepth - (candidates - 1 - c) * skip
+            int c = (frames == 1) ? candidates - 1 : (int) ((long) i * (candidates - 1) / (frames - 1));
+            frameAtDepth[maxDepth - (candidates - 1 - c) * skip] = true;
+        }
+        plannedFrames = frames;
+        if (Instrumentation.ENABLED) Instrumentation.FRAMES_SKIPPED.add(candidates - frames);
+        return frameAtDepth;
+    }
 
-        boolean isBlockTooSmall = (width <= minBlockSize || height <= minBlockSize);
-        boolean errorAcceptable = (error <= threshold);
+    /**
+     * Membangun Quadtree dalam satu kali jalan dengan batas jumlah daun (mode target kompresi).
+     * Daun dengan error terbesar selalu di-split lebih dulu (best-first, memakai priority queue)
+     * sampai jumlah daun mencapai maxLeaves atau tidak ada daun yang masih bisa di-split.
+     * Threshold tidak dipakai pada mode ini, sehingga berlaku untuk semua ErrorCalc.
+     */
+    @SuppressWarnings("try")
+    public void buildTreeWithLeafBudget(int maxLeaves) {
+        try (Instrumentation.Span span = Instrumentation.begin(Instrumentation.Phase.BUILD)) {
+            buildTreeBestFirst(maxLeaves);
+        }
+    }
 
-        // Jika error sudah OK atau blok sudah kecil, jadikan daun
-        if (isBlockTooSmall || errorAcceptable) {
-            // Rekam frame ketika kita memutuskan daun
+    private void buildTreeBestFirst(int maxLeaves) {
+        nodes = nodeStoreFactory.apply(1024);
+        int root = nodes.allocate(1);
+        framesRecorded = 0;
+        plannedFrames = 0;
+        errorBound = Double.POSITIVE_INFINITY; // Urutan split butuh error eksak
+        exactErrors = false;                   // Bentuk pohon ditentukan batas daun, bukan threshold
+        builtByThreshold = false;
+        if (!evaluateNode(nodes, root, 0, 0, this.width, this.height, 0)) {
+            return;
+        }
+        // Frame ke-k direkam begitu jumlah daun mencapai k/frames dari maxLeaves
+        int frames = recordGif ? Math.min(Math.max(1, maxFrames), Math.max(1, maxLeaves / Math.max(1, frameSkip))) : 0;
+        plannedFrames = frames;
+        if (Instrumentation.ENABLED && recordGif) {
+            Instrumentation.FRAMES_SKIPPED.add(Math.max(0, maxLeaves / Math.max(1, frameSkip) - frames));
+        }
+        openCanvas();
+        drawBlockOnCanvas(root);
+
+        // Error terbesar di depan; jika sama, node yang lebih dulu dibuat
+        PriorityQueue<Integer> queue = new PriorityQueue<>((a, b) -> {
+            int cmp = Double.compare(nodes.getError(b), nodes.getError(a));
+            return (cmp != 0) ? cmp : Integer.compare(a, b);
+        });
+        if (canSplit(root)) queue.add(root);
+
+        int[] depthOf = new int[64]; // Kedalaman per slot node (untuk rincian instrumentasi)
+        int leaves = 1;
+        while (!queue.isEmpty()) {
+            int node = queue.peek();
+            int width = nodes.getWidth(node);
+            int height = nodes.getHeight(node);
+            int halfWidth = width / 2;
+            int halfHeight = height / 2;
+
+            // Split menambah (jumlah anak tidak kosong - 1) daun
+            int nonEmpty = ((halfWidth > 0) ? 2 : 1) * ((halfHeight > 0) ? 2 : 1);
+            if (leaves + nonEmpty - 1 > maxLeaves) break;
+            queue.poll();
+
+            int x = nodes.getX(node);
+            int y = nodes.getY(node);
+            int width2 = width - halfWidth;
+            int height2 = height - halfHeight;
+            int child = nodes.allocateChildren(node);
+            if (child + 4 > depthOf.length) {
+                depthOf = Arrays.copyOf(depthOf, Math.max(child + 4, depthOf.length * 2));
+            }
+            int depth = depthOf[node] + 1;
+            for (int k = 0; k < 4; k++) depthOf[child + k] = depth;
+            evaluateNode(nodes, child,     x,             y,              halfWidth, halfHeight, depth);
+            evaluateNode(nodes, child + 1, x + halfWidth, y,              width2,    halfHeight, depth);
+            evaluateNode(nodes, child + 2, x,             y + halfHeight, halfWidth, height2,    depth);
+            evaluateNode(nodes, child + 3, x + halfWidth, y + halfHeight, width2,    height2,    depth);
+            for (int k = 0; k < 4; k++) {
+                if (nodes.isEmpty(child + k)) continue;
+                drawBlockOnCanvas(child + k);
+                if (canSplit(child + k)) queue.add(child + k);
+            }
+            leaves += nonEmpty - 1;
+            while (framesRecorded < frames - 1 && leaves >= (long) (framesRecorded + 1) * maxLeaves / frames) {
+                recordFrame();
+            }
+        }
+        nodes.trimToSize();
+        // Sisa jadwal (termasuk frame terakhir) berisi pohon final
+        while (framesRecorded < frames) {
             recordFrame();
-            return new QuadTreeNode(x, y, width, height, avgColor, error);
         }
+        closeCanvas();
+    }
 
-        // Kalau masih butuh di-split
-        QuadTreeNode node = new QuadTreeNode(x, y, width, height, avgColor, error);
-        node.children = new QuadTreeNode[4];
+    /**
+     * Node masih bisa di-split pada mode leaf budget: blok lebih besar dari minBlockSize
+     * dan masih punya error (membagi blok tanpa error tidak mengubah hasil).
+     */
+    private boolean canSplit(int node) {
+        boolean isBlockTooSmall = (nodes.getWidth(node) <= minBlockSize || nodes.getHeight(node) <= minBlockSize);
+        return !isBlockTooSmall && nodes.getError(node) > 0;
+    }
 
-        // Rekam frame sebelum pembagian
-        recordFrame();
+    /**
+     * Mengaktifkan/menonaktifkan early exit pada mode threshold (default aktif).
+     * Jika aktif, error node internal bisa berupa batas bawah (> threshold) dan bukan
+     * error eksak; error daun selalu eksak. Nonaktifkan jika error node internal dipakai.
+     */
+    public void setEarlyExit(boolean earlyExit) {
+        this.earlyExit = earlyExit;
+    }
+
+    /**
+     * Membangun pohon untuk frame berikutnya dari sebuah urutan gambar: subtree previous yang
+     * bloknya tidak berubah menurut changes disalin apa adanya, hanya blok yang berubah yang
+     * dievaluasi ulang dengan ErrorCalc. Isi sebuah subtree hanya bergantung pada piksel bloknya
+     * (posisi blok ditentukan ukuran gambar), jadi hasilnya sama dengan buildTree pada frame ini.
+     * previous harus dibangun dengan threshold, minBlockSize, early exit, dan jenis ErrorCalc yang sama.
+     * GIF proses tidak direkam dan pembangunan selalu serial. Mengembalikan jumlah node yang disalin.
+     */
+    @SuppressWarnings("try")
+    public int buildTreeReusing(QuadTree previous, FrameChanges changes) {
+        if (!previous.builtByThreshold || previous.width != width || previous.height != height
+                || previous.threshold != threshold || previous.minBlockSize != minBlockSize
+                || previous.earlyExit != earlyExit
+                || previous.errorCalculator.getClass() != errorCalculator.getClass()) {
+            throw new IllegalArgumentException("Pohon frame sebelumnya dibangun dengan pengaturan berbeda");
+        }
+        if (changes.getWidth() != width || changes.getHeight() != height) {
+            throw new IllegalArgumentException("Ukuran changes tidak sama dengan ukuran frame");
+        }
+        try (Instrumentation.Span span = Instrumentation.begin(Instrumentation.Phase.BUILD)) {
+            QuadTreeNodeStore previousNodes = previous.nodes;
+            nodes = nodeStoreFactory.apply(previousNodes.size());
+            framesRecorded = 0;
+            plannedFrames = 0;
+            errorBound = earlyExit ? threshold : Double.POSITIVE_INFINITY;
+            exactErrors = !earlyExit;
+            builtByThreshold = true;
+            int reused = buildTreeReusing(previousNodes, ROOT, nodes.allocate(1), 0, 0, width, height, 0, changes, 0);
+            nodes.trimToSize();
+            return reused;
+        }
+    }
+
+    /**
+     * Rekursi buildTreeReusing; previousNode = slot yang sama pada pohon sebelumnya
+     * (NO_CHILD jika di sana blok ini tidak di-split). Mengembalikan reused + node yang disalin.
+     */
+    private int buildTreeReusing(QuadTreeNodeStore previousNodes, int previousNode, int node,
+                                 int x, int y, int width, int height, int depth, FrameChanges changes, int reused) {
+        if (previousNode != QuadTreeNodeStore.NO_CHILD && !previousNodes.isEmpty(previousNode)
+                && !changes.changed(x, y, width, height)) {
+            int start = nodes.size();
+            nodes.copySubtree(previousNodes, previousNode, node);
+            return reused + 1 + (nodes.size() - start);
+        }
+        if (!evaluateNode(nodes, node, x, y, width, height, depth) || !needsSplit(nodes, node)) {
+            return reused;
+        }
+        x = nodes.getX(node);
+        y = nodes.getY(node);
+        width = nodes.getWidth(node);
+        height = nodes.getHeight(node);
+        int child = nodes.allocateChildren(node);
+        int previousChild = (previousNode == QuadTreeNodeStore.NO_CHILD || previousNodes.isEmpty(previousNode))
+                ? QuadTreeNodeStore.NO_CHILD : previousNodes.getFirstChild(previousNode);
+
+        int halfWidth = width / 2;
+        int halfHeight = height / 2;
+        int width2 = width - halfWidth;
+        int height2 = height - halfHeight;
+        reused = buildTreeReusing(previousNodes, childOf(previousChild, 0), child,     x,             y,              halfWidth, halfHeight, depth+1, changes, reused);
+        reused = buildTreeReusing(previousNodes, childOf(previousChild, 1), child + 1, x + halfWidth, y,              width2,    halfHeight, depth+1, changes, reused);
+        reused = buildTreeReusing(previousNodes, childOf(previousChild, 2), child + 2, x,             y + halfHeight, halfWidth, height2,    depth+1, changes, reused);
+        reused = buildTreeReusing(previousNodes, childOf(previousChild, 3), child + 3, x + halfWidth, y + halfHeight, width2,    height2,    depth+1, changes, reused);
+        return reused;
+    }
+
+    private static int childOf(int firstChild, int k) {
+        return (firstChild == QuadTreeNodeStore.NO_CHILD) ? QuadTreeNodeStore.NO_CHILD : firstChild + k;
+    }
+
+    /**
+     * Kompresi ulang inkremental setelah gambar sumber diubah pada area dirty (mis. oleh editor).
+     * Piksel area dirty disalin dari source ke raster (struktur bantu ErrorCalc ikut diperbarui),
+     * lalu hanya node yang bloknya beririsan dengan area dirty yang dihitung ulang: node yang
+     * tetap di-split diteruskan ke anak-anaknya, node yang tidak perlu di-split lagi digabung
+     * menjadi daun, dan daun yang kini perlu di-split dibangun subtree-nya. Node lain tidak
+     * disentuh, jadi biayanya sebanding luas area dirty (dan blok yang digabung/di-split),
+     * bukan ukuran gambar. Hasilnya sama dengan buildTree pada gambar yang sudah diubah.
+     * Pohon hasil cut dari pohon ini ikut melihat raster yang sudah diperbarui.
+     *
+     * @param source gambar yang sudah diubah (boleh objek yang sama dengan gambar asli)
+     * @param dirty area yang berubah; dipotong ke batas gambar
+     * @param compressed hasil generateCompressedImage sebelumnya (TYPE_INT_RGB) yang diperbarui
+     *                   di tempat, atau null
+     * @return jumlah node yang dihitung ulang atau dibuat
+     */
+    @SuppressWarnings("try")
+    public int updateRegions(BufferedImage source, List<Rectangle> dirty, BufferedImage compressed) {
+        if (!builtByThreshold || raster == null) {
+            throw new IllegalStateException("Hanya pohon hasil buildTree yang bisa diperbarui");
+        }
+        if (sharedRaster) {
+            throw new IllegalStateException("Pohon hasil cut berbagi raster; perbarui pohon sumbernya lalu potong ulang");
+        }
+        if (raster.getPixels() == null) {
+            throw new IllegalStateException("Pohon dengan raster off-heap tidak bisa diperbarui");
+        }
+        if (source.getWidth() != width || source.getHeight() != height) {
+            throw new IllegalArgumentException("Ukuran gambar berubah: " + source.getWidth() + "x" + source.getHeight());
+        }
+        int[] output = null;
+        if (compressed != null) {
+            if (compressed.getType() != BufferedImage.TYPE_INT_RGB
+                    || compressed.getWidth() != width || compressed.getHeight() != height) {
+                throw new IllegalArgumentException("Gambar hasil harus TYPE_INT_RGB berukuran sama");
+            }
+            output = ((DataBufferInt) compressed.getRaster().getDataBuffer()).getData();
+        }
+
+        List<Rectangle> clipped = new ArrayList<>();
+        Rectangle bounds = new Rectangle(0, 0, width, height);
+        for (Rectangle r : dirty) {
+            Rectangle c = r.intersection(bounds);
+            if (!c.isEmpty()) clipped.add(c);
+        }
+        if (clipped.isEmpty()) return 0;
+
+        try (Instrumentation.Span span = Instrumentation.begin(Instrumentation.Phase.BUILD)) {
+            for (Rectangle r : clipped) {
+                raster.update(source, r.x, r.y, r.width, r.height);
+            }
+            image = source;
+            setSourceType(source.getType(), source.getColorModel());
+            errorBound = exactErrors ? Double.POSITIVE_INFINITY : threshold;
+            int updated = updateNode(ROOT, clipped, output, 0);
+            if (orphanedNodes > nodes.size() / 2) {
+                // Terlalu banyak slot yatim: salin pohon yang masih terjangkau ke store baru
+                QuadTreeNodeStore compact = nodeStoreFactory.apply(nodes.size() - orphanedNodes);
+                compact.copySubtree(nodes, ROOT, compact.allocate(1));
+                compact.trimToSize();
+                nodes = compact;
+                orphanedNodes = 0;
+            }
+            return updated;
+        }
+    }
+
+    /**
+     * Rekursi updateRegions; output (jika tidak null) diisi ulang untuk daun yang berubah.
+     */
+    private int updateNode(int node, List<Rectangle> dirty, int[] output, int depth) {
+        if (nodes.isEmpty(node)) return 0;
+        int x = nodes.getX(node);
+        int y = nodes.getY(node);
+        int w = nodes.getWidth(node);
+        int h = nodes.getHeight(node);
+        boolean touched = false;
+        for (Rectangle r : dirty) {
+            if (r.x < x + w && x < r.x + r.width && r.y < y + h && y < r.y + r.height) {
+                touched = true;
+                break;
+            }
+        }
+        if (!touched) return 0;
+
+        int oldChild = nodes.getFirstChild(node);
+        evaluateNode(nodes, node, x, y, w, h, depth); // Juga menjadikannya daun (firstChild direset)
+        int updated = 1;
+        if (!needsSplit(nodes, node)) {
+            if (oldChild != QuadTreeNodeStore.NO_CHILD) {
+                orphanedNodes += countSlots(oldChild); // Digabung: subtree lama tidak terjangkau lagi
+            }
+            if (output != null) fillCompressedImage(output, node);
+        } else if (oldChild != QuadTreeNodeStore.NO_CHILD) {
+            nodes.setFirstChild(node, oldChild);
+            for (int k = 0; k < 4; k++) {
+                updated += updateNode(oldChild + k, dirty, output, depth + 1);
+            }
+        } else {
+            // Daun yang kini perlu di-split: bangun subtree-nya seperti buildTreeRecursive
+            int before = nodes.size();
+            int child = nodes.allocateChildren(node);
+            int halfWidth = w / 2;
+            int halfHeight = h / 2;
+            buildTreeRecursive(nodes, child,     x,             y,             halfWidth,     halfHeight,     depth + 1);
+            buildTreeRecursive(nodes, child + 1, x + halfWidth, y,             w - halfWidth, halfHeight,     depth + 1);
+            buildTreeRecursive(nodes, child + 2, x,             y + halfHeight, halfWidth,    h - halfHeight, depth + 1);
+            buildTreeRecursive(nodes, child + 3, x + halfWidth, y + halfHeight, w - halfWidth, h - halfHeight, depth + 1);
+            updated += nodes.size() - before;
+            if (output != null) fillCompressedImage(output, node);
+        }
+        return updated;
+    }
+
+    // Jumlah slot (termasuk slot kosong) dalam blok anak mulai firstChild beserta keturunannya
+    private int countSlots(int firstChild) {
+        int count = 4;
+        for (int k = 0; k < 4; k++) {
+            int child = nodes.getFirstChild(firstChild + k);
+            if (!nodes.isEmpty(firstChild + k) && child != QuadTreeNodeStore.NO_CHILD) {
+                count += countSlots(child);
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Memotong pohon pada threshold yang lebih tinggi tanpa membangun ulang: node dengan
+     * error <= cutThreshold menjadi daun. Error dan warna rata-rata sebuah node tidak bergantung
+     * pada threshold, jadi hasilnya sama dengan buildTree pada cutThreshold, dengan biaya
+     * sebanding jumlah node hasil potongan. Pohon harus dibangun dengan buildTree dan
+     * setEarlyExit(false), karena error node internal harus eksak.
+     */
+    public QuadTree cut(double cutThreshold) {
+        if (!exactErrors) {
+            throw new IllegalStateException("Pohon hanya bisa dipotong jika dibangun dengan buildTree tanpa early exit");
+        }
+        if (cutThreshold < threshold) {
+            throw new IllegalArgumentException("Threshold potongan (" + cutThreshold
+                    + ") lebih kecil dari threshold pembangunan (" + threshold + ")");
+        }
+        QuadTreeNodeStore cutNodes = nodeStoreFactory.apply(1024);
+        cutNodes.copySubtreeCut(nodes, ROOT, cutNodes.allocate(1), cutThreshold);
+        cutNodes.trimToSize();
+        return new QuadTree(this, cutThreshold, cutNodes);
+    }
+
+    /**
+     * Tipe gambar asli untuk pohon yang dibuat dari raster (mis. off-heap), agar hasil render
+     * grayscale/berpalet tetap dikembalikan ke tipe itu tanpa menyimpan BufferedImage-nya.
+     */
+    public void setSourceType(int type, ColorModel colorModel) {
+        this.sourceType = type;
+        this.sourceColorModel = colorModel;
+    }
+
+    /**
+     * Pembuat store untuk node pohon hasil (argumennya kapasitas awal), mis. store off-heap
+     * dari OffHeapStorage. Store sementara milik task pembangunan paralel tetap di heap
+     * dan langsung disalin ke store hasil.
+     */
+    public void setNodeStoreFactory(IntFunction<QuadTreeNodeStore> nodeStoreFactory) {
+        this.nodeStoreFactory = nodeStoreFactory;
+    }
+
+    /**
+     * Mengatur jumlah thread untuk pembangunan paralel (1 = serial) dan
+     * luas blok minimum (dalam piksel) yang masih dipecah menjadi task terpisah.
+     * Pembangunan paralel hanya berlaku jika perekaman GIF dimatikan;
+     * generateCompressedImage selalu memakai pengaturan ini.
+     */
+    public void setParallelism(int parallelism, int parallelCutoff) {
+        this.parallelism = Math.max(1, parallelism);
+        this.parallelCutoff = Math.max(1, parallelCutoff);
+    }
+
+    /**
+     * Fungsi rekursif untuk membangun Quadtree ke slot node pada store.
+     * Jika error > threshold dan blok masih lebih besar dari minBlockSize, blok di-split.
+     */
+    private void buildTreeRecursive(int node, int x, int y, int width, int height, int depth) {
+        buildTreeRecursive(nodes, node, x, y, width, height, depth);
+    }
+
+    private void buildTreeRecursive(QuadTreeNodeStore store, int node, int x, int y, int width, int height, int depth) {
+        if (!evaluateNode(store, node, x, y, width, height, depth)) {
+            return; // Blok kosong, slot dibiarkan kosong
+        }
+
+        // Jika error sudah OK atau blok sudah kecil, jadikan daun
+        if (!needsSplit(store, node)) {
+            return;
+        }
+
+        // Kalau masih butuh di-split
+        x = store.getX(node);
+        y = store.getY(node);
+        width = store.getWidth(node);
+        height = store.getHeight(node);
+        int child = store.allocateChildren(node);
 
         int halfWidth = width / 2;
         int halfHeight = height / 2;
@@ -105,75 +669,207 @@ public class QuadTree {
         int height2 = height - halfHeight;  // Menangani ganjil
 
         // Split 4 sub-blok
-        node.children[0] = buildTreeRecursive(x,          y,          halfWidth,  halfHeight, depth+1);
-        recordFrame();
-        node.children[1] = buildTreeRecursive(x + halfWidth, y,       width2,     halfHeight, depth+1);
-        recordFrame();
-        node.children[2] = buildTreeRecursive(x,          y + halfHeight, halfWidth,  height2, depth+1);
-        recordFrame();
-        node.children[3] = buildTreeRecursive(x + halfWidth, y + halfHeight, width2, height2, depth+1);
-        recordFrame();
+        buildTreeRecursive(store, child,     x,             y,              halfWidth, halfHeight, depth+1);
+        buildTreeRecursive(store, child + 1, x + halfWidth, y,              width2,    halfHeight, depth+1);
+        buildTreeRecursive(store, child + 2, x,             y + halfHeight, halfWidth, height2,    depth+1);
+        buildTreeRecursive(store, child + 3, x + halfWidth, y + halfHeight, width2,    height2,    depth+1);
+    }
+
+    /**
+     * Mengisi slot node dengan blok (dipotong ke batas gambar) beserta warna rata-rata
+     * dan error-nya, tanpa anak. Mengembalikan false jika blok kosong.
+     * depth hanya dipakai untuk rincian waktu per kedalaman pada instrumentasi.
+     */
+    private boolean evaluateNode(QuadTreeNodeStore store, int node, int x, int y, int width, int height, int depth) {
+        long start = Instrumentation.ENABLED ? System.nanoTime() : 0;
+        // Pastikan tidak keluar dari batas
+        if (x < 0) x = 0;
+        if (y < 0) y = 0;
+        if (x + width > raster.getWidth()) {
+            width = raster.getWidth() - x;
+        }
+        if (y + height > raster.getHeight()) {
+            height = raster.getHeight() - y;
+        }
+        if (width <= 0 || height <= 0) {
+            return false;
+        }
+
+        // Hitung rata-rata warna
+        int avgRGB = computeAverageColor(x, y, width, height);
+        // Hitung error; blok yang masih bisa di-split cukup dibuktikan error-nya > threshold
+        boolean isBlockTooSmall = (width <= minBlockSize || height <= minBlockSize);
+        double bound = isBlockTooSmall ? Double.POSITIVE_INFINITY : errorBound;
+        double error = errorCalculator.computeErrorBounded(raster, x, y, width, height,
+                (avgRGB >> 16) & 0xFF, (avgRGB >> 8) & 0xFF, avgRGB & 0xFF, bound);
+        store.set(node, x, y, width, height, avgRGB, error);
+        if (Instrumentation.ENABLED) {
+            Instrumentation.ERROR_EVALUATIONS.increment();
+            Instrumentation.nodeEvaluated(depth, System.nanoTime() - start);
+        }
+        return true;
+    }
 
-        return node;
+    private boolean needsSplit(QuadTreeNodeStore store, int node) {
+        boolean isBlockTooSmall = (store.getWidth(node) <= minBlockSize || store.getHeight(node) <= minBlockSize);
+        boolean errorAcceptable = (store.getError(node) <= threshold);
+        return !(isBlockTooSmall || errorAcceptable);
     }
 
     /**
-     * Merekam satu frame ke gifFrames, menampilkan "batas" di sekitar blok daun
-     * agar terlihat proses splitting.
-     * Dengan parameter depth untuk memungkinkan rekaman yang lebih selektif.
+     * Hasil sementara pembangunan paralel: node di atas cutoff beserta 4 anaknya,
+     * atau subtree di bawah cutoff yang sudah dibangun serial ke store tersendiri.
      */
+    private static class Subtree {
+        QuadTreeNodeStore store; // Node berada di slot 0 store ini
+        Subtree[] children;      // Hanya untuk node di atas cutoff yang di-split
+    }
+
+    /**
+     * Task fork-join untuk satu blok. Blok yang lebih kecil dari parallelCutoff
+     * dibangun secara serial dengan buildTreeRecursive ke store lokal.
+     */
+    private class BuildTask extends RecursiveTask<Subtree> {
+        private static final long serialVersionUID = 1L;
+
+        private final int x, y, width, height, depth;
+
+        BuildTask(int x, int y, int width, int height, int depth) {
+            this.x = x;
+            this.y = y;
+            this.width = width;
+            this.height = height;
+            this.depth = depth;
+        }
+
+        @Override
+        protected Subtree compute() {
+            Subtree result = new Subtree();
+            if ((long) width * height < parallelCutoff) {
+                result.store = new QuadTreeNodeStore(16);
+                buildTreeRecursive(result.store, result.store.allocate(1), x, y, width, height, depth);
+                return result;
+            }
+            result.store = new QuadTreeNodeStore(4);
+            int node = result.store.allocate(1);
+            if (!evaluateNode(result.store, node, x, y, width, height, depth) || !needsSplit(result.store, node)) {
+                return result;
+            }
+
+            int nx = result.store.getX(node);
+            int ny = result.store.getY(node);
+            int halfWidth = result.store.getWidth(node) / 2;
+            int halfHeight = result.store.getHeight(node) / 2;
+            int width2 = result.store.getWidth(node) - halfWidth;
+            int height2 = result.store.getHeight(node) - halfHeight;
+
+            BuildTask[] tasks = {
+                new BuildTask(nx,             ny,              halfWidth, halfHeight, depth+1),
+                new BuildTask(nx + halfWidth, ny,              width2,    halfHeight, depth+1),
+                new BuildTask(nx,             ny + halfHeight, halfWidth, height2,    depth+1),
+                new BuildTask(nx + halfWidth, ny + halfHeight, width2,    height2,    depth+1)
+            };
+            tasks[1].fork();
+            tasks[2].fork();
+            tasks[3].fork();
+            result.children = new Subtree[4];
+            result.children[0] = tasks[0].compute();
+            result.children[3] = tasks[3].join();
+            result.children[2] = tasks[2].join();
+            result.children[1] = tasks[1].join();
+            return result;
+        }
+    }
+
+    /**
+     * Menyusun hasil pembangunan paralel ke store utama dengan urutan alokasi
+     * yang sama seperti pembangunan serial, sehingga store-nya identik.
+     */
+    private void assemble(Subtree tree, int node) {
+        if (tree.children == null) {
+            nodes.copySubtree(tree.store, 0, node);
+            return;
+        }
+        QuadTreeNodeStore src = tree.store;
+        nodes.set(node, src.getX(0), src.getY(0), src.getWidth(0), src.getHeight(0), src.getRGB(0), src.getError(0));
+        int child = nodes.allocateChildren(node);
+        for (int k = 0; k < 4; k++) {
+            assemble(tree.children[k], child + k);
+        }
+    }
+
+    /**
+     * Merekam satu frame ke frameSink, menampilkan "batas" di sekitar blok
+     * agar terlihat proses splitting. Kapan frame direkam ditentukan oleh jadwal
+     * pemanggilnya (per level atau per jumlah daun), bukan di sini.
+     */
+    @SuppressWarnings("try")
     private void recordFrame() {
-        // Skip jika GIF recording dimatikan
         if (!recordGif) return;
-        
-        // Hitung total kemungkinan frame
-        totalFramesPossible++;
-        
-        // Skip berdasarkan frameSkip
-        frameCount++;
-        if ((frameCount % frameSkip) != 0) return;
-        
-        // Stop jika sudah mencapai batas frame
-        if (gifFrames.size() >= maxFrames) return;
-        
-        // Untuk mendapatkan distribusi frame yang lebih merata, kita bisa coba
-        // skema sampling berdasarkan prediksi total frame
-        if (totalFramesPossible > maxFrames * 4 && gifFrames.size() > 10) {
-            // Semakin banyak frame yang dihasilkan, semakin selektif kita merekam
-            if (Math.random() > 0.2) return; // 80% chance to skip additional frames
+
+        BufferedImage frame;
+        try (Instrumentation.Span span = Instrumentation.begin(Instrumentation.Phase.FRAME_RENDER)) {
+            frame = (canvas != null) ? copyCanvas() : renderTreeState();
         }
-        
-        BufferedImage frame = renderTreeState();
-        gifFrames.add(frame);
+        if (Instrumentation.ENABLED) Instrumentation.FRAMES_RENDERED.increment();
+        framesRecorded++;
+        frameSink.accept(frame);
     }
 
-    /** 
-     * Hitung rata-rata warna pada blok.
+    /**
+     * Menyiapkan kanvas persisten berisi gambar asli (diperkecil jika perlu).
      */
-    private Color computeAverageColor(int x, int y, int width, int height) {
-        long sumR = 0, sumG = 0, sumB = 0;
-        int count = 0;
+    private void openCanvas() {
+        if (!recordGif || image == null) return;
+        canvas = createFrameBackground();
+        canvasScale = (double) canvas.getWidth() / image.getWidth();
+        canvasGraphics = canvas.getGraphics();
+        canvasGraphics.setColor(Color.RED);
+    }
+
+    private void closeCanvas() {
+        if (canvasGraphics != null) {
+            canvasGraphics.dispose();
+        }
+        canvasGraphics = null;
+        canvas = null;
+    }
 
+    /**
+     * Menggambar boundary satu blok baru ke kanvas. Blok yang kemudian di-split
+     * tidak perlu dihapus: boundary anak-anaknya menutupi garis yang sama.
+     */
+    private void drawBlockOnCanvas(int node) {
+        if (canvasGraphics == null) return;
+        if (canvas.getWidth() != image.getWidth() || canvas.getHeight() != image.getHeight()) {
+            drawScaledRect(canvasGraphics, node, canvasScale);
+        } else {
+            canvasGraphics.drawRect(nodes.getX(node), nodes.getY(node), nodes.getWidth(node), nodes.getHeight(node));
+        }
+    }
+
+    /**
+     * Frame = salinan piksel kanvas; biayanya sebanding ukuran frame, bukan ukuran pohon.
+     */
+    private BufferedImage copyCanvas() {
+        BufferedImage frame = new BufferedImage(canvas.getWidth(), canvas.getHeight(), BufferedImage.TYPE_INT_RGB);
+        int[] src = ((DataBufferInt) canvas.getRaster().getDataBuffer()).getData();
+        int[] dst = ((DataBufferInt) frame.getRaster().getDataBuffer()).getData();
+        System.arraycopy(src, 0, dst, 0, src.length);
+        return frame;
+    }
+
+    /** 
+     * Hitung rata-rata warna pada blok (packed RGB) menggunakan summed-area table.
+     */
+    private int computeAverageColor(int x, int y, int width, int height) {
         int endX = x + width;
         int endY = y + height;
-        if (endX > image.getWidth()) endX = image.getWidth();
-        if (endY > image.getHeight()) endY = image.getHeight();
-
-        for (int j = y; j < endY; j++) {
-            for (int i = x; i < endX; i++) {
-                Color c = new Color(image.getRGB(i, j));
-                sumR += c.getRed();
-                sumG += c.getGreen();
-                sumB += c.getBlue();
-                count++;
-            }
-        }
-        if (count == 0) return Color.BLACK;
+        if (endX > raster.getWidth()) endX = raster.getWidth();
+        if (endY > raster.getHeight()) endY = raster.getHeight();
+        if (endX <= x || endY <= y) return 0; // Hitam
 
-        int avgR = (int)(sumR / count);
-        int avgG = (int)(sumG / count);
-        int avgB = (int)(sumB / count);
-        return new Color(avgR, avgG, avgB);
+        return raster.integral().averageRGB(x, y, endX - x, endY - y);
     }
 
     /**
@@ -181,6 +877,23 @@ public class QuadTree {
      * di atas background gambar aslinya.
      */
     public BufferedImage renderTreeState() {
+        BufferedImage frame = createFrameBackground();
+        Graphics g = frame.getGraphics();
+        if (frame.getWidth() != image.getWidth() || frame.getHeight() != image.getHeight()) {
+            // Skala juga boundary
+            double scale = (double) frame.getWidth() / image.getWidth();
+            drawScaledBoundaries(g, ROOT, scale);
+        } else {
+            drawBoundaries(g, ROOT);
+        }
+        g.dispose();
+        return frame;
+    }
+
+    /**
+     * Frame kosong berisi gambar asli; diperkecil jika gambarnya sangat besar.
+     */
+    private BufferedImage createFrameBackground() {
         // Jika gambarnya sangat besar, buat versi kecilnya untuk GIF
         BufferedImage frame;
         int maxDimension = 800; // Batasi ukuran frame
@@ -194,16 +907,12 @@ public class QuadTree {
             frame = new BufferedImage(newWidth, newHeight, BufferedImage.TYPE_INT_RGB);
             Graphics g = frame.getGraphics();
             g.drawImage(image, 0, 0, newWidth, newHeight, null);
-            
-            // Skala juga boundary
-            drawScaledBoundaries(g, root, scale);
             g.dispose();
         } else {
             // Untuk gambar yang cukup kecil, gunakan ukuran asli
             frame = new BufferedImage(image.getWidth(), image.getHeight(), BufferedImage.TYPE_INT_RGB);
             Graphics g = frame.getGraphics();
             g.drawImage(image, 0, 0, null);
-            drawBoundaries(g, root);
             g.dispose();
         }
         
@@ -213,85 +922,175 @@ public class QuadTree {
     /**
      * Menggambar kotak merah di setiap node daun dengan skala.
      */
-    private void drawScaledBoundaries(Graphics g, QuadTreeNode node, double scale) {
-        if (node == null) return;
-        if (node.isLeaf()) {
+    private void drawScaledBoundaries(Graphics g, int node, double scale) {
+        if (nodes.isEmpty(node)) return;
+        if (nodes.isLeaf(node)) {
             g.setColor(Color.RED);
-            int x = (int)(node.x * scale);
-            int y = (int)(node.y * scale);
-            int width = (int)(node.width * scale);
-            int height = (int)(node.height * scale);
-            g.drawRect(x, y, width, height);
+            drawScaledRect(g, node, scale);
         } else {
-            for (QuadTreeNode child : node.children) {
-                drawScaledBoundaries(g, child, scale);
+            int child = nodes.getFirstChild(node);
+            for (int k = 0; k < 4; k++) {
+                drawScaledBoundaries(g, child + k, scale);
             }
         }
     }
 
+    /**
+     * Sudut kiri-atas dan kanan-bawah diskalakan terpisah, sehingga garis anak-anak
+     * sebuah node selalu menimpa tepat garis node tersebut.
+     */
+    private void drawScaledRect(Graphics g, int node, double scale) {
+        int x0 = (int)(nodes.getX(node) * scale);
+        int y0 = (int)(nodes.getY(node) * scale);
+        int x1 = (int)((nodes.getX(node) + nodes.getWidth(node)) * scale);
+        int y1 = (int)((nodes.getY(node) + nodes.getHeight(node)) * scale);
+        g.drawRect(x0, y0, x1 - x0, y1 - y0);
+    }
+
     /**
      * Menggambar kotak merah di setiap node daun.
      */
-    private void drawBoundaries(Graphics g, QuadTreeNode node) {
-        if (node == null) return;
-        if (node.isLeaf()) {
+    private void drawBoundaries(Graphics g, int node) {
+        if (nodes.isEmpty(node)) return;
+        if (nodes.isLeaf(node)) {
             g.setColor(Color.RED);
-            g.drawRect(node.x, node.y, node.width, node.height);
+            g.drawRect(nodes.getX(node), nodes.getY(node), nodes.getWidth(node), nodes.getHeight(node));
         } else {
-            for (QuadTreeNode child : node.children) {
-                drawBoundaries(g, child);
+            int child = nodes.getFirstChild(node);
+            for (int k = 0; k < 4; k++) {
+                drawBoundaries(g, child + k);
             }
         }
     }
 
     /**
-     * Menghasilkan gambar akhir hasil kompresi,
-     * setiap node daun diisi warna rata-ratanya.
+     * Menghasilkan gambar akhir hasil kompresi, setiap node daun diisi warna rata-ratanya.
+     * Warna ditulis langsung ke raster TYPE_INT_RGB; input grayscale/berpalet
+     * dikonversi kembali ke tipe aslinya.
      */
+    @SuppressWarnings("try")
     public BufferedImage generateCompressedImage() {
-        BufferedImage output = new BufferedImage(image.getWidth(), image.getHeight(), image.getType());
-        Graphics g = output.getGraphics();
-        fillCompressedImage(g, root);
+        try (Instrumentation.Span span = Instrumentation.begin(Instrumentation.Phase.RENDER)) {
+            return renderCompressedImage();
+        }
+    }
+
+    private BufferedImage renderCompressedImage() {
+        BufferedImage output = new BufferedImage(Math.max(1, width), Math.max(1, height), BufferedImage.TYPE_INT_RGB);
+        int[] pixels = ((DataBufferInt) output.getRaster().getDataBuffer()).getData();
+        if (parallelism > 1) {
+            // Subtree menempati blok piksel yang saling lepas, jadi bisa diisi bersamaan
+            ForkJoinPool pool = new ForkJoinPool(parallelism);
+            try {
+                pool.invoke(new FillTask(pixels, ROOT));
+            } finally {
+                pool.shutdown();
+            }
+        } else {
+            fillCompressedImage(pixels, ROOT);
+        }
+        return matchSourceType(output);
+    }
+
+    /**
+     * Gambar grayscale/berpalet dikembalikan ke tipe aslinya dengan satu kali konversi,
+     * agar file keluarannya tidak membengkak menjadi RGB 24-bit.
+     */
+    private BufferedImage matchSourceType(BufferedImage output) {
+        BufferedImage converted;
+        switch (sourceType) {
+            case BufferedImage.TYPE_BYTE_GRAY, BufferedImage.TYPE_USHORT_GRAY ->
+                converted = new BufferedImage(output.getWidth(), output.getHeight(), sourceType);
+            case BufferedImage.TYPE_BYTE_INDEXED, BufferedImage.TYPE_BYTE_BINARY ->
+                converted = new BufferedImage(output.getWidth(), output.getHeight(), sourceType,
+                        (IndexColorModel) sourceColorModel);
+            default -> {
+                return output;
+            }
+        }
+        Graphics g = converted.getGraphics();
+        g.drawImage(output, 0, 0, null);
         g.dispose();
-        return output;
+        return converted;
     }
 
-    private void fillCompressedImage(Graphics g, QuadTreeNode node) {
-        if (node == null) return;
-        if (node.isLeaf()) {
-            g.setColor(node.averageColor);
-            g.fillRect(node.x, node.y, node.width, node.height);
+    /**
+     * Menulis warna daun langsung ke raster TYPE_INT_RGB (tanpa Graphics):
+     * baris pertama blok diisi dengan Arrays.fill, baris berikutnya disalin darinya.
+     */
+    private void fillCompressedImage(int[] pixels, int node) {
+        if (nodes.isEmpty(node)) return;
+        if (nodes.isLeaf(node)) {
+            int x = nodes.getX(node);
+            int y = nodes.getY(node);
+            int w = nodes.getWidth(node);
+            int h = nodes.getHeight(node);
+            int first = y * width + x;
+            Arrays.fill(pixels, first, first + w, nodes.getRGB(node));
+            for (int j = 1; j < h; j++) {
+                System.arraycopy(pixels, first, pixels, first + j * width, w);
+            }
         } else {
-            for (QuadTreeNode child : node.children) {
-                fillCompressedImage(g, child);
+            int child = nodes.getFirstChild(node);
+            for (int k = 0; k < 4; k++) {
+                fillCompressedImage(pixels, child + k);
+            }
+        }
+    }
+
+    /**
+     * Task fork-join pengisian raster; subtree dengan blok lebih kecil dari parallelCutoff diisi serial.
+     */
+    private class FillTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final int[] pixels;
+        private final int node;
+
+        FillTask(int[] pixels, int node) {
+            this.pixels = pixels;
+            this.node = node;
+        }
+
+        @Override
+        protected void compute() {
+            if (nodes.isEmpty(node)) return;
+            if (nodes.isLeaf(node) || (long) nodes.getWidth(node) * nodes.getHeight(node) < parallelCutoff) {
+                fillCompressedImage(pixels, node);
+                return;
             }
+            int child = nodes.getFirstChild(node);
+            invokeAll(new FillTask(pixels, child), new FillTask(pixels, child + 1),
+                      new FillTask(pixels, child + 2), new FillTask(pixels, child + 3));
         }
     }
 
     public int countLeaves() {
-        return countLeavesRecursive(root);
+        return countLeavesRecursive(ROOT);
     }
 
-    private int countLeavesRecursive(QuadTreeNode node) {
-        if (node == null) return 0;
-        if (node.isLeaf()) return 1;
+    private int countLeavesRecursive(int node) {
+        if (nodes.isEmpty(node)) return 0;
+        if (nodes.isLeaf(node)) return 1;
         int sum = 0;
-        for (QuadTreeNode child : node.children) {
-            sum += countLeavesRecursive(child);
+        int child = nodes.getFirstChild(node);
+        for (int k = 0; k < 4; k++) {
+            sum += countLeavesRecursive(child + k);
         }
         return sum;
     }
 
     public int getTreeDepth() {
-        return computeDepth(root);
+        return computeDepth(ROOT);
     }
 
-    private int computeDepth(QuadTreeNode node) {
-        if (node == null) return 0;
-        if (node.isLeaf()) return 1;
+    private int computeDepth(int node) {
+        if (nodes.isEmpty(node)) return 0;
+        if (nodes.isLeaf(node)) return 1;
         int max = 0;
-        for (QuadTreeNode child : node.children) {
-            int d = computeDepth(child);
+        int child = nodes.getFirstChild(node);
+        for (int k = 0; k < 4; k++) {
+            int d = computeDepth(child + k);
             if (d > max) max = d;
         }
         return max + 1;
@@ -0,0 +1,205 @@
+import java.util.Arrays;
+
+/**
+ * Penyimpanan node Quadtree dalam bentuk struct-of-arrays: setiap atribut node
+ * disimpan pada array primitif paralel dan node dirujuk lewat indeks int.
+ * Keempat anak sebuah node selalu bersebelahan (firstChild .. firstChild + 3),
+ * sehingga tidak perlu objek node, objek Color, maupun array anak per node.
+ *
+ * Slot anak yang bloknya kosong (lebar/tinggi 0 karena ukuran ganjil) disimpan
+ * dengan width = height = 0 dan dilewati oleh semua traversal.
+ *
+ * Subclass boleh menyimpan node di tempat lain (lihat OffHeapNodeStore) dengan
+ * meng-override semua method publik kecuali copySubtree/copySubtreeCut.
+ */
+public class QuadTreeNodeStore {
+    public static final int NO_CHILD = -1;
+
+    private int[] x, y, width, height;
+    private int[] rgb;         // Warna rata-rata packed 0xRRGGBB
+    private double[] error;
+    private int[] firstChild;  // NO_CHILD jika daun
+    private int size;
+
+    public QuadTreeNodeStore() {
+        this(1024);
+    }
+
+    public QuadTreeNodeStore(int initialCapacity) {
+        this(initialCapacity, true);
+    }
+
+    /**
+     * allocateArrays = false untuk subclass yang menyimpan node sendiri.
+     */
+    protected QuadTreeNodeStore(int initialCapacity, boolean allocateArrays) {
+        if (!allocateArrays) return;
+        int cap = Math.max(4, initialCapacity);
+        x = new int[cap];
+        y = new int[cap];
+        width = new int[cap];
+        height = new int[cap];
+        rgb = new int[cap];
+        error = new double[cap];
+        firstChild = new int[cap];
+    }
+
+    /**
+     * Mengalokasikan count slot berurutan (kosong, tanpa anak) dan mengembalikan indeks slot pertama.
+     */
+    public int allocate(int count) {
+        ensureCapacity(size + count);
+        int first = size;
+        for (int i = first; i < first + count; i++) {
+            width[i] = 0;
+            height[i] = 0;
+            firstChild[i] = NO_CHILD;
+        }
+        size += count;
+        if (Instrumentation.ENABLED) Instrumentation.NODES_CREATED.add(count);
+        return first;
+    }
+
+    /**
+     * Mengalokasikan blok 4 anak untuk node dan mengembalikan indeks anak pertama.
+     */
+    public int allocateChildren(int node) {
+        int first = allocate(4);
+        firstChild[node] = first;
+        return first;
+    }
+
+    public void set(int node, int nx, int ny, int nWidth, int nHeight, int nRgb, double nError) {
+        x[node] = nx;
+        y[node] = ny;
+        width[node] = nWidth;
+        height[node] = nHeight;
+        rgb[node] = nRgb;
+        error[node] = nError;
+        firstChild[node] = NO_CHILD;
+    }
+
+    public void setRGB(int node, int nRgb) {
+        rgb[node] = nRgb;
+    }
+
+    /**
+     * Mengganti blok anak node (NO_CHILD menjadikannya daun); slot anak lama tidak dibebaskan.
+     */
+    public void setFirstChild(int node, int child) {
+        firstChild[node] = child;
+    }
+
+    private void ensureCapacity(int needed) {
+        if (needed <= x.length) return;
+        int cap = Math.max(needed, x.length + (x.length >> 1));
+        x = Arrays.copyOf(x, cap);
+        y = Arrays.copyOf(y, cap);
+        width = Arrays.copyOf(width, cap);
+        height = Arrays.copyOf(height, cap);
+        rgb = Arrays.copyOf(rgb, cap);
+        error = Arrays.copyOf(error, cap);
+        firstChild = Arrays.copyOf(firstChild, cap);
+    }
+
+    /**
+     * Membuang kapasitas cadangan setelah pembangunan selesai.
+     */
+    public void trimToSize() {
+        if (size == x.length) return;
+        x = Arrays.copyOf(x, size);
+        y = Arrays.copyOf(y, size);
+        width = Arrays.copyOf(width, size);
+        height = Arrays.copyOf(height, size);
+        rgb = Arrays.copyOf(rgb, size);
+        error = Arrays.copyOf(error, size);
+        firstChild = Arrays.copyOf(firstChild, size);
+    }
+
+    /**
+     * Menyalin subtree src (mulai dari srcNode) ke slot dstNode pada store ini.
+     * Urutan alokasi sama dengan pembangunan rekursif depth-first.
+     */
+    public void copySubtree(QuadTreeNodeStore src, int srcNode, int dstNode) {
+        copySubtree(src, srcNode, dstNode, 0, 0);
+    }
+
+    /**
+     * Sama seperti di atas, tetapi koordinat setiap node digeser sejauh (offsetX, offsetY),
+     * mis. untuk menempelkan subtree sebuah tile ke pohon gambar penuh.
+     */
+    public void copySubtree(QuadTreeNodeStore src, int srcNode, int dstNode, int offsetX, int offsetY) {
+        if (src.isEmpty(srcNode)) {
+            set(dstNode, 0, 0, 0, 0, 0, 0);
+            return;
+        }
+        set(dstNode, src.getX(srcNode) + offsetX, src.getY(srcNode) + offsetY, src.getWidth(srcNode),
+                src.getHeight(srcNode), src.getRGB(srcNode), src.getError(srcNode));
+        int srcChild = src.getFirstChild(srcNode);
+        if (srcChild == NO_CHILD) return;
+        int dstChild = allocateChildren(dstNode);
+        for (int k = 0; k < 4; k++) {
+            copySubtree(src, srcChild + k, dstChild + k, offsetX, offsetY);
+        }
+    }
+
+    /**
+     * Seperti copySubtree, tetapi node dengan error <= maxError disalin sebagai daun
+     * (subtree di bawahnya tidak disalin). Dipakai untuk memotong pohon pada threshold lain.
+     */
+    public void copySubtreeCut(QuadTreeNodeStore src, int srcNode, int dstNode, double maxError) {
+        if (src.isEmpty(srcNode)) {
+            set(dstNode, 0, 0, 0, 0, 0, 0);
+            return;
+        }
+        double nodeError = src.getError(srcNode);
+        set(dstNode, src.getX(srcNode), src.getY(srcNode), src.getWidth(srcNode), src.getHeight(srcNode),
+                src.getRGB(srcNode), nodeError);
+        int srcChild = src.getFirstChild(srcNode);
+        if (srcChild == NO_CHILD || nodeError <= maxError) return;
+        int dstChild = allocateChildren(dstNode);
+        for (int k = 0; k < 4; k++) {
+            copySubtreeCut(src, srcChild + k, dstChild + k, maxError);
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int getX(int node) {
+        return x[node];
+    }
+
+    public int getY(int node) {
+        return y[node];
+    }
+
+    public int getWidth(int node) {
+        return width[node];
+    }
+
+    public int getHeight(int node) {
+        return height[node];
+    }
+
+    public int getRGB(int node) {
+        return rgb[node];
+    }
+
+    public double getError(int node) {
+        return error[node];
+    }
+
+    public int getFirstChild(int node) {
+        return firstChild[node];
+    }
+
+    public boolean isLeaf(int node) {
+        return firstChild[node] == NO_CHILD;
+    }
+
+    public boolean isEmpty(int node) {
+        return width[node] <= 0 || height[node] <= 0;
+    }
+}
@@ -1,64 +1,150 @@
-import java.awt.Color;
-import java.awt.image.BufferedImage;
+import java.util.Arrays;
+import java.util.concurrent.atomic.LongAdder;
 
 public class SSIMErrorCalc implements ErrorCalc {
     // Konstanta untuk SSIM gambar 8-bit (K1=0.01, K2=0.03, L=255)
-    private final double C1 = 6.5025;
-    private final double C2 = 58.5225;
+    private static final double C1 = 6.5025;
+    private static final double C2 = 58.5225;
+    private static final LongAdder PIXELS_TOUCHED = Instrumentation.pixelCounter("SSIMErrorCalc");
 
     @Override
-    public double computeError(BufferedImage image, int x, int y, int width, int height, Color avgColor) {
-        // Hitung SSIm per channel dengan asumsi blok konstanta
-        double ssimR = computeSSIM(image, x, y, width, height, 'R', avgColor.getRed());
-        double ssimG = computeSSIM(image, x, y, width, height, 'G', avgColor.getGreen());
-        double ssimB = computeSSIM(image, x, y, width, height, 'B', avgColor.getBlue());
+    public double computeError(int[] pixels, int stride, int x, int y, int width, int height, int avgR, int avgG, int avgB) {
+        if (Instrumentation.ENABLED) PIXELS_TOUCHED.add((long) width * height);
+        // Satu kali pindai: jumlah dan jumlah kuadrat ketiga kanal sekaligus
+        long sumR = 0, sumG = 0, sumB = 0;
+        long sqR = 0, sqG = 0, sqB = 0;
+        for (int j = y; j < y + height; j++) {
+            int row = j * stride;
+            for (int i = x; i < x + width; i++) {
+                int rgb = pixels[row + i];
+                int r = (rgb >> 16) & 0xFF;
+                int g = (rgb >> 8) & 0xFF;
+                int b = rgb & 0xFF;
+                sumR += r;
+                sumG += g;
+                sumB += b;
+                sqR += r * r;
+                sqG += g * g;
+                sqB += b * b;
+            }
+        }
+        long count = (long) width * height;
+        return toError(computeSSIM(sumR, sqR, count, avgR),
+                       computeSSIM(sumG, sqG, count, avgG),
+                       computeSSIM(sumB, sqB, count, avgB));
+    }
+
+    @Override
+    public double computeError(ImageRaster raster, int x, int y, int width, int height, int avgR, int avgG, int avgB) {
+        // Momen blok diambil dari summed-area table dalam O(1), biayanya sama dengan Variance
+        IntegralImage integral = raster.integral();
+        long count = (long) width * height;
+        return toError(computeSSIM(integral.sumRed(x, y, width, height), integral.sumSqRed(x, y, width, height), count, avgR),
+                       computeSSIM(integral.sumGreen(x, y, width, height), integral.sumSqGreen(x, y, width, height), count, avgG),
+                       computeSSIM(integral.sumBlue(x, y, width, height), integral.sumSqBlue(x, y, width, height), count, avgB));
+    }
+
+    private static double toError(double ssimR, double ssimG, double ssimB) {
         double avgSSIM = (ssimR + ssimG + ssimB) / 3.0;
-        
+
         // Konversi ke error (SSIM makin tinggi berarti error making rendah)
         return 1.0 - avgSSIM;
     }
 
-    private double computeSSIM(BufferedImage image, int x, int y, int width, int height, 
-                              char channel, int avgVal) {
-        double sum = 0, sumSq = 0, covar = 0;
-        int count = 0;
-        
-        // Pastikan tidak lewat ukuran gambar
-        int endX = Math.min(x + width, image.getWidth());
-        int endY = Math.min(y + height, image.getHeight());
-        x = Math.max(0, x);
-        y = Math.max(0, y);
-        
-        // Rata-rata dan variansi original block
-        for (int j = y; j < endY; j++) {
-            for (int i = x; i < endX; i++) {
-                Color c = new Color(image.getRGB(i, j));
-                int val = 0;
-                switch (channel) {
-                    case 'R' -> val = c.getRed();
-                    case 'G' -> val = c.getGreen();
-                    case 'B' -> val = c.getBlue();
-                    default -> {
-                    }
-                }
-                sum += val;
-                sumSq += val * val;
-                covar += val * avgVal; // Kovariansi dengan blok konstan
-                count++;
-            }
-        }
-        
+    /**
+     * SSIM satu kanal antara blok asli dan blok konstan bernilai avgVal,
+     * cukup dari jumlah nilai dan jumlah kuadrat blok asli.
+     */
+    private static double computeSSIM(long sum, long sumSq, long count, int avgVal) {
         if (count == 0) return 1.0; // Return perfect match, cegah dibagi 0
-        
-        double mean = sum / count;
-        double variance = sumSq / count - mean * mean;
-        double covariance = covar / count - mean * avgVal;
+
+        double mean = (double) sum / count;
+        double variance = (double) sumSq / count - mean * mean;
+        // Kovariansi dengan blok konstan: sum(val * avgVal) / n - mean * avgVal
+        double covariance = (double) (sum * avgVal) / count - mean * avgVal;
         if (variance < 1e-3) variance = 1e-3;
-        
+
         // Hitung SSIM index
         double numerator = (2 * mean * avgVal + C1) * (2 * covariance + C2);
         double denominator = (mean * mean + avgVal * avgVal + C1) * (variance + C2);
-        
+
         return numerator / denominator;
     }
+
+    /**
+     * SSIM seluruh gambar antara dua raster berukuran sama: rata-rata SSIM (ketiga kanal)
+     * dari jendela window x window yang digeser sejauh step. Momen setiap jendela
+     * (termasuk kovariansi kedua gambar) dihitung dalam satu kali pindai. Raster yang
+     * pikselnya tidak di heap dibaca per baris lewat copyBlock.
+     */
+    public static double windowedSSIM(ImageRaster original, ImageRaster compressed, int window, int step) {
+        if (window <= 0 || step <= 0) {
+            throw new IllegalArgumentException("Ukuran jendela dan langkah SSIM harus positif");
+        }
+        int width = original.getWidth();
+        int height = original.getHeight();
+        if (compressed.getWidth() != width || compressed.getHeight() != height) {
+            throw new IllegalArgumentException("Ukuran kedua gambar harus sama");
+        }
+        int w = Math.min(window, width);
+        int h = Math.min(window, height);
+        int[] a = original.getPixels();
+        int[] b = compressed.getPixels();
+        int[] rowA = (a == null) ? new int[w] : null;
+        int[] rowB = (b == null) ? new int[w] : null;
+
+        double total = 0;
+        long windows = 0;
+        long[] m = new long[15]; // Per kanal: sumA, sumB, sqA, sqB, sumAB
+        for (int y = 0; y + h <= height; y += step) {
+            for (int x = 0; x + w <= width; x += step) {
+                Arrays.fill(m, 0);
+                for (int j = y; j < y + h; j++) {
+                    int[] srcA = a, srcB = b;
+                    int offA = j * width + x, offB = offA;
+                    if (a == null) {
+                        original.copyBlock(x, j, w, 1, rowA);
+                        srcA = rowA;
+                        offA = 0;
+                    }
+                    if (b == null) {
+                        compressed.copyBlock(x, j, w, 1, rowB);
+                        srcB = rowB;
+                        offB = 0;
+                    }
+                    for (int i = 0; i < w; i++) {
+                        int pa = srcA[offA + i];
+                        int pb = srcB[offB + i];
+                        for (int c = 0, shift = 16; c < 15; c += 5, shift -= 8) {
+                            int va = (pa >> shift) & 0xFF;
+                            int vb = (pb >> shift) & 0xFF;
+                            m[c] += va;
+                            m[c + 1] += vb;
+                            m[c + 2] += va * va;
+                            m[c + 3] += vb * vb;
+                            m[c + 4] += va * vb;
+                        }
+                    }
+                }
+                long count = (long) w * h;
+                double ssim = 0;
+                for (int c = 0; c < 15; c += 5) {
+                    ssim += windowSSIM(m[c], m[c + 1], m[c + 2], m[c + 3], m[c + 4], count);
+                }
+                total += ssim / 3.0;
+                windows++;
+            }
+        }
+        return (windows == 0) ? 1.0 : total / windows;
+    }
+
+    private static double windowSSIM(long sumA, long sumB, long sqA, long sqB, long sumAB, long count) {
+        double meanA = (double) sumA / count;
+        double meanB = (double) sumB / count;
+        double varA = (double) sqA / count - meanA * meanA;
+        double varB = (double) sqB / count - meanB * meanB;
+        double covar = (double) sumAB / count - meanA * meanB;
+        return ((2 * meanA * meanB + C1) * (2 * covar + C2))
+             / ((meanA * meanA + meanB * meanB + C1) * (varA + varB + C2));
+    }
 }
@@ -0,0 +1,370 @@
+import java.awt.AlphaComposite;
+import java.awt.Graphics;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Locale;
+import java.util.Set;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.metadata.IIOMetadata;
+import javax.imageio.metadata.IIOMetadataNode;
+import javax.imageio.stream.FileImageOutputStream;
+import javax.imageio.stream.ImageInputStream;
+
+/**
+ * Mode urutan gambar (rekaman layar, GIF animasi, folder berisi frame). Setiap frame
+ * dibandingkan dengan frame sebelumnya per piksel (FrameChanges); subtree yang bloknya tidak
+ * berubah dipakai ulang dari pohon frame sebelumnya dan hanya blok yang berubah dievaluasi
+ * ulang dengan ErrorCalc (QuadTree.buildTreeReusing). Hasilnya sama dengan mengompresi setiap
+ * frame sendiri-sendiri. Output berupa GIF animasi (jika berakhiran .gif) atau satu file per frame.
+ * Dengan --compare, setiap frame juga dikompresi sendiri-sendiri untuk membandingkan throughput.
+ */
+public class SequenceCompressor {
+    private static final int GIF_QUEUE_CAPACITY = 4;
+
+    private static final String USAGE = String.join("\n",
+        "Penggunaan:",
+        "  java SequenceCompressor --input <animasi.gif|folder> --output <hasil.gif|folder> [opsi]",
+        "",
+        "Opsi:",
+        "  --format <ekstensi>  format frame jika --output berupa folder (default: png)",
+        "  --delay <ms>         jeda antar frame pada GIF output (default: 100)",
+        "  --compare            juga kompresi setiap frame sendiri-sendiri dan bandingkan fps",
+        "                       (fps dihitung tanpa frame pertama, yang selalu dibangun penuh)",
+        "  --json               ringkasan sebagai JSON",
+        "  --method <1-5>  --threshold <t>  --min-block <n>",
+        "",
+        "Frame di folder diurutkan menurut nama file.");
+
+    /**
+     * Sumber frame berurutan; next() mengembalikan null setelah frame terakhir.
+     */
+    private interface FrameSource extends AutoCloseable {
+        BufferedImage next() throws IOException;
+
+        @Override
+        default void close() throws IOException {
+        }
+    }
+
+    public static void main(String[] args) {
+        System.exit(run(args));
+    }
+
+    /**
+     * Mengembalikan exit code: 0 jika berhasil, 1 jika gagal, 2 jika argumen salah.
+     */
+    public static int run(String[] args) {
+        CompressConfig config = new CompressConfig();
+        config.parallelism = 1; // buildTreeReusing serial, pembanding juga serial
+        String input = null, output = null, format = "png";
+        int delay = 100;
+        boolean compare = false, json = false;
+        try {
+            for (int i = 0; i < args.length; i++) {
+                String arg = args[i];
+                switch (arg) {
+                    case "--help", "-h" -> {
+                        System.out.println(USAGE);
+                        return 0;
+                    }
+                    case "--compare" -> compare = true;
+                    case "--json" -> json = true;
+                    default -> {
+                        if (!arg.startsWith("--") || i + 1 >= args.length) {
+                            throw new IllegalArgumentException("Argumen tidak valid: " + arg);
+                        }
+                        String value = args[++i];
+                        switch (arg.substring(2)) {
+                            case "input" -> input = value;
+                            case "output" -> output = value;
+                            case "format" -> format = value.toLowerCase(Locale.ROOT);
+                            case "delay" -> delay = Integer.parseInt(value);
+                            default -> config.set(arg.substring(2), value);
+                        }
+                    }
+                }
+            }
+            if (input == null || output == null) {
+                throw new IllegalArgumentException("Butuh --input dan --output");
+            }
+            if (config.targetCompression > 0 || config.ladderThresholds != null || config.offHeap) {
+                throw new IllegalArgumentException("Mode urutan hanya mendukung threshold (tanpa --target, --ladder, dan --offheap)");
+            }
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.err.println(USAGE);
+            return 2;
+        }
+
+        File inputFile = new File(input);
+        boolean gifOutput = Compressor.formatOf(output).equals("gif") && !new File(output).isDirectory();
+        if (!gifOutput && !Compressor.isTreeFormat(format) && !ImageIO.getImageWritersByFormatName(format).hasNext()) {
+            System.err.println("Format output tidak didukung: " + format);
+            return 2;
+        }
+
+        long framesDone = 0, changedPixels = 0, totalPixels = 0;
+        long reusedNodes = 0, totalNodes = 0;
+        long sequenceNanos = 0, independentNanos = 0;
+        boolean identical = true;
+        File outputFile = new File(output);
+        File parentDir = gifOutput ? outputFile.getParentFile() : outputFile;
+        if (parentDir != null && !parentDir.exists()) {
+            parentDir.mkdirs();
+        }
+
+        try (FrameSource frames = inputFile.isDirectory() ? folderFrames(inputFile) : gifFrames(inputFile);
+             FileImageOutputStream gifStream = gifOutput ? new FileImageOutputStream(outputFile) : null) {
+            GifStreamFrameSink gifSink = gifOutput ? new GifStreamFrameSink(gifStream, delay, GIF_QUEUE_CAPACITY) : null;
+            try {
+                QuadTree previous = null;
+                BufferedImage frame;
+                while ((frame = frames.next()) != null) {
+                    long start = System.nanoTime();
+                    QuadTree quadtree = new QuadTree(frame, config.threshold, config.minBlockSize,
+                            Compressor.createErrorCalc(config.errorMethod), false, 0, 1);
+                    quadtree.setParallelism(config.parallelism, config.parallelCutoff);
+                    if (previous != null && previous.getWidth() == quadtree.getWidth()
+                            && previous.getHeight() == quadtree.getHeight()) {
+                        FrameChanges changes = FrameChanges.between(previous.getRaster(), quadtree.getRaster());
+                        reusedNodes += quadtree.buildTreeReusing(previous, changes);
+                        changedPixels += changes.changedPixels();
+                    } else {
+                        quadtree.buildTree(); // Frame pertama (atau ukurannya berubah): tidak ada yang dipakai ulang
+                        changedPixels += (long) frame.getWidth() * frame.getHeight();
+                    }
+                    BufferedImage compressed = gifOutput || !Compressor.isTreeFormat(format)
+                            ? quadtree.generateCompressedImage() : null;
+                    boolean timed = previous != null; // Frame pertama selalu dibangun penuh (dan menanggung warm-up JIT)
+                    if (timed) sequenceNanos += System.nanoTime() - start;
+                    totalNodes += quadtree.getNodes().size();
+                    totalPixels += (long) frame.getWidth() * frame.getHeight();
+
+                    if (compare) {
+                        long independentStart = System.nanoTime();
+                        QuadTree independent = new QuadTree(frame, config.threshold, config.minBlockSize,
+                                Compressor.createErrorCalc(config.errorMethod), false, 0, 1);
+                        independent.setParallelism(config.parallelism, config.parallelCutoff);
+                        independent.buildTree();
+                        BufferedImage independentImage = (compressed != null) ? independent.generateCompressedImage() : null;
+                        if (timed) independentNanos += System.nanoTime() - independentStart;
+                        identical &= independent.countLeaves() == quadtree.countLeaves()
+                                && (compressed == null || sameRGB(compressed, independentImage));
+                    }
+
+                    if (gifSink != null) {
+                        gifSink.accept(toRGB(compressed));
+                    } else {
+                        File out = new File(outputFile, String.format("frame_%05d.%s", framesDone, format));
+                        Compressor.write(quadtree, compressed, format, out);
+                    }
+                    previous = quadtree;
+                    framesDone++;
+                }
+            } catch (Throwable t) {
+                if (gifSink != null) gifSink.abort(); // Encoder harus berhenti sebelum gifStream ditutup
+                throw t;
+            }
+            if (gifSink != null) {
+                gifSink.close();
+            }
+        } catch (IOException | RuntimeException e) {
+            // RuntimeException termasuk kegagalan encoder GIF (UncheckedIOException/IllegalStateException dari accept)
+            System.err.println("Gagal memproses urutan: " + e.getMessage());
+            return 1;
+        }
+        if (framesDone == 0) {
+            System.err.println("Tidak ada frame untuk diproses.");
+            return 1;
+        }
+
+        // fps tanpa frame pertama, yang sama di kedua cara; dengan satu frame tidak ada yang diukur
+        boolean measured = framesDone > 1;
+        double sequenceFps = (framesDone - 1) / (sequenceNanos / 1e9);
+        double independentFps = compare ? (framesDone - 1) / (independentNanos / 1e9) : Double.NaN;
+        double changedPercent = 100.0 * changedPixels / totalPixels;
+        double reusedPercent = 100.0 * reusedNodes / totalNodes;
+        if (json) {
+            StringBuilder sb = new StringBuilder("{");
+            sb.append("\"input\":").append(Json.quote(input));
+            sb.append(",\"output\":").append(Json.quote(output));
+            sb.append(",\"frames\":").append(framesDone);
+            sb.append(",\"method\":").append(config.errorMethod);
+            sb.append(",\"threshold\":").append(Json.number(config.threshold));
+            sb.append(",\"minBlock\":").append(config.minBlockSize);
+            sb.append(",\"changedPixelsPercent\":").append(Json.number(changedPercent));
+            sb.append(",\"reusedNodesPercent\":").append(Json.number(reusedPercent));
+            sb.append(",\"compressMs\":").append(Json.number(sequenceNanos / 1e6));
+            if (measured) sb.append(",\"fps\":").append(Json.number(sequenceFps));
+            if (compare) {
+                sb.append(",\"independentMs\":").append(Json.number(independentNanos / 1e6));
+                if (measured) {
+                    sb.append(",\"independentFps\":").append(Json.number(independentFps));
+                    sb.append(",\"speedup\":").append(Json.number(sequenceFps / independentFps));
+                }
+                sb.append(",\"identical\":").append(identical);
+            }
+            System.out.println(sb.append('}'));
+        } else {
+            System.out.println("Frame               : " + framesDone);
+            System.out.printf("Piksel berubah      : %.2f%%%n", changedPercent);
+            System.out.printf("Node dipakai ulang  : %.2f%%%n", reusedPercent);
+            if (measured) {
+                System.out.printf("Kompresi urutan     : %.1f ms (%.2f fps)%n", sequenceNanos / 1e6, sequenceFps);
+            } else {
+                System.out.println("Kompresi urutan     : - (fps butuh minimal 2 frame)");
+            }
+            if (compare && measured) {
+                System.out.printf("Kompresi per frame  : %.1f ms (%.2f fps)%n", independentNanos / 1e6, independentFps);
+                System.out.printf("Percepatan          : %.2fx%n", sequenceFps / independentFps);
+            }
+            if (compare) {
+                System.out.println("Hasil identik       : " + (identical ? "ya" : "TIDAK"));
+            }
+            System.out.println("Output              : " + output);
+        }
+        Instrumentation.writeReport();
+        return identical ? 0 : 1;
+    }
+
+    private static boolean sameRGB(BufferedImage a, BufferedImage b) {
+        int w = a.getWidth(), h = a.getHeight();
+        return w == b.getWidth() && h == b.getHeight()
+                && Arrays.equals(a.getRGB(0, 0, w, h, null, 0, w), b.getRGB(0, 0, w, h, null, 0, w));
+    }
+
+    // GifStreamFrameSink memakai metadata TYPE_INT_RGB
+    private static BufferedImage toRGB(BufferedImage image) {
+        if (image.getType() == BufferedImage.TYPE_INT_RGB) return image;
+        BufferedImage rgb = new BufferedImage(image.getWidth(), image.getHeight(), BufferedImage.TYPE_INT_RGB);
+        Graphics g = rgb.getGraphics();
+        g.drawImage(image, 0, 0, null);
+        g.dispose();
+        return rgb;
+    }
+
+    private static FrameSource folderFrames(File folder) throws IOException {
+        Set<String> suffixes = new HashSet<>(Arrays.asList(ImageIO.getReaderFileSuffixes()));
+        File[] files = folder.listFiles(f -> {
+            String name = f.getName();
+            int dot = name.lastIndexOf('.');
+            return f.isFile() && dot > 0 && suffixes.contains(name.substring(dot + 1).toLowerCase(Locale.ROOT));
+        });
+        if (files == null) {
+            throw new IOException("Folder tidak dapat dibaca: " + folder);
+        }
+        Arrays.sort(files);
+        Iterator<File> it = Arrays.asList(files).iterator();
+        return () -> {
+            if (!it.hasNext()) return null;
+            File file = it.next();
+            BufferedImage image = Compressor.read(file);
+            if (image == null) {
+                throw new IOException("Format gambar tidak didukung: " + file);
+            }
+            return image;
+        };
+    }
+
+    /**
+     * Frame GIF animasi seperti yang ditampilkan: setiap frame (yang bisa lebih kecil dari layar
+     * logis) digambar pada posisinya di atas kanvas, lalu kanvas diperlakukan sesuai disposal method.
+     */
+    private static FrameSource gifFrames(File file) throws IOException {
+        ImageInputStream in = ImageIO.createImageInputStream(file);
+        if (in == null) {
+            throw new IOException("File tidak ditemukan: " + file);
+        }
+        Iterator<ImageReader> readers = ImageIO.getImageReaders(in);
+        if (!readers.hasNext()) {
+            in.close();
+            throw new IOException("Format gambar tidak didukung: " + file);
+        }
+        ImageReader reader = readers.next();
+        reader.setInput(in, false);
+        int count = reader.getNumImages(true);
+        int width = reader.getWidth(0);
+        int height = reader.getHeight(0);
+        IIOMetadata streamMetadata = reader.getStreamMetadata();
+        if (streamMetadata != null && streamMetadata.getNativeMetadataFormatName().equals("javax_imageio_gif_stream_1.0")) {
+            IIOMetadataNode screen = child((IIOMetadataNode) streamMetadata.getAsTree("javax_imageio_gif_stream_1.0"),
+                    "LogicalScreenDescriptor");
+            if (screen != null) {
+                width = Math.max(width, Integer.parseInt(screen.getAttribute("logicalScreenWidth")));
+                height = Math.max(height, Integer.parseInt(screen.getAttribute("logicalScreenHeight")));
+            }
+        }
+        int screenWidth = width, screenHeight = height;
+
+        return new FrameSource() {
+            private int index = 0;
+            private BufferedImage canvas = new BufferedImage(screenWidth, screenHeight, BufferedImage.TYPE_INT_ARGB);
+
+            @Override
+            public BufferedImage next() throws IOException {
+                if (index >= count) return null;
+                BufferedImage image = reader.read(index);
+                int left = 0, top = 0;
+                String disposal = "none";
+                IIOMetadata metadata = reader.getImageMetadata(index);
+                if (metadata.getNativeMetadataFormatName().equals("javax_imageio_gif_image_1.0")) {
+                    IIOMetadataNode root = (IIOMetadataNode) metadata.getAsTree("javax_imageio_gif_image_1.0");
+                    IIOMetadataNode descriptor = child(root, "ImageDescriptor");
+                    if (descriptor != null) {
+                        left = Integer.parseInt(descriptor.getAttribute("imageLeftPosition"));
+                        top = Integer.parseInt(descriptor.getAttribute("imageTopPosition"));
+                    }
+                    IIOMetadataNode control = child(root, "GraphicControlExtension");
+                    if (control != null) {
+                        disposal = control.getAttribute("disposalMethod");
+                    }
+                }
+                index++;
+
+                BufferedImage restore = disposal.equals("restoreToPrevious") ? copy(canvas, BufferedImage.TYPE_INT_ARGB) : null;
+                Graphics2D g = canvas.createGraphics();
+                g.drawImage(image, left, top, null);
+                g.dispose();
+                BufferedImage shown = copy(canvas, BufferedImage.TYPE_INT_RGB);
+                if (disposal.equals("restoreToBackgroundColor")) {
+                    Graphics2D clear = canvas.createGraphics();
+                    clear.setComposite(AlphaComposite.Clear);
+                    clear.fillRect(left, top, image.getWidth(), image.getHeight());
+                    clear.dispose();
+                } else if (restore != null) {
+                    canvas = restore;
+                }
+                return shown;
+            }
+
+            @Override
+            public void close() throws IOException {
+                reader.dispose();
+                in.close();
+            }
+        };
+    }
+
+    private static BufferedImage copy(BufferedImage image, int type) {
+        BufferedImage copy = new BufferedImage(image.getWidth(), image.getHeight(), type);
+        Graphics g = copy.getGraphics();
+        g.drawImage(image, 0, 0, null);
+        g.dispose();
+        return copy;
+    }
+
+    private static IIOMetadataNode child(IIOMetadataNode node, String name) {
+        for (int i = 0; i < node.getLength(); i++) {
+            if (node.item(i).getNodeName().equals(name)) {
+                return (IIOMetadataNode) node.item(i);
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,141 @@
+import java.awt.Dimension;
+import java.awt.Rectangle;
+import java.io.File;
+import java.io.IOException;
+import java.util.Iterator;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+
+/**
+ * Membangun Quadtree untuk gambar yang lebih besar dari heap tanpa memuat gambar penuh.
+ * Tile adalah blok Quadtree pertama (menurut aturan split yang sama) yang lebar dan tingginya
+ * tidak melebihi tileSize; untuk gambar berukuran pangkat dua, tile-nya juga pangkat dua.
+ * Setiap tile dibaca lewat ImageReader dengan setSourceRegion, subtree-nya dibangun sendiri,
+ * lalu ditempelkan di bawah root bersama. Memori piksel puncak dibatasi ukuran tile.
+ *
+ * Node di atas level tile selalu di-split: warna rata-ratanya dihitung dari jumlah piksel
+ * anak-anaknya, sedangkan error-nya tidak dihitung (disimpan sebagai POSITIVE_INFINITY).
+ * Hasilnya sama dengan pembangunan in-memory selama pembangunan in-memory juga
+ * men-split semua blok di atas ukuran tile.
+ */
+public class TiledQuadTreeBuilder {
+    private final ImageReader reader;
+    private final int tileSize;
+    private final double threshold;
+    private final int minBlockSize;
+    private final ErrorCalc errorCalculator;
+
+    private final QuadTreeNodeStore nodes = new QuadTreeNodeStore();
+
+    private TiledQuadTreeBuilder(ImageReader reader, int tileSize, double threshold, int minBlockSize,
+                                 ErrorCalc errorCalculator) {
+        this.reader = reader;
+        this.tileSize = tileSize;
+        this.threshold = threshold;
+        this.minBlockSize = minBlockSize;
+        this.errorCalculator = errorCalculator;
+    }
+
+    /**
+     * Membaca ukuran gambar dari header saja, tanpa mendekode pikselnya.
+     */
+    public static Dimension readDimensions(File file) throws IOException {
+        try (ImageInputStream iis = ImageIO.createImageInputStream(file)) {
+            ImageReader reader = openReader(iis);
+            try {
+                return new Dimension(reader.getWidth(0), reader.getHeight(0));
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    public static QuadTree build(File file, int tileSize, double threshold, int minBlockSize,
+                                 ErrorCalc errorCalculator) throws IOException {
+        if (tileSize <= 0) {
+            throw new IllegalArgumentException("tileSize harus positif");
+        }
+        try (ImageInputStream iis = ImageIO.createImageInputStream(file)) {
+            ImageReader reader = openReader(iis);
+            try {
+                int width = reader.getWidth(0);
+                int height = reader.getHeight(0);
+                TiledQuadTreeBuilder builder = new TiledQuadTreeBuilder(reader, tileSize, threshold, minBlockSize, errorCalculator);
+                int root = builder.nodes.allocate(1);
+                builder.buildRegion(root, 0, 0, width, height);
+                builder.nodes.trimToSize();
+                return new QuadTree(width, height, builder.nodes);
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    private static ImageReader openReader(ImageInputStream iis) throws IOException {
+        if (iis == null) {
+            throw new IOException("File gambar tidak dapat dibuka");
+        }
+        Iterator<ImageReader> readers = ImageIO.getImageReaders(iis);
+        if (!readers.hasNext()) {
+            throw new IOException("Format gambar tidak didukung!");
+        }
+        ImageReader reader = readers.next();
+        reader.setInput(iis, false, true);
+        return reader;
+    }
+
+    /**
+     * Membangun blok [x,y,w,h] ke slot node dan mengembalikan jumlah R, G, B pikselnya
+     * (untuk warna rata-rata node induk).
+     */
+    private long[] buildRegion(int node, int x, int y, int w, int h) throws IOException {
+        if (w <= 0 || h <= 0) {
+            return new long[3]; // Slot kosong
+        }
+
+        if (w <= tileSize && h <= tileSize) {
+            return buildTile(node, x, y, w, h);
+        }
+
+        // Di atas level tile: selalu di-split, warna dari jumlah piksel anak
+        nodes.set(node, x, y, w, h, 0, Double.POSITIVE_INFINITY);
+        int child = nodes.allocateChildren(node);
+        int halfWidth = w / 2;
+        int halfHeight = h / 2;
+        long[] sums = new long[3];
+        accumulate(sums, buildRegion(child,     x,             y,              halfWidth,     halfHeight));
+        accumulate(sums, buildRegion(child + 1, x + halfWidth, y,              w - halfWidth, halfHeight));
+        accumulate(sums, buildRegion(child + 2, x,             y + halfHeight, halfWidth,     h - halfHeight));
+        accumulate(sums, buildRegion(child + 3, x + halfWidth, y + halfHeight, w - halfWidth, h - halfHeight));
+
+        long count = (long) w * h;
+        int avgRGB = (int) (sums[0] / count) << 16 | (int) (sums[1] / count) << 8 | (int) (sums[2] / count);
+        nodes.setRGB(node, avgRGB);
+        return sums;
+    }
+
+    private long[] buildTile(int node, int x, int y, int w, int h) throws IOException {
+        ImageReadParam param = reader.getDefaultReadParam();
+        param.setSourceRegion(new Rectangle(x, y, w, h));
+        ImageRaster raster = ImageRaster.from(reader.read(0, param));
+
+        QuadTree subtree = new QuadTree(raster, threshold, minBlockSize, errorCalculator);
+        subtree.buildTree();
+        nodes.copySubtree(subtree.getNodes(), QuadTree.ROOT, node, x, y);
+
+        IntegralImage integral = raster.integral();
+        return new long[] {
+            integral.sumRed(0, 0, w, h),
+            integral.sumGreen(0, 0, w, h),
+            integral.sumBlue(0, 0, w, h)
+        };
+    }
+
+    private static void accumulate(long[] total, long[] part) {
+        total[0] += part[0];
+        total[1] += part[1];
+        total[2] += part[2];
+    }
+}
@@ -1,32 +1,45 @@
-import java.awt.Color;
-import java.awt.image.BufferedImage;
+import java.util.concurrent.atomic.LongAdder;
 
 public class VarErrorCalc implements ErrorCalc {
+    private static final LongAdder PIXELS_TOUCHED = Instrumentation.pixelCounter("VarErrorCalc");
+
     @Override
-    public double computeError(BufferedImage image, int x, int y, int width, int height, Color avgColor) {
+    public double computeError(int[] pixels, int stride, int x, int y, int width, int height, int avgR, int avgG, int avgB) {
+        if (Instrumentation.ENABLED) PIXELS_TOUCHED.add((long) width * height);
+        if (VectorSupport.ENABLED && width >= VectorSupport.LANES) {
+            // Versi SIMD, jumlahnya eksak sehingga hasilnya sama dengan loop di bawah
+            double sumSq = VectorKernels.sumSquaredDeviation(pixels, stride, x, y, width, height, avgR, avgG, avgB);
+            return (sumSq / (width * height)) / 3.0;
+        }
+
         double sumVariance = 0;
         int count = 0;
-        
-        // Pastikan tidak melewati ukuran gambar
-        int endX = Math.min(x + width, image.getWidth());
-        int endY = Math.min(y + height, image.getHeight());
-        x = Math.max(0, x);
-        y = Math.max(0, y);
-        
-        for (int j = y; j < endY; j++) {
-            for (int i = x; i < endX; i++) {
-                Color c = new Color(image.getRGB(i, j));
-                double diffR = c.getRed() - avgColor.getRed();
-                double diffG = c.getGreen() - avgColor.getGreen();
-                double diffB = c.getBlue() - avgColor.getBlue();
+
+        for (int j = y; j < y + height; j++) {
+            int row = j * stride;
+            for (int i = x; i < x + width; i++) {
+                int rgb = pixels[row + i];
+                double diffR = ((rgb >> 16) & 0xFF) - avgR;
+                double diffG = ((rgb >> 8) & 0xFF) - avgG;
+                double diffB = (rgb & 0xFF) - avgB;
                 sumVariance += (diffR * diffR + diffG * diffG + diffB * diffB);
                 count++;
             }
         }
-        
+
         if (count == 0) return 0.0; // Jika dibagi 0
-        
+
         // Rata-rata variansi tiap kanal (dibagi 3)
         return (sumVariance / count) / 3.0;
     }
+
+    @Override
+    public double computeError(ImageRaster raster, int x, int y, int width, int height, int avgR, int avgG, int avgB) {
+        int count = width * height;
+        if (count <= 0) return 0.0; // Jika dibagi 0
+
+        // Jumlah kuadrat selisih didapat dari summed-area table dalam O(1)
+        double sumVariance = raster.integral().sumSquaredDeviation(x, y, width, height, avgR, avgG, avgB);
+        return (sumVariance / count) / 3.0;
+    }
 }
@@ -0,0 +1,88 @@
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * Kernel SIMD (jdk.incubator.vector) untuk jumlah simpangan mutlak dan jumlah kuadrat
+ * simpangan pada piksel packed RGB. Setiap lane memproses satu piksel; kanal dipisah
+ * dengan shift dan mask di dalam vektor. Hasilnya bilangan bulat eksak, sama persis
+ * dengan loop skalar. Jangan dipanggil langsung: cek VectorSupport.ENABLED dulu,
+ * karena kelas ini gagal dimuat jika modul vector tidak ditambahkan saat runtime.
+ */
+public class VectorKernels {
+    private static final VectorSpecies<Integer> SPECIES = IntVector.SPECIES_PREFERRED;
+    public static final int LANES = SPECIES.length();
+    // Akumulator lane (int) dikosongkan ke long setiap CHUNK piksel. reduceLanesToLong menjumlahkan
+    // lane dalam int, jadi total satu chunk (maks. 8192 * 3 * 255^2) harus muat di int
+    private static final int CHUNK = 8192;
+
+    /**
+     * Mengisi sums[0..2] dengan jumlah |kanal - rata-rata| untuk R, G, B pada blok [x,y,width,height].
+     */
+    public static void sumAbsDeviation(int[] pixels, int stride, int x, int y, int width, int height,
+                                       int avgR, int avgG, int avgB, long[] sums) {
+        long sumR = 0, sumG = 0, sumB = 0;
+        int vectorEnd = SPECIES.loopBound(width);
+        for (int j = y; j < y + height; j++) {
+            int row = j * stride + x;
+            int i = 0;
+            while (i < vectorEnd) {
+                IntVector accR = IntVector.zero(SPECIES);
+                IntVector accG = IntVector.zero(SPECIES);
+                IntVector accB = IntVector.zero(SPECIES);
+                int chunkEnd = Math.min(vectorEnd, i + CHUNK);
+                for (; i < chunkEnd; i += LANES) {
+                    IntVector v = IntVector.fromArray(SPECIES, pixels, row + i);
+                    accR = accR.add(v.lanewise(VectorOperators.LSHR, 16).and(0xFF).sub(avgR).abs());
+                    accG = accG.add(v.lanewise(VectorOperators.LSHR, 8).and(0xFF).sub(avgG).abs());
+                    accB = accB.add(v.and(0xFF).sub(avgB).abs());
+                }
+                sumR += accR.reduceLanesToLong(VectorOperators.ADD);
+                sumG += accG.reduceLanesToLong(VectorOperators.ADD);
+                sumB += accB.reduceLanesToLong(VectorOperators.ADD);
+            }
+            for (; i < width; i++) {
+                int rgb = pixels[row + i];
+                sumR += Math.abs(((rgb >> 16) & 0xFF) - avgR);
+                sumG += Math.abs(((rgb >> 8) & 0xFF) - avgG);
+                sumB += Math.abs((rgb & 0xFF) - avgB);
+            }
+        }
+        sums[0] = sumR;
+        sums[1] = sumG;
+        sums[2] = sumB;
+    }
+
+    /**
+     * Jumlah kuadrat selisih setiap piksel terhadap (avgR, avgG, avgB), ketiga kanal dijumlahkan.
+     */
+    public static long sumSquaredDeviation(int[] pixels, int stride, int x, int y, int width, int height,
+                                           int avgR, int avgG, int avgB) {
+        long sum = 0;
+        int vectorEnd = SPECIES.loopBound(width);
+        for (int j = y; j < y + height; j++) {
+            int row = j * stride + x;
+            int i = 0;
+            while (i < vectorEnd) {
+                IntVector acc = IntVector.zero(SPECIES);
+                int chunkEnd = Math.min(vectorEnd, i + CHUNK);
+                for (; i < chunkEnd; i += LANES) {
+                    IntVector v = IntVector.fromArray(SPECIES, pixels, row + i);
+                    IntVector dR = v.lanewise(VectorOperators.LSHR, 16).and(0xFF).sub(avgR);
+                    IntVector dG = v.lanewise(VectorOperators.LSHR, 8).and(0xFF).sub(avgG);
+                    IntVector dB = v.and(0xFF).sub(avgB);
+                    acc = acc.add(dR.mul(dR)).add(dG.mul(dG)).add(dB.mul(dB));
+                }
+                sum += acc.reduceLanesToLong(VectorOperators.ADD);
+            }
+            for (; i < width; i++) {
+                int rgb = pixels[row + i];
+                int dR = ((rgb >> 16) & 0xFF) - avgR;
+                int dG = ((rgb >> 8) & 0xFF) - avgG;
+                int dB = (rgb & 0xFF) - avgB;
+                sum += dR * dR + dG * dG + dB * dB;
+            }
+        }
+        return sum;
+    }
+}
@@ -0,0 +1,19 @@
+/**
+ * Menentukan saat runtime apakah VectorKernels bisa dipakai: modul jdk.incubator.vector
+ * harus ada (java --add-modules jdk.incubator.vector) dan tidak dimatikan dengan
+ * -Dquadtree.simd=false. Kelas ini sendiri tidak bergantung pada modul tersebut.
+ */
+public class VectorSupport {
+    public static final int LANES = detectLanes();  // 0 jika SIMD tidak tersedia
+    public static final boolean ENABLED = LANES > 1;
+
+    private static int detectLanes() {
+        if (!Boolean.parseBoolean(System.getProperty("quadtree.simd", "true"))) return 0;
+        if (ModuleLayer.boot().findModule("jdk.incubator.vector").isEmpty()) return 0;
+        try {
+            return VectorKernels.LANES;
+        } catch (LinkageError e) {
+            return 0; // Modul ada tetapi kelas kernel tidak dapat dimuat, pakai versi skalar
+        }
+    }
+}
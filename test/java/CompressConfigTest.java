@@ -0,0 +1,38 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+class CompressConfigTest {
+    @Test
+    void rejectsOutOfRangeValuesWithKeyName() {
+        String[][] invalid = {
+            {"parallel-cutoff", "0"}, {"parallel-cutoff", "-5"},
+            {"tile-size", "-1"},
+            {"gif-delay", "-10"},
+            {"gif-frames", "0"}, {"gif-frames", "-3"},
+            {"gif-skip", "0"}, {"gif-skip", "-1"},
+            {"parallelism", "0"},
+        };
+        for (String[] entry : invalid) {
+            IllegalArgumentException e = assertThrows(IllegalArgumentException.class,
+                    () -> new CompressConfig().set(entry[0], entry[1]), entry[0] + "=" + entry[1]);
+            assertTrue(e.getMessage().toLowerCase().contains(entry[0]), e.getMessage());
+        }
+    }
+
+    @Test
+    void acceptsBoundaryValues() {
+        CompressConfig config = new CompressConfig();
+        config.set("parallel-cutoff", "1");
+        config.set("tile-size", "0");
+        config.set("gif-delay", "0");
+        config.set("gif-frames", "1");
+        config.set("gif-skip", "1");
+        assertEquals(1, config.parallelCutoff);
+        assertEquals(0, config.tileSize);
+        assertEquals(1, config.maxGifFrames);
+        assertEquals(1, config.gifFrameSkip);
+    }
+}
@@ -0,0 +1,142 @@
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Arrays;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Entropi dari piramida histogram (dan dari jalur blok kecil) dibandingkan dengan entropi
+ * referensi -sum(p log2 p) dari histogram yang dihitung langsung per blok.
+ */
+class EntropyErrorCalcTest {
+    private static final double TOLERANCE = 1e-9;
+    private static final int[][] SIZES = {{1, 1}, {1, 40}, {129, 65}, {300, 173}, {256, 256}};
+
+    private final EntropyErrorCalc entropy = new EntropyErrorCalc();
+
+    @Test
+    void quadtreeBlocksMatchReferenceEntropy() {
+        Random random = new Random(3);
+        for (int[] size : SIZES) {
+            for (boolean fewColors : new boolean[] {false, true}) {
+                ImageRaster raster = raster(random, size[0], size[1], fewColors);
+                checkQuadtreeBlocks(raster, 0, 0, size[0], size[1]);
+            }
+        }
+    }
+
+    @Test
+    void unalignedBlocksMatchReferenceEntropy() {
+        Random random = new Random(4);
+        for (int[] size : SIZES) {
+            ImageRaster raster = raster(random, size[0], size[1], random.nextBoolean());
+            for (int[] block : TestImages.blocks(random, size[0], size[1], 150)) {
+                check(raster, block[0], block[1], block[2], block[3]);
+            }
+        }
+    }
+
+    @Test
+    void storedHistogramsAreExact() {
+        ImageRaster raster = raster(new Random(5), 300, 173, false);
+        HistogramPyramid pyramid = raster.histograms();
+        assertTrue(pyramid.size() > 1);
+        int[] stored = new int[] {0};
+        checkStored(raster, pyramid, 0, 0, 300, 173, stored);
+        assertEquals(pyramid.size(), stored[0]);
+    }
+
+    @Test
+    void singlePixelAndUniformBlocksHaveZeroEntropy() {
+        int[] pixels = new int[64 * 64];
+        Arrays.fill(pixels, 0x123456);
+        ImageRaster uniform = new ImageRaster(pixels, 64, 64);
+        assertEquals(0.0, entropy.computeError(uniform, 0, 0, 64, 64, 0, 0, 0));
+        ImageRaster noisy = raster(new Random(6), 9, 9, false);
+        for (int y = 0; y < 9; y++) {
+            for (int x = 0; x < 9; x++) {
+                assertEquals(0.0, entropy.computeError(noisy, x, y, 1, 1, 0, 0, 0));
+            }
+        }
+    }
+
+    private void checkQuadtreeBlocks(ImageRaster raster, int x, int y, int w, int h) {
+        if (w <= 0 || h <= 0) return;
+        check(raster, x, y, w, h);
+        if (w == 1 && h == 1) return;
+        int halfWidth = w / 2;
+        int halfHeight = h / 2;
+        checkQuadtreeBlocks(raster, x, y, halfWidth, halfHeight);
+        checkQuadtreeBlocks(raster, x + halfWidth, y, w - halfWidth, halfHeight);
+        checkQuadtreeBlocks(raster, x, y + halfHeight, halfWidth, h - halfHeight);
+        checkQuadtreeBlocks(raster, x + halfWidth, y + halfHeight, w - halfWidth, h - halfHeight);
+    }
+
+    private void checkStored(ImageRaster raster, HistogramPyramid pyramid, int x, int y, int w, int h, int[] stored) {
+        if (w <= 0 || h <= 0) return;
+        int offset = pyramid.find(x, y, w, h);
+        if (offset < 0) return;
+        stored[0]++;
+        assertArrayEquals(histogram(raster, x, y, w, h),
+                Arrays.copyOfRange(pyramid.getCounts(), offset, offset + HistogramPyramid.BINS),
+                "blok " + x + "," + y + "," + w + "," + h);
+        int halfWidth = w / 2;
+        int halfHeight = h / 2;
+        checkStored(raster, pyramid, x, y, halfWidth, halfHeight, stored);
+        checkStored(raster, pyramid, x + halfWidth, y, w - halfWidth, halfHeight, stored);
+        checkStored(raster, pyramid, x, y + halfHeight, halfWidth, h - halfHeight, stored);
+        checkStored(raster, pyramid, x + halfWidth, y + halfHeight, w - halfWidth, h - halfHeight, stored);
+    }
+
+    private void check(ImageRaster raster, int x, int y, int w, int h) {
+        String where = raster.getWidth() + "x" + raster.getHeight() + " blok " + x + "," + y + "," + w + "," + h;
+        double expected = referenceEntropy(histogram(raster, x, y, w, h), w * h);
+        assertEquals(expected, entropy.computeError(raster, x, y, w, h, 0, 0, 0), TOLERANCE, where);
+        assertEquals(expected, entropy.computeError(raster.getPixels(), raster.getWidth(), x, y, w, h, 0, 0, 0),
+                TOLERANCE, where);
+    }
+
+    private static int[] histogram(ImageRaster raster, int x, int y, int w, int h) {
+        int[] hist = new int[HistogramPyramid.BINS];
+        int[] pixels = raster.getPixels();
+        for (int j = y; j < y + h; j++) {
+            for (int i = x; i < x + w; i++) {
+                int rgb = pixels[j * raster.getWidth() + i];
+                hist[(rgb >> 16) & 0xFF]++;
+                hist[256 + ((rgb >> 8) & 0xFF)]++;
+                hist[512 + (rgb & 0xFF)]++;
+            }
+        }
+        return hist;
+    }
+
+    private static double referenceEntropy(int[] hist, int count) {
+        double total = 0;
+        for (int channel = 0; channel < 3; channel++) {
+            double h = 0;
+            for (int bin = 0; bin < 256; bin++) {
+                int c = hist[channel * 256 + bin];
+                if (c > 0) {
+                    double p = (double) c / count;
+                    h -= p * Math.log(p) / Math.log(2);
+                }
+            }
+            total += h;
+        }
+        return total / 3;
+    }
+
+    // fewColors: 3 bit per kanal, agar bin histogram banyak yang berulang
+    private static ImageRaster raster(Random random, int width, int height, boolean fewColors) {
+        ImageRaster raster = TestImages.randomRaster(random, width, height);
+        if (fewColors) {
+            int[] pixels = raster.getPixels();
+            for (int i = 0; i < pixels.length; i++) {
+                pixels[i] &= 0xE0E0E0;
+            }
+        }
+        return raster;
+    }
+}
@@ -0,0 +1,122 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import javax.imageio.stream.ImageOutputStreamImpl;
+import javax.imageio.stream.MemoryCacheImageOutputStream;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Kegagalan encoder harus sampai ke produsen (bukan membuatnya menunggu selamanya di
+ * antrian), dan abort() harus menghentikan thread encoder.
+ */
+class GifStreamFrameSinkTest {
+    private static final Duration TIMEOUT = Duration.ofSeconds(20);
+
+    @Test
+    void runtimeFailureInEncoderReachesProducer() throws IOException {
+        GifStreamFrameSink sink = new GifStreamFrameSink(new FailingStream(() -> new IllegalStateException("rusak")), 10, 1);
+        assertTimeoutPreemptively(TIMEOUT, () -> {
+            assertThrows(IllegalStateException.class, () -> acceptMany(sink));
+        });
+        sink.abort();
+    }
+
+    @Test
+    void ioFailureInEncoderReachesProducerAndClose() throws IOException {
+        GifStreamFrameSink sink = new GifStreamFrameSink(new FailingStream(() -> new IOException("disk penuh")), 10, 1);
+        assertTimeoutPreemptively(TIMEOUT, () -> {
+            assertThrows(UncheckedIOException.class, () -> acceptMany(sink));
+            assertThrows(IOException.class, sink::close);
+        });
+    }
+
+    @Test
+    void abortStopsEncoderWithoutClosingSequence() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (MemoryCacheImageOutputStream stream = new MemoryCacheImageOutputStream(bytes)) {
+            GifStreamFrameSink sink = new GifStreamFrameSink(stream, 10, 2);
+            sink.accept(frame());
+            sink.accept(frame());
+            assertTimeoutPreemptively(TIMEOUT, sink::abort);
+            sink.abort();
+            sink.close(); // Tidak berpengaruh setelah abort
+            assertThrows(IllegalStateException.class, () -> sink.accept(frame()));
+        }
+        assertFalse(Thread.getAllStackTraces().keySet().stream()
+                .anyMatch(t -> t.getName().equals("gif-encoder") && t.isAlive()));
+    }
+
+    @Test
+    void closeWritesAllFrames() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        GifStreamFrameSink sink;
+        try (MemoryCacheImageOutputStream stream = new MemoryCacheImageOutputStream(bytes)) {
+            sink = new GifStreamFrameSink(stream, 10, 1);
+            for (int i = 0; i < 5; i++) {
+                sink.accept(frame());
+            }
+            sink.close();
+        }
+        assertEquals(5, sink.getFramesWritten());
+    }
+
+    private static void acceptMany(GifStreamFrameSink sink) {
+        for (int i = 0; i < 1000; i++) {
+            sink.accept(frame());
+        }
+    }
+
+    private static BufferedImage frame() {
+        BufferedImage image = new BufferedImage(16, 16, BufferedImage.TYPE_INT_RGB);
+        image.setRGB(3, 5, 0xFF8800);
+        return image;
+    }
+
+    private interface Failure {
+        Exception create();
+    }
+
+    /**
+     * Stream yang langsung gagal saat pertama kali ditulisi.
+     */
+    private static final class FailingStream extends ImageOutputStreamImpl {
+        private final Failure failure;
+
+        FailingStream(Failure failure) {
+            this.failure = failure;
+        }
+
+        private void fail() throws IOException {
+            Exception e = failure.create();
+            if (e instanceof IOException io) throw io;
+            throw (RuntimeException) e;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            fail();
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            fail();
+        }
+
+        @Override
+        public int read() {
+            return -1;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) {
+            return -1;
+        }
+    }
+}
@@ -0,0 +1,79 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Rata-rata warna dan jumlah kuadrat selisih dari summed-area table harus sama persis
+ * dengan pemindaian langsung per piksel, termasuk blok 1 piksel dan blok di tepi gambar.
+ */
+class IntegralImageTest {
+    private static final int[][] SIZES = {{1, 1}, {1, 17}, {13, 1}, {7, 5}, {64, 64}, {97, 33}};
+
+    @Test
+    void averageAndDeviationMatchDirectScan() {
+        Random random = new Random(1);
+        for (int[] size : SIZES) {
+            int width = size[0], height = size[1];
+            ImageRaster raster = TestImages.randomRaster(random, width, height);
+            IntegralImage integral = raster.integral();
+            for (int[] block : TestImages.blocks(random, width, height, 200)) {
+                int x = block[0], y = block[1], w = block[2], h = block[3];
+                long[] sums = directSums(raster.getPixels(), width, x, y, w, h);
+                long count = (long) w * h;
+                int avgR = (int) (sums[0] / count);
+                int avgG = (int) (sums[1] / count);
+                int avgB = (int) (sums[2] / count);
+                String where = width + "x" + height + " blok " + x + "," + y + "," + w + "," + h;
+                assertEquals((avgR << 16) | (avgG << 8) | avgB, integral.averageRGB(x, y, w, h), where);
+                assertEquals(directDeviation(raster.getPixels(), width, x, y, w, h, avgR, avgG, avgB),
+                        integral.sumSquaredDeviation(x, y, w, h, avgR, avgG, avgB), where);
+            }
+        }
+    }
+
+    @Test
+    void varianceMatchesPixelScan() {
+        Random random = new Random(2);
+        VarErrorCalc variance = new VarErrorCalc();
+        for (int[] size : SIZES) {
+            int width = size[0], height = size[1];
+            ImageRaster raster = TestImages.randomRaster(random, width, height);
+            for (int[] block : TestImages.blocks(random, width, height, 200)) {
+                int x = block[0], y = block[1], w = block[2], h = block[3];
+                int avg = raster.integral().averageRGB(x, y, w, h);
+                int avgR = (avg >> 16) & 0xFF, avgG = (avg >> 8) & 0xFF, avgB = avg & 0xFF;
+                double scanned = variance.computeError(raster.getPixels(), width, x, y, w, h, avgR, avgG, avgB);
+                double integrated = variance.computeError(raster, x, y, w, h, avgR, avgG, avgB);
+                assertEquals(scanned, integrated, 0.0, width + "x" + height + " blok " + x + "," + y + "," + w + "," + h);
+            }
+        }
+    }
+
+    private static long[] directSums(int[] pixels, int stride, int x, int y, int w, int h) {
+        long[] sums = new long[3];
+        for (int j = y; j < y + h; j++) {
+            for (int i = x; i < x + w; i++) {
+                int rgb = pixels[j * stride + i];
+                sums[0] += (rgb >> 16) & 0xFF;
+                sums[1] += (rgb >> 8) & 0xFF;
+                sums[2] += rgb & 0xFF;
+            }
+        }
+        return sums;
+    }
+
+    private static long directDeviation(int[] pixels, int stride, int x, int y, int w, int h, int avgR, int avgG, int avgB) {
+        long sum = 0;
+        for (int j = y; j < y + h; j++) {
+            for (int i = x; i < x + w; i++) {
+                int rgb = pixels[j * stride + i];
+                long dr = ((rgb >> 16) & 0xFF) - avgR;
+                long dg = ((rgb >> 8) & 0xFF) - avgG;
+                long db = (rgb & 0xFF) - avgB;
+                sum += dr * dr + dg * dg + db * db;
+            }
+        }
+        return sum;
+    }
+}
@@ -0,0 +1,112 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.awt.image.BufferedImage;
+import java.lang.management.ManagementFactory;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Metrik pada raster off-heap (piksel dibaca lewat copyBlock) harus sama persis dengan
+ * raster heap (termasuk windowedSSIM), dan evaluasi berulang tidak boleh mengalokasikan
+ * salinan blok di heap.
+ */
+class OffHeapErrorCalcTest {
+    private static final int WIDTH = 301, HEIGHT = 187;
+
+    // Metrik tanpa override raster: selalu lewat computeError(ImageRaster) default
+    private static final class RangeErrorCalc implements ErrorCalc {
+        @Override
+        public double computeError(int[] pixels, int stride, int x, int y, int width, int height, int avgR, int avgG, int avgB) {
+            int lo = 255, hi = 0;
+            for (int j = y; j < y + height; j++) {
+                for (int i = x; i < x + width; i++) {
+                    int g = (pixels[j * stride + i] >> 8) & 0xFF;
+                    lo = Math.min(lo, g);
+                    hi = Math.max(hi, g);
+                }
+            }
+            return hi - lo;
+        }
+    }
+
+    @Test
+    void metricsMatchHeapRaster() {
+        Random random = new Random(21);
+        BufferedImage image = image(random);
+        ImageRaster heap = ImageRaster.from(image);
+        try (OffHeapStorage storage = new OffHeapStorage(false)) {
+            ImageRaster offHeap = storage.raster(image);
+            ErrorCalc[] calcs = new ErrorCalc[6];
+            for (int method = 1; method <= 5; method++) {
+                calcs[method - 1] = Compressor.createErrorCalc(method);
+            }
+            calcs[5] = new RangeErrorCalc();
+            for (int[] block : TestImages.blocks(random, WIDTH, HEIGHT, 150)) {
+                int x = block[0], y = block[1], w = block[2], h = block[3];
+                int avg = heap.integral().averageRGB(x, y, w, h);
+                int avgR = (avg >> 16) & 0xFF, avgG = (avg >> 8) & 0xFF, avgB = avg & 0xFF;
+                assertEquals(avg, offHeap.integral().averageRGB(x, y, w, h));
+                for (ErrorCalc calc : calcs) {
+                    String where = calc.getClass().getSimpleName() + " blok " + x + "," + y + "," + w + "," + h;
+                    assertEquals(calc.computeError(heap, x, y, w, h, avgR, avgG, avgB),
+                            calc.computeError(offHeap, x, y, w, h, avgR, avgG, avgB), 0.0, where);
+                }
+            }
+        }
+    }
+
+    @Test
+    void repeatedEvaluationsDoNotCopyBlocksToHeap() {
+        BufferedImage image = image(new Random(22));
+        ImageRaster heap = ImageRaster.from(image);
+        try (OffHeapStorage storage = new OffHeapStorage(false)) {
+            ImageRaster offHeap = storage.raster(image);
+            ErrorCalc[] calcs = {new RangeErrorCalc(), new MADErrorCalc(), new PixelDiffErrorCalc()};
+            for (ErrorCalc calc : calcs) {
+                // Pemanasan: buffer scratch tumbuh sekali dan kernel sudah dikompilasi JIT
+                allocatedBytes(calc, heap, 3000);
+                allocatedBytes(calc, offHeap, 3000);
+                long heapBytes = allocatedBytes(calc, heap, 2000);
+                long offHeapBytes = allocatedBytes(calc, offHeap, 2000);
+                // Salinan blok 96x96 per evaluasi akan berjumlah sekitar 70 MB
+                assertTrue(offHeapBytes < heapBytes + 4 * 1024 * 1024, calc.getClass().getSimpleName()
+                        + " off-heap mengalokasikan " + offHeapBytes + " byte, heap " + heapBytes + " byte");
+            }
+        }
+    }
+
+    @Test
+    void windowedSSIMMatchesHeapRaster() {
+        Random random = new Random(23);
+        BufferedImage original = image(random);
+        BufferedImage compressed = image(random);
+        double expected = SSIMErrorCalc.windowedSSIM(ImageRaster.from(original), ImageRaster.from(compressed), 8, 4);
+        try (OffHeapStorage storage = new OffHeapStorage(false)) {
+            assertEquals(expected, SSIMErrorCalc.windowedSSIM(storage.raster(original), ImageRaster.from(compressed), 8, 4), 0.0);
+            assertEquals(expected, SSIMErrorCalc.windowedSSIM(storage.raster(original), storage.raster(compressed), 8, 4), 0.0);
+        }
+    }
+
+    private static long allocatedBytes(ErrorCalc calc, ImageRaster raster, int count) {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long thread = Thread.currentThread().threadId();
+        long before = threads.getThreadAllocatedBytes(thread);
+        evaluate(calc, raster, count);
+        return threads.getThreadAllocatedBytes(thread) - before;
+    }
+
+    private static void evaluate(ErrorCalc calc, ImageRaster raster, int count) {
+        for (int n = 0; n < count; n++) {
+            int x = (n * 37) % (WIDTH - 96);
+            int y = (n * 53) % (HEIGHT - 96);
+            calc.computeError(raster, x, y, 96, 96, 128, 128, 128);
+        }
+    }
+
+    private static BufferedImage image(Random random) {
+        BufferedImage image = new BufferedImage(WIDTH, HEIGHT, BufferedImage.TYPE_INT_RGB);
+        image.setRGB(0, 0, WIDTH, HEIGHT, TestImages.randomRaster(random, WIDTH, HEIGHT).getPixels(), 0, WIDTH);
+        return image;
+    }
+}
@@ -0,0 +1,91 @@
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Random;
+import java.util.zip.DeflaterOutputStream;
+import org.junit.jupiter.api.Test;
+
+/**
+ * File .qtc dan .qtp yang ditulis harus terbaca kembali menjadi gambar yang sama dengan
+ * generateCompressedImage, dan file .qtc yang rusak harus ditolak dengan IOException.
+ */
+class QtcRoundTripTest {
+
+    @Test
+    void qtcAndQtpRoundTrip() throws IOException {
+        int[][] sizes = { {1, 1}, {1, 7}, {64, 64}, {245, 131} };
+        for (int[] size : sizes) {
+            for (double threshold : new double[] {0, 10, 40}) {
+                QuadTree tree = build(size[0], size[1], threshold);
+                int[] expected = pixels(tree.generateCompressedImage());
+                String where = size[0] + "x" + size[1] + " threshold " + threshold;
+
+                ByteArrayOutputStream qtc = new ByteArrayOutputStream();
+                QtcWriter.write(tree, qtc);
+                assertArrayEquals(expected, pixels(QtcReader.readImage(new ByteArrayInputStream(qtc.toByteArray()))), where);
+                QuadTree read = QtcReader.readTree(new ByteArrayInputStream(qtc.toByteArray()));
+                assertArrayEquals(expected, pixels(read.generateCompressedImage()), where);
+
+                ByteArrayOutputStream qtp = new ByteArrayOutputStream();
+                ProgressiveQtcWriter.write(tree, qtp);
+                BufferedImage progressive = ProgressiveQtcReader.readImage(
+                        new ByteArrayInputStream(qtp.toByteArray()), ProgressiveQtcReader.NO_LIMIT, Integer.MAX_VALUE);
+                assertArrayEquals(expected, pixels(progressive), where);
+            }
+        }
+    }
+
+    @Test
+    void rejectsInconsistentHeader() {
+        // Header mengklaim 1 miliar node untuk gambar 2x2
+        assertThrows(IOException.class, () -> QtcReader.readImage(qtc(2, 2, 1_000_000_000, 4, new byte[0])));
+        // Daun lebih banyak dari piksel
+        assertThrows(IOException.class, () -> QtcReader.readTree(qtc(2, 2, 9, 5, new byte[0])));
+        // Ukuran gambar melebihi batas raster
+        assertThrows(IOException.class, () -> QtcReader.readImage(qtc(100_000, 100_000, 1, 1, new byte[0])));
+        // Header konsisten, tetapi body terpotong
+        assertThrows(IOException.class, () -> QtcReader.readImage(qtc(4096, 4096, 1_000_001, 1_000_000, new byte[1])));
+    }
+
+    @Test
+    void rejectsSplitOn1x1Block() {
+        // Blok 1x2 di-split (bit 1), lalu anak 1x1 pertama di-split juga (bit 1)
+        byte[] body = { (byte) 0b1100_0000, 0, 0, 0, 0, 0, 0 };
+        assertThrows(IOException.class, () -> QtcReader.readImage(qtc(1, 2, 3, 2, body)));
+        assertThrows(IOException.class, () -> QtcReader.readTree(qtc(1, 2, 3, 2, body)));
+    }
+
+    private static QuadTree build(int width, int height, double threshold) {
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        image.setRGB(0, 0, width, height, TestImages.randomRaster(new Random(width * 31 + height), width, height).getPixels(), 0, width);
+        QuadTree tree = new QuadTree(image, threshold, 1, Compressor.createErrorCalc(1), false, 0, 0);
+        tree.buildTree();
+        return tree;
+    }
+
+    private static ByteArrayInputStream qtc(int width, int height, int nodeCount, int leafCount, byte[] body) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        DataOutputStream header = new DataOutputStream(out);
+        header.write(QtcWriter.MAGIC);
+        header.writeInt(width);
+        header.writeInt(height);
+        header.writeInt(nodeCount);
+        header.writeInt(leafCount);
+        header.flush();
+        DeflaterOutputStream deflate = new DeflaterOutputStream(out);
+        deflate.write(body);
+        deflate.finish();
+        return new ByteArrayInputStream(out.toByteArray());
+    }
+
+    private static int[] pixels(BufferedImage image) {
+        return ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+    }
+}
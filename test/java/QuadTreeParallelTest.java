@@ -0,0 +1,59 @@
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.io.File;
+import java.io.IOException;
+import java.util.Random;
+import javax.imageio.ImageIO;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Pembangunan paralel (fork-join) harus menghasilkan pohon yang sama persis dengan
+ * pembangunan serial: struktur, warna, error setiap node, dan gambar hasilnya.
+ */
+class QuadTreeParallelTest {
+    private static final double[] THRESHOLDS = {0, 25, 5, 1.5, 0.3, 0.2}; // Per metode 1-5
+    private static final int CUTOFF = 16 * 16; // Kecil, agar pohon terbagi ke banyak task
+
+    @Test
+    void parallelBuildMatchesSerialOnPhoto() throws IOException {
+        check(ImageIO.read(new File("test/Lenna.png")));
+    }
+
+    @Test
+    void parallelBuildMatchesSerialOnOddSizedImage() {
+        BufferedImage image = new BufferedImage(245, 131, BufferedImage.TYPE_INT_RGB);
+        image.setRGB(0, 0, 245, 131, TestImages.randomRaster(new Random(31), 245, 131).getPixels(), 0, 245);
+        check(image);
+    }
+
+    private static void check(BufferedImage image) {
+        for (int method = 1; method <= 5; method++) {
+            for (boolean leafBudget : new boolean[] {false, true}) {
+                QuadTree serial = build(image, method, leafBudget, 1);
+                QuadTree parallel = build(image, method, leafBudget, 4);
+                String where = image.getWidth() + "x" + image.getHeight() + " metode " + method
+                        + (leafBudget ? " batas daun" : " threshold");
+                assertEquals(TestImages.describe(serial), TestImages.describe(parallel), where);
+                assertArrayEquals(pixels(serial.generateCompressedImage()), pixels(parallel.generateCompressedImage()), where);
+            }
+        }
+    }
+
+    private static QuadTree build(BufferedImage image, int method, boolean leafBudget, int parallelism) {
+        QuadTree tree = new QuadTree(image, THRESHOLDS[method], 2, Compressor.createErrorCalc(method), false, 0, 0);
+        tree.setParallelism(parallelism, CUTOFF);
+        if (leafBudget) {
+            tree.buildTreeWithLeafBudget(image.getWidth() * image.getHeight() / 20);
+        } else {
+            tree.buildTree();
+        }
+        return tree;
+    }
+
+    private static int[] pixels(BufferedImage image) {
+        return ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+    }
+}
@@ -0,0 +1,140 @@
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import javax.imageio.ImageIO;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Setelah serangkaian perubahan acak (blok warna solid, derau, area di luar gambar, lalu
+ * seperempat dan seluruh gambar yang memicu pemadatan slot), pohon dan gambar hasil updateRegions
+ * harus sama persis dengan pohon yang dibangun ulang dari gambar yang sudah diubah. Pohon dengan
+ * raster off-heap harus ditolak.
+ */
+class QuadTreeUpdateRegionsTest {
+    private static final double[] THRESHOLDS = {0, 25, 5, 1.5, 0.3, 0.2}; // Per metode 1-5
+    private static final int STEPS = 12;
+
+    @Test
+    void updatesMatchFreshBuildOnPhoto() throws IOException {
+        check(copy(ImageIO.read(new File("test/Lenna.png"))), 11);
+    }
+
+    @Test
+    void updatesMatchFreshBuildOnOddSizedImage() {
+        BufferedImage image = new BufferedImage(203, 157, BufferedImage.TYPE_INT_RGB);
+        ImageRaster raster = TestImages.randomRaster(new Random(12), 203, 157);
+        image.setRGB(0, 0, 203, 157, raster.getPixels(), 0, 203);
+        check(image, 13);
+    }
+
+    @Test
+    void rejectsOffHeapRaster() {
+        BufferedImage image = new BufferedImage(64, 48, BufferedImage.TYPE_INT_RGB);
+        image.setRGB(0, 0, 64, 48, TestImages.randomRaster(new Random(14), 64, 48).getPixels(), 0, 64);
+        try (OffHeapStorage storage = new OffHeapStorage(false)) {
+            QuadTree tree = new QuadTree(storage.raster(image), THRESHOLDS[1], 2, Compressor.createErrorCalc(1));
+            tree.buildTree();
+            assertThrows(IllegalStateException.class,
+                    () -> tree.updateRegions(image, List.of(new Rectangle(0, 0, 8, 8)), null));
+        }
+    }
+
+    private static void check(BufferedImage original, long seed) {
+        Random random = new Random(seed);
+        for (int method = 1; method <= 5; method++) {
+            for (boolean earlyExit : new boolean[] {true, false}) {
+                BufferedImage current = copy(original);
+                QuadTree tree = build(current, method, earlyExit);
+                BufferedImage output = tree.generateCompressedImage();
+                for (int step = 0; step < STEPS; step++) {
+                    int largeRegion = (step == STEPS / 3) ? 2 : (step == STEPS / 2) ? 1 : 0;
+                    List<Rectangle> dirty = paint(current, random, largeRegion);
+                    tree.updateRegions(current, dirty, output);
+
+                    QuadTree fresh = build(copy(current), method, earlyExit);
+                    String where = original.getWidth() + "x" + original.getHeight() + " metode " + method
+                            + " earlyExit " + earlyExit + " langkah " + step;
+                    assertEquals(TestImages.describe(fresh), TestImages.describe(tree), where);
+                    assertArrayEquals(pixels(fresh.generateCompressedImage()), pixels(output), where);
+                }
+                if (!earlyExit) {
+                    // Error node tetap eksak setelah diperbarui, jadi pohonnya masih bisa dipotong
+                    double cutThreshold = THRESHOLDS[method] * 3 + 1;
+                    QuadTree freshCut = build(copy(current), method, false, cutThreshold);
+                    assertArrayEquals(pixels(freshCut.generateCompressedImage()),
+                            pixels(tree.cut(cutThreshold).generateCompressedImage()), "cut metode " + method);
+                }
+            }
+        }
+    }
+
+    private static QuadTree build(BufferedImage image, int method, boolean earlyExit) {
+        return build(image, method, earlyExit, THRESHOLDS[method]);
+    }
+
+    private static QuadTree build(BufferedImage image, int method, boolean earlyExit, double threshold) {
+        QuadTree tree = new QuadTree(image, threshold, 4, Compressor.createErrorCalc(method), false, 0, 0);
+        tree.setEarlyExit(earlyExit);
+        tree.buildTree();
+        return tree;
+    }
+
+    /**
+     * Mengubah 1-3 area acak (boleh keluar dari batas gambar) dan mengembalikan area yang diubah.
+     * Jika largeRegion > 0, area kiri atas berukuran 1/largeRegion gambar juga diisi abu-abu.
+     */
+    private static List<Rectangle> paint(BufferedImage image, Random random, int largeRegion) {
+        List<Rectangle> dirty = new ArrayList<>();
+        Graphics2D g = image.createGraphics();
+        int count = 1 + random.nextInt(3);
+        for (int n = 0; n < count; n++) {
+            int w = 1 + random.nextInt(80);
+            int h = 1 + random.nextInt(80);
+            int x = random.nextInt(image.getWidth() + 20) - 10;
+            int y = random.nextInt(image.getHeight() + 20) - 10;
+            if (random.nextBoolean()) {
+                g.setColor(new Color(random.nextInt(0xFFFFFF)));
+                g.fillRect(x, y, w, h);
+            } else {
+                for (int j = Math.max(0, y); j < Math.min(image.getHeight(), y + h); j++) {
+                    for (int i = Math.max(0, x); i < Math.min(image.getWidth(), x + w); i++) {
+                        image.setRGB(i, j, random.nextInt());
+                    }
+                }
+            }
+            dirty.add(new Rectangle(x, y, w, h));
+        }
+        if (largeRegion > 0) {
+            // Sebagian besar pohon dibuang sekaligus, sehingga slot yatim dipadatkan
+            int w = image.getWidth() / largeRegion, h = image.getHeight() / largeRegion;
+            g.setColor(Color.GRAY);
+            g.fillRect(0, 0, w, h);
+            dirty.add(new Rectangle(0, 0, w, h));
+        }
+        g.dispose();
+        return dirty;
+    }
+
+    private static int[] pixels(BufferedImage image) {
+        return ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+    }
+
+    private static BufferedImage copy(BufferedImage image) {
+        BufferedImage rgb = new BufferedImage(image.getWidth(), image.getHeight(), BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = rgb.createGraphics();
+        g.drawImage(image, 0, 0, null);
+        g.dispose();
+        return rgb;
+    }
+}
@@ -0,0 +1,136 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+/**
+ * SSIM dari momen blok (satu kali pindai dan summed-area table) dibandingkan dengan rumus
+ * asli yang memindai blok sekali per kanal, dan windowedSSIM dengan SSIM per jendela yang
+ * dihitung langsung.
+ */
+class SSIMErrorCalcTest {
+    private static final double TOLERANCE = 1e-9;
+    private static final int[][] SIZES = {{1, 1}, {1, 40}, {129, 65}, {300, 173}};
+    private static final double C1 = 6.5025;
+    private static final double C2 = 58.5225;
+
+    private final SSIMErrorCalc ssim = new SSIMErrorCalc();
+
+    @Test
+    void blockErrorMatchesPerChannelFormula() {
+        Random random = new Random(13);
+        for (int[] size : SIZES) {
+            ImageRaster raster = TestImages.randomRaster(random, size[0], size[1]);
+            for (int[] block : TestImages.blocks(random, size[0], size[1], 150)) {
+                int x = block[0], y = block[1], w = block[2], h = block[3];
+                int avgR = random.nextInt(256), avgG = random.nextInt(256), avgB = random.nextInt(256);
+                double expected = 1.0 - (reference(raster, x, y, w, h, 16, avgR)
+                        + reference(raster, x, y, w, h, 8, avgG)
+                        + reference(raster, x, y, w, h, 0, avgB)) / 3.0;
+                String where = "blok " + x + "," + y + "," + w + "," + h;
+                assertEquals(expected, ssim.computeError(raster.getPixels(), size[0], x, y, w, h, avgR, avgG, avgB), TOLERANCE, where);
+                assertEquals(expected, ssim.computeError(raster, x, y, w, h, avgR, avgG, avgB), TOLERANCE, where);
+            }
+        }
+    }
+
+    @Test
+    void windowedSSIMMatchesPerWindowFormula() {
+        Random random = new Random(14);
+        ImageRaster a = TestImages.randomRaster(random, 45, 31);
+        ImageRaster b = TestImages.randomRaster(random, 45, 31);
+        int[][] windows = {{8, 4}, {7, 3}, {100, 1}, {1, 1}};
+        for (int[] window : windows) {
+            assertEquals(referenceWindowed(a, b, window[0], window[1]),
+                    SSIMErrorCalc.windowedSSIM(a, b, window[0], window[1]), TOLERANCE, "jendela " + window[0] + " langkah " + window[1]);
+        }
+        assertEquals(1.0, SSIMErrorCalc.windowedSSIM(a, a, 8, 4), TOLERANCE);
+    }
+
+    @Test
+    void windowedSSIMRejectsInvalidArguments() {
+        ImageRaster a = TestImages.randomRaster(new Random(15), 16, 16);
+        assertThrows(IllegalArgumentException.class, () -> SSIMErrorCalc.windowedSSIM(a, a, 8, 0));
+        assertThrows(IllegalArgumentException.class, () -> SSIMErrorCalc.windowedSSIM(a, a, 0, 4));
+        assertThrows(IllegalArgumentException.class, () -> SSIMErrorCalc.windowedSSIM(a, a, 8, -1));
+        assertThrows(IllegalArgumentException.class,
+                () -> SSIMErrorCalc.windowedSSIM(a, TestImages.randomRaster(new Random(16), 16, 15), 8, 4));
+    }
+
+    /**
+     * Rumus SSIM per kanal sebelum dioptimasi: satu pindaian per kanal, kovariansi diakumulasi langsung.
+     */
+    private static double reference(ImageRaster raster, int x, int y, int width, int height, int shift, int avgVal) {
+        int[] pixels = raster.getPixels();
+        int stride = raster.getWidth();
+        double sum = 0, sumSq = 0, covar = 0;
+        int count = 0;
+        for (int j = y; j < y + height; j++) {
+            for (int i = x; i < x + width; i++) {
+                int val = (pixels[j * stride + i] >> shift) & 0xFF;
+                sum += val;
+                sumSq += val * val;
+                covar += val * avgVal;
+                count++;
+            }
+        }
+        if (count == 0) return 1.0;
+        double mean = sum / count;
+        double variance = sumSq / count - mean * mean;
+        double covariance = covar / count - mean * avgVal;
+        if (variance < 1e-3) variance = 1e-3;
+        return ((2 * mean * avgVal + C1) * (2 * covariance + C2))
+             / ((mean * mean + avgVal * avgVal + C1) * (variance + C2));
+    }
+
+    private static double referenceWindowed(ImageRaster a, ImageRaster b, int window, int step) {
+        int width = a.getWidth(), height = a.getHeight();
+        int w = Math.min(window, width), h = Math.min(window, height);
+        double total = 0;
+        int windows = 0;
+        for (int y = 0; y + h <= height; y += step) {
+            for (int x = 0; x + w <= width; x += step) {
+                double sum = 0;
+                for (int shift = 16; shift >= 0; shift -= 8) {
+                    sum += referenceWindow(a, b, x, y, w, h, shift);
+                }
+                total += sum / 3.0;
+                windows++;
+            }
+        }
+        return (windows == 0) ? 1.0 : total / windows;
+    }
+
+    private static double referenceWindow(ImageRaster a, ImageRaster b, int x, int y, int w, int h, int shift) {
+        int n = w * h;
+        double meanA = 0, meanB = 0;
+        for (int j = y; j < y + h; j++) {
+            for (int i = x; i < x + w; i++) {
+                meanA += channel(a, i, j, shift);
+                meanB += channel(b, i, j, shift);
+            }
+        }
+        meanA /= n;
+        meanB /= n;
+        double varA = 0, varB = 0, covar = 0;
+        for (int j = y; j < y + h; j++) {
+            for (int i = x; i < x + w; i++) {
+                double da = channel(a, i, j, shift) - meanA;
+                double db = channel(b, i, j, shift) - meanB;
+                varA += da * da;
+                varB += db * db;
+                covar += da * db;
+            }
+        }
+        varA /= n;
+        varB /= n;
+        covar /= n;
+        return ((2 * meanA * meanB + C1) * (2 * covar + C2))
+             / ((meanA * meanA + meanB * meanB + C1) * (varA + varB + C2));
+    }
+
+    private static int channel(ImageRaster raster, int x, int y, int shift) {
+        return (raster.getPixels()[y * raster.getWidth() + x] >> shift) & 0xFF;
+    }
+}
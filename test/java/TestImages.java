@@ -0,0 +1,77 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Gambar dan blok acak untuk test, serta deskripsi struktur Quadtree untuk membandingkan
+ * dua pohon. Piksel dibuat berpetak agar blok besar tidak selalu berupa derau seragam
+ * (rata-rata dan selisihnya lebih bervariasi).
+ */
+final class TestImages {
+    private TestImages() {
+    }
+
+    static ImageRaster randomRaster(Random random, int width, int height) {
+        int[] pixels = new int[width * height];
+        int tile = 1 + random.nextInt(8);
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                int base = ((x / tile) * 37 + (y / tile) * 91) & 0xFF;
+                int r = Math.min(255, base + random.nextInt(24));
+                int g = (base * 3 + random.nextInt(64)) & 0xFF;
+                int b = random.nextInt(256);
+                pixels[y * width + x] = (r << 16) | (g << 8) | b;
+            }
+        }
+        return new ImageRaster(pixels, width, height);
+    }
+
+    /**
+     * Blok acak di dalam gambar, ditambah blok 1 piksel di keempat sudut, satu baris dan
+     * satu kolom terakhir, serta seluruh gambar. Setiap blok berupa {x, y, w, h}.
+     */
+    static List<int[]> blocks(Random random, int width, int height, int count) {
+        List<int[]> blocks = new ArrayList<>();
+        blocks.add(new int[] {0, 0, 1, 1});
+        blocks.add(new int[] {width - 1, 0, 1, 1});
+        blocks.add(new int[] {0, height - 1, 1, 1});
+        blocks.add(new int[] {width - 1, height - 1, 1, 1});
+        blocks.add(new int[] {0, height - 1, width, 1});
+        blocks.add(new int[] {width - 1, 0, 1, height});
+        blocks.add(new int[] {0, 0, width, height});
+        for (int n = 0; n < count; n++) {
+            int x = random.nextInt(width);
+            int y = random.nextInt(height);
+            int w = 1 + random.nextInt(width - x);
+            int h = 1 + random.nextInt(height - y);
+            blocks.add(new int[] {x, y, w, h});
+        }
+        return blocks;
+    }
+
+    /**
+     * Struktur pohon depth-first: blok, warna, dan error setiap node (E untuk slot kosong).
+     */
+    static String describe(QuadTree tree) {
+        StringBuilder sb = new StringBuilder();
+        describe(tree.getNodes(), 0, sb);
+        return sb.toString();
+    }
+
+    private static void describe(QuadTreeNodeStore nodes, int node, StringBuilder sb) {
+        if (nodes.isEmpty(node)) {
+            sb.append('E');
+            return;
+        }
+        sb.append(nodes.getX(node)).append(',').append(nodes.getY(node)).append(',')
+          .append(nodes.getWidth(node)).append(',').append(nodes.getHeight(node)).append(',')
+          .append(Integer.toHexString(nodes.getRGB(node))).append(',').append(nodes.getError(node)).append(';');
+        if (!nodes.isLeaf(node)) {
+            sb.append('(');
+            for (int k = 0; k < 4; k++) {
+                describe(nodes, nodes.getFirstChild(node) + k, sb);
+            }
+            sb.append(')');
+        }
+    }
+}
@@ -0,0 +1,106 @@
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+import java.util.Arrays;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Kernel SIMD harus memberi jumlah yang sama persis dengan loop skalar, untuk setiap sisa
+ * lebar yang bukan kelipatan jumlah lane dan untuk blok yang tidak dimulai di kolom 0.
+ * MAD dan Variance (yang memilih SIMD atau skalar saat runtime) juga dibandingkan dengan
+ * rumus skalarnya; Maven menjalankan test ini sekali lagi dengan -Dquadtree.simd=false.
+ */
+class VectorKernelsTest {
+    @Test
+    void kernelsMatchScalarForEveryTailLength() {
+        assumeTrue(ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent(),
+                "Modul jdk.incubator.vector tidak tersedia");
+        Random random = new Random(7);
+        int lanes = VectorKernels.LANES;
+        int stride = 4 * lanes + 11;
+        int height = 5;
+        ImageRaster raster = TestImages.randomRaster(random, stride, height);
+        int[] pixels = raster.getPixels();
+        long[] sums = new long[3];
+        for (int width = 1; width <= 3 * lanes + 3; width++) {
+            for (int x : new int[] {0, 1, lanes - 1, stride - width}) {
+                if (x < 0 || x + width > stride) continue;
+                int avgR = random.nextInt(256), avgG = random.nextInt(256), avgB = random.nextInt(256);
+                String where = "lebar " + width + " x " + x;
+                VectorKernels.sumAbsDeviation(pixels, stride, x, 1, width, height - 1, avgR, avgG, avgB, sums);
+                assertArrayEquals(scalarAbs(pixels, stride, x, 1, width, height - 1, avgR, avgG, avgB), sums, where);
+                assertEquals(scalarSquared(pixels, stride, x, 1, width, height - 1, avgR, avgG, avgB),
+                        VectorKernels.sumSquaredDeviation(pixels, stride, x, 1, width, height - 1, avgR, avgG, avgB), where);
+            }
+        }
+    }
+
+    @Test
+    void kernelsFlushLaneAccumulatorsOnLongRows() {
+        assumeTrue(ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent(),
+                "Modul jdk.incubator.vector tidak tersedia");
+        // Baris lebih panjang dari CHUNK dengan selisih maksimum, agar akumulator int hampir penuh
+        int width = 3 * 8192 + VectorKernels.LANES + 3;
+        int[] pixels = new int[width * 2];
+        Arrays.fill(pixels, 0xFFFFFF);
+        long[] sums = new long[3];
+        VectorKernels.sumAbsDeviation(pixels, width, 0, 0, width, 2, 0, 0, 0, sums);
+        assertArrayEquals(scalarAbs(pixels, width, 0, 0, width, 2, 0, 0, 0), sums);
+        assertEquals(scalarSquared(pixels, width, 0, 0, width, 2, 0, 0, 0),
+                VectorKernels.sumSquaredDeviation(pixels, width, 0, 0, width, 2, 0, 0, 0));
+    }
+
+    @Test
+    void metricsMatchScalarFormula() {
+        Random random = new Random(8);
+        MADErrorCalc mad = new MADErrorCalc();
+        VarErrorCalc variance = new VarErrorCalc();
+        for (int[] size : new int[][] {{1, 1}, {3, 9}, {37, 21}, {130, 67}}) {
+            int width = size[0], height = size[1];
+            ImageRaster raster = TestImages.randomRaster(random, width, height);
+            int[] pixels = raster.getPixels();
+            for (int[] block : TestImages.blocks(random, width, height, 100)) {
+                int x = block[0], y = block[1], w = block[2], h = block[3];
+                int avg = raster.integral().averageRGB(x, y, w, h);
+                int avgR = (avg >> 16) & 0xFF, avgG = (avg >> 8) & 0xFF, avgB = avg & 0xFF;
+                String where = width + "x" + height + " blok " + x + "," + y + "," + w + "," + h;
+                long[] abs = scalarAbs(pixels, width, x, y, w, h, avgR, avgG, avgB);
+                double count = (double) w * h;
+                double expectedMad = ((double) abs[0] / count + (double) abs[1] / count + (double) abs[2] / count) / 3.0;
+                assertEquals(expectedMad, mad.computeError(pixels, width, x, y, w, h, avgR, avgG, avgB), 0.0, where);
+                assertEquals(expectedMad, mad.computeError(raster, x, y, w, h, avgR, avgG, avgB), 0.0, where);
+                double expectedVar = ((double) scalarSquared(pixels, width, x, y, w, h, avgR, avgG, avgB) / count) / 3.0;
+                assertEquals(expectedVar, variance.computeError(pixels, width, x, y, w, h, avgR, avgG, avgB), 0.0, where);
+            }
+        }
+    }
+
+    private static long[] scalarAbs(int[] pixels, int stride, int x, int y, int w, int h, int avgR, int avgG, int avgB) {
+        long[] sums = new long[3];
+        for (int j = y; j < y + h; j++) {
+            for (int i = x; i < x + w; i++) {
+                int rgb = pixels[j * stride + i];
+                sums[0] += Math.abs(((rgb >> 16) & 0xFF) - avgR);
+                sums[1] += Math.abs(((rgb >> 8) & 0xFF) - avgG);
+                sums[2] += Math.abs((rgb & 0xFF) - avgB);
+            }
+        }
+        return sums;
+    }
+
+    private static long scalarSquared(int[] pixels, int stride, int x, int y, int w, int h, int avgR, int avgG, int avgB) {
+        long sum = 0;
+        for (int j = y; j < y + h; j++) {
+            for (int i = x; i < x + w; i++) {
+                int rgb = pixels[j * stride + i];
+                long dR = ((rgb >> 16) & 0xFF) - avgR;
+                long dG = ((rgb >> 8) & 0xFF) - avgG;
+                long dB = (rgb & 0xFF) - avgB;
+                sum += dR * dR + dG * dG + dB * dB;
+            }
+        }
+        return sum;
+    }
+}